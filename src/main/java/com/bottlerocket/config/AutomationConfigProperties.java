@@ -126,6 +126,87 @@ public class AutomationConfigProperties {
     public boolean eventTimings = false;
     public boolean showIOSLog = false;
 
+    /**
+     * Wait engine ("fixed" or "adaptive") and polling intervals
+     */
+    public String waitEngine = "fixed";
+    public int waitPollIntervalMillis = 500;
+    public int waitFastPollIntervalMillis = 50;
+    public int waitFastPollPeriodMillis = 500;
+    public int waitMaxPollIntervalMillis = 1000;
+
+    /**
+     * Element reference cache, see {@link com.bottlerocket.webdriverwrapper.ElementCache}
+     */
+    public boolean elementCache = false;
+
+    /**
+     * Write per-locator lookup latencies to the report output directory at the end of the run, see {@link com.bottlerocket.webdriverwrapper.LocatorMetrics}
+     */
+    public boolean locatorMetrics = false;
+
+    /**
+     * Driver session pool, see {@link com.bottlerocket.webdriverwrapper.DriverSessionPool}
+     */
+    public int sessionPoolSize = 2;
+    public int sessionPoolMaxAgeMinutes = 30;
+    public int sessionPoolLeaseTimeoutSeconds = 300;
+
+    /**
+     * How sessions are reset between tests, see {@link com.bottlerocket.webdriverwrapper.SessionResetPolicy#fromConfig(AutomationConfigProperties)}
+     */
+    public String sessionReset = "auto";
+    public String sessionResetUrl = "about:blank";
+
+    /**
+     * HTTP client shared by remote sessions, see {@link com.bottlerocket.webdriverwrapper.SharedHttpClientFactory}.
+     * An empty factory name uses Selenium's default client.
+     */
+    public String httpClientFactory = "";
+    public int httpConnectTimeoutSeconds = 10;
+    public int httpReadTimeoutSeconds = 180;
+
+    /**
+     * Background screenshot writing, see {@link com.bottlerocket.webdriverwrapper.ScreenshotWriter}
+     */
+    public int screenshotQueueCapacity = 32;
+    public int screenshotWriterThreads = 2;
+
+    /**
+     * Store screenshots once per distinct content and link them to their names, see {@link com.bottlerocket.webdriverwrapper.ScreenshotStore}
+     */
+    public boolean screenshotDedupe = false;
+    public boolean screenshotNamedLinks = true;
+
+    /**
+     * Encoding of saved screenshots, see {@link com.bottlerocket.webdriverwrapper.ScreenshotProfile}. Format is PNG, JPEG or WEBP,
+     * quality is from 0 to 1 for lossy formats and a max dimension of 0 keeps the captured size.
+     */
+    public String screenshotFormat = "PNG";
+    public float screenshotQuality = 0.8f;
+    public int screenshotMaxDimension = 0;
+    public boolean screenshotGrayscale = false;
+
+    /**
+     * Local headless browser farm, see {@link com.bottlerocket.webdriverwrapper.LocalBrowserFarm}. A size of 0 uses one browser per CPU core.
+     */
+    public int browserFarmSize = 0;
+    public int browserFarmSampleIntervalSeconds = 5;
+    public int browserFarmHealthCheckIntervalSeconds = 10;
+
+    /**
+     * Visual regression baselines, see {@link com.bottlerocket.visual.BaselineIndex}
+     */
+    public String visualBaselineDirectory = "visual_baselines";
+    public int visualHashThreshold = 2;
+    public double visualSimilarityThreshold = 0.999;
+    public boolean visualUpdateBaselines = false;
+
+    /**
+     * Record every WebDriver command and write a Chrome trace per test, see {@link com.bottlerocket.webdriverwrapper.CommandTracer}
+     */
+    public boolean commandTrace = false;
+
     SauceConfigProperties sauceConfigProperties = new SauceConfigProperties();
 
     public class SauceConfigProperties {
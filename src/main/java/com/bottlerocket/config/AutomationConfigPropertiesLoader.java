@@ -7,6 +7,7 @@ import org.openqa.selenium.remote.DesiredCapabilities;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.ObjLongConsumer;
 
 /**
  * TODO refactor so this class is a little more streamlined
@@ -28,8 +29,28 @@ public class AutomationConfigPropertiesLoader {
     public static final String AUTOMATION_CONFIG_SAUCE_LABS_WEB_PROPERTIES_FILE = PROPERTIES_DIRECTORY + "sauce_config_web.properties";
     public static final String PROJECT_RELATIVE_DRIVER_EXECUTABLE_PATH = "/drivers/";
 
+    //loading phases reported to the phase listener
+    public static final String CONFIG_LOAD = "config: load files";
+    public static final String CONFIG_BIND = "config: bind properties";
+    public static final String CONFIG_CAPABILITIES = "config: set capabilities";
+
+    private final ObjLongConsumer<String> phaseListener;
+
+    public AutomationConfigPropertiesLoader() {
+        this((phase, micros) -> {});
+    }
+
+    /**
+     * @param phaseListener called with the name and duration in microseconds of each loading phase,
+     *                      e.g. {@code StartupProfiler.getGlobal()::record} to add them to the startup profile
+     */
+    public AutomationConfigPropertiesLoader(ObjLongConsumer<String> phaseListener) {
+        this.phaseListener = phaseListener;
+    }
 
     public AutomationConfigProperties loadAutomationConfigurations(DesiredCapabilities capabilities) throws Exception {
+        //read every file before binding, so file I/O and binding are reported as separate phases
+        long loadStartNanos = System.nanoTime();
 
         //create AutomationConfigProperties and set capabilities
         AutomationConfigProperties configProperties = new AutomationConfigProperties(capabilities, PROJECT_LEVEL_PROPERTY_FILE );
@@ -40,6 +61,11 @@ public class AutomationConfigPropertiesLoader {
         //Load platform level properties
         Properties platformLevelProperties = loadPlatformLevelProperties(configProperties);
 
+        Properties remoteProperties = configProperties.remote ? loadRemoteVariablesFromFile(configProperties) : null;
+        phaseListener.accept(CONFIG_LOAD, micros(loadStartNanos));
+
+        long bindStartNanos = System.nanoTime();
+
         //Now that we know platform we can create our configurator
         ConfigPropertiesBinder binder = ConfigPropertiesBinder.binderFactory(configProperties);
 
@@ -48,8 +74,6 @@ public class AutomationConfigPropertiesLoader {
 
         if (configProperties.remote) {
             //bind remote
-            Properties remoteProperties = loadRemoteVariablesFromFile(configProperties);
-
             if (configProperties.remoteType == null || configProperties.remoteType.isEmpty()) {
                 Logger.log("Unable to determine remote type. Please provide a REMOTE_TYPE value in the project level file");
             } else {
@@ -62,12 +86,19 @@ public class AutomationConfigPropertiesLoader {
             Logger.log("No remote values set. Running tests locally.");
         }
 
+        long capabilitiesStartNanos = System.nanoTime();
         binder.setCapabilities(configProperties);
+        phaseListener.accept(CONFIG_CAPABILITIES, micros(capabilitiesStartNanos));
+        phaseListener.accept(CONFIG_BIND, micros(bindStartNanos));
 
 
         return configProperties;
     }
 
+    private static long micros(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1000;
+    }
+
 
 
     private AutomationConfigPropertiesLoader createConfigurator() {
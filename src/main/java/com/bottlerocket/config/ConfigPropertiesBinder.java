@@ -102,6 +102,73 @@ public class ConfigPropertiesBinder {
         configProperties.safariIgnoreFraudWarning = convertToBoolean(rawProperties.getProperty("SAFARI_IGNORE_FRAUD_WARNING"), configProperties.safariIgnoreFraudWarning);
         configProperties.safariOpenLinksInBackground = convertToBoolean(rawProperties.getProperty("SAFARI_OPEN_LINKS_IN_BACKGROUND"), configProperties.safariOpenLinksInBackground);
 
+        /*
+            Wait engine
+         */
+        configProperties.waitEngine = rawProperties.getProperty("WAIT_ENGINE", configProperties.waitEngine);
+        configProperties.waitPollIntervalMillis = Integer.parseInt(rawProperties.getProperty("WAIT_POLL_INTERVAL", String.valueOf(configProperties.waitPollIntervalMillis)));
+        configProperties.waitFastPollIntervalMillis = Integer.parseInt(rawProperties.getProperty("WAIT_FAST_POLL_INTERVAL", String.valueOf(configProperties.waitFastPollIntervalMillis)));
+        configProperties.waitFastPollPeriodMillis = Integer.parseInt(rawProperties.getProperty("WAIT_FAST_POLL_PERIOD", String.valueOf(configProperties.waitFastPollPeriodMillis)));
+        configProperties.waitMaxPollIntervalMillis = Integer.parseInt(rawProperties.getProperty("WAIT_MAX_POLL_INTERVAL", String.valueOf(configProperties.waitMaxPollIntervalMillis)));
+
+        /*
+            Element cache
+         */
+        configProperties.elementCache = convertToBoolean(rawProperties.getProperty("ELEMENT_CACHE"), configProperties.elementCache);
+
+        /*
+            Locator metrics
+         */
+        configProperties.locatorMetrics = convertToBoolean(rawProperties.getProperty("LOCATOR_METRICS"), configProperties.locatorMetrics);
+
+        /*
+            Driver session pool
+         */
+        configProperties.sessionPoolSize = Integer.parseInt(rawProperties.getProperty("SESSION_POOL_SIZE", String.valueOf(configProperties.sessionPoolSize)));
+        configProperties.sessionPoolMaxAgeMinutes = Integer.parseInt(rawProperties.getProperty("SESSION_POOL_MAX_AGE", String.valueOf(configProperties.sessionPoolMaxAgeMinutes)));
+        configProperties.sessionPoolLeaseTimeoutSeconds = Integer.parseInt(rawProperties.getProperty("SESSION_POOL_LEASE_TIMEOUT", String.valueOf(configProperties.sessionPoolLeaseTimeoutSeconds)));
+
+        /*
+            Session reset
+         */
+        configProperties.sessionReset = rawProperties.getProperty("SESSION_RESET", configProperties.sessionReset);
+        configProperties.sessionResetUrl = rawProperties.getProperty("SESSION_RESET_URL", configProperties.sessionResetUrl);
+
+        /*
+            HTTP client for remote sessions
+         */
+        configProperties.httpClientFactory = rawProperties.getProperty("HTTP_CLIENT_FACTORY", configProperties.httpClientFactory);
+        configProperties.httpConnectTimeoutSeconds = Integer.parseInt(rawProperties.getProperty("HTTP_CONNECT_TIMEOUT", String.valueOf(configProperties.httpConnectTimeoutSeconds)));
+        configProperties.httpReadTimeoutSeconds = Integer.parseInt(rawProperties.getProperty("HTTP_READ_TIMEOUT", String.valueOf(configProperties.httpReadTimeoutSeconds)));
+        configProperties.commandTrace = convertToBoolean(rawProperties.getProperty("COMMAND_TRACE"), configProperties.commandTrace);
+
+        /*
+            Screenshot writer
+         */
+        configProperties.screenshotQueueCapacity = Integer.parseInt(rawProperties.getProperty("SCREENSHOT_QUEUE_CAPACITY", String.valueOf(configProperties.screenshotQueueCapacity)));
+        configProperties.screenshotWriterThreads = Integer.parseInt(rawProperties.getProperty("SCREENSHOT_WRITER_THREADS", String.valueOf(configProperties.screenshotWriterThreads)));
+        configProperties.screenshotDedupe = convertToBoolean(rawProperties.getProperty("SCREENSHOT_DEDUPE"), configProperties.screenshotDedupe);
+        configProperties.screenshotNamedLinks = convertToBoolean(rawProperties.getProperty("SCREENSHOT_NAMED_LINKS"), configProperties.screenshotNamedLinks);
+        configProperties.screenshotFormat = rawProperties.getProperty("SCREENSHOT_FORMAT", configProperties.screenshotFormat);
+        configProperties.screenshotQuality = Float.parseFloat(rawProperties.getProperty("SCREENSHOT_QUALITY", String.valueOf(configProperties.screenshotQuality)));
+        configProperties.screenshotMaxDimension = Integer.parseInt(rawProperties.getProperty("SCREENSHOT_MAX_DIMENSION", String.valueOf(configProperties.screenshotMaxDimension)));
+        configProperties.screenshotGrayscale = convertToBoolean(rawProperties.getProperty("SCREENSHOT_GRAYSCALE"), configProperties.screenshotGrayscale);
+
+        /*
+            Local browser farm
+         */
+        configProperties.browserFarmSize = Integer.parseInt(rawProperties.getProperty("BROWSER_FARM_SIZE", String.valueOf(configProperties.browserFarmSize)));
+        configProperties.browserFarmSampleIntervalSeconds = Integer.parseInt(rawProperties.getProperty("BROWSER_FARM_SAMPLE_INTERVAL", String.valueOf(configProperties.browserFarmSampleIntervalSeconds)));
+        configProperties.browserFarmHealthCheckIntervalSeconds = Integer.parseInt(rawProperties.getProperty("BROWSER_FARM_HEALTH_CHECK_INTERVAL", String.valueOf(configProperties.browserFarmHealthCheckIntervalSeconds)));
+
+        /*
+            Visual regression
+         */
+        configProperties.visualBaselineDirectory = rawProperties.getProperty("VISUAL_BASELINE_DIRECTORY", configProperties.visualBaselineDirectory);
+        configProperties.visualHashThreshold = Integer.parseInt(rawProperties.getProperty("VISUAL_HASH_THRESHOLD", String.valueOf(configProperties.visualHashThreshold)));
+        configProperties.visualSimilarityThreshold = Double.parseDouble(rawProperties.getProperty("VISUAL_SIMILARITY_THRESHOLD", String.valueOf(configProperties.visualSimilarityThreshold)));
+        configProperties.visualUpdateBaselines = convertToBoolean(rawProperties.getProperty("VISUAL_UPDATE_BASELINES"), configProperties.visualUpdateBaselines);
+
         /*
             CI/CD
          */
@@ -1,12 +1,17 @@
 package com.bottlerocket.config;
 
 import com.bottlerocket.utils.*;
+import com.bottlerocket.webdriverwrapper.SessionContext;
 import org.openqa.selenium.*;
 
 /**
  * Created by ford.arnett on 12/8/21
  */
 public abstract class ResourceLocatorBundle {
+    /**
+     * Shared by every thread. Use {@link #setRuntimePlatform(String)} instead, which is scoped to the current {@link SessionContext}.
+     */
+    @Deprecated
     public static String runtimePlatform;
 
     By runtimeBy;
@@ -20,18 +25,31 @@ public abstract class ResourceLocatorBundle {
         this.runtimeBy = runtimeBy;
     }
 
+    /**
+     * @return the runtime platform of the current {@link SessionContext}, falling back to the deprecated static field if the context doesn't have one
+     */
+    public static String getRuntimePlatform() {
+        String platform = SessionContext.current().getRuntimePlatform();
+        return platform != null ? platform : runtimePlatform;
+    }
+
+    public static void setRuntimePlatform(String platform) {
+        SessionContext.current().setRuntimePlatform(platform);
+    }
+
     public static ResourceLocatorBundle build(By web, By iOS, By android) {
+        String platform = getRuntimePlatform();
         //TODO Update this with isSet method in newest framework version
-        if((runtimePlatform == null || runtimePlatform.isEmpty())) {
+        if((platform == null || platform.isEmpty())) {
             Logger.log("Runtime platform was not set, unable to determine which platform to use for ResourceLocatorBundle. Check that platform is being set correctly");
             return null;
         }
 
-        if(runtimePlatform.equalsIgnoreCase("web")) {
+        if(platform.equalsIgnoreCase("web")) {
             return new ResourceLocatorBundleWeb(web);
-        } else if (runtimePlatform.equalsIgnoreCase("iOS")) {
+        } else if (platform.equalsIgnoreCase("iOS")) {
             return new ResourceLocatorBundleiOS(iOS);
-        } else if (runtimePlatform.equalsIgnoreCase("android")) {
+        } else if (platform.equalsIgnoreCase("android")) {
             return new ResourceLocatorBundleAndroid(android);
         } else {
             Logger.log("There was no match for the platform given. Check if there is a spelling issue or a new platform is being used but not accounted for. ");
@@ -40,13 +58,14 @@ public abstract class ResourceLocatorBundle {
     }
 
     public static ResourceLocatorBundle build(By locator) {
+        String platform = getRuntimePlatform();
         //TODO Update this with isSet method in newest framework version
-        if((runtimePlatform == null || runtimePlatform.isEmpty())) {
+        if((platform == null || platform.isEmpty())) {
             Logger.log("Runtime platform was not set, unable to determine which platform to use for ResourceLocatorBundle. Check that platform is being set correctly");
             return null;
         }
 
-        switch(runtimePlatform.toLowerCase()) {
+        switch(platform.toLowerCase()) {
             case "web" -> {return  new ResourceLocatorBundleWeb(locator);}
             case "ios" -> {return new ResourceLocatorBundleiOS(locator);}
             case "android" -> {return new ResourceLocatorBundleAndroid(locator);}
@@ -58,16 +77,17 @@ public abstract class ResourceLocatorBundle {
     }
 
     public static ResourceLocatorBundle build(String web, String iOS, String android) {
-        if(runtimePlatform == null || runtimePlatform.isEmpty()) {
+        String platform = getRuntimePlatform();
+        if(platform == null || platform.isEmpty()) {
             Logger.log("Runtime platform was not set, unable to determine which platform to use for ResourceLocatorBundle. Check that platform is being set correctly");
             return null;
         }
 
-        if(runtimePlatform.equalsIgnoreCase("web")) {
+        if(platform.equalsIgnoreCase("web")) {
             return new ResourceLocatorBundleWeb(web);
-        } else if (runtimePlatform.equalsIgnoreCase("iOS")) {
+        } else if (platform.equalsIgnoreCase("iOS")) {
             return new ResourceLocatorBundleiOS(iOS);
-        } else if (runtimePlatform.equalsIgnoreCase("android")) {
+        } else if (platform.equalsIgnoreCase("android")) {
             return new ResourceLocatorBundleAndroid(android);
         } else {
             Logger.log("There was no match for the platform given. Check if there is a spelling issue or a new platform is being used but not accounted for. ");
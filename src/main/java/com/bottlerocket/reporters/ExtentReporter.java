@@ -11,14 +11,27 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Created by ford.arnett on 12/12/16.
+ * <br>
+ * The current test is tracked per thread, so a single reporter can be shared by tests running in parallel.
+ * All reporter instances write into the same {@link ExtentReports}.
+ * <br>
+ * The logTest methods called on a thread that hasn't started a test, such as a session pool's warm-up or async creation threads,
+ * start a placeholder "unknown test" for that thread so the entry still reaches the report. The other methods (screenshots, element checks)
+ * only add to a test already started on the thread and drop the entry otherwise.
  */
 public class ExtentReporter implements AutomationReporter {
-    private static ExtentReports reporter = null;
+    private static final String UNKNOWN_TEST = "Test name was not recorded properly, unknown test";
+    private static volatile ExtentReports reporter = null;
+    private static final List<Consumer<AutomationReporter>> runSummaries = new CopyOnWriteArrayList<>();
+    private static ExtentReports summarizedReporter = null;
     private String fileName;
-    ExtentTest test;
+    final ThreadLocal<ExtentTest> test = new ThreadLocal<>();
     HashMap<String, ArrayList<String>> testCoverage = new HashMap<>();
     private LoggingLevel loggingLevel = LoggingLevel.DEBUG;
 
@@ -28,17 +41,21 @@ public class ExtentReporter implements AutomationReporter {
 
     @Override
     public void initializeReporter() {
-        if(reporter == null) {
-            reporter = new ExtentReports();
-            reporter.attachReporter(new ExtentHtmlReporter(fileName));
+        synchronized (ExtentReporter.class) {
+            if(reporter == null) {
+                reporter = new ExtentReports();
+                reporter.attachReporter(new ExtentHtmlReporter(fileName));
+            }
         }
     }
 
     @Override
     public void initializeReporter(boolean forceNewReporter) {
-        if(reporter == null || forceNewReporter) {
-            reporter = new ExtentReports();
-            reporter.attachReporter(new ExtentHtmlReporter(fileName));
+        synchronized (ExtentReporter.class) {
+            if(reporter == null || forceNewReporter) {
+                reporter = new ExtentReports();
+                reporter.attachReporter(new ExtentHtmlReporter(fileName));
+            }
         }
     }
 
@@ -68,7 +85,7 @@ public class ExtentReporter implements AutomationReporter {
     }
 
     @Override
-    public void addToTestCoverageList(String category, String testDescription) {
+    public synchronized void addToTestCoverageList(String category, String testDescription) {
         testCoverage.putIfAbsent(category, new ArrayList<>());
         testCoverage.get(category).add(testDescription);
     }
@@ -85,8 +102,8 @@ public class ExtentReporter implements AutomationReporter {
             return null;
         }
 
-        test = reporter.createTest(testName, testDesc);
-        return test;
+        test.set(reporter.createTest(testName, testDesc));
+        return test.get();
     }
 
     @Override
@@ -95,8 +112,8 @@ public class ExtentReporter implements AutomationReporter {
             Logger.log("It seems as if the reporter was not initialized correctly. Reporting will not function correctly.");
             return null;
         }
-        test = reporter.createTest(testName);
-        return test;
+        test.set(reporter.createTest(testName));
+        return test.get();
     }
 
     @Override
@@ -105,10 +122,7 @@ public class ExtentReporter implements AutomationReporter {
             Logger.log("It seems as if the reporter was not initialized correctly. Reporting will not function correctly.");
             return;
         }
-        if(test == null) {
-            startTest("Test name was not recorded properly, unknown test");
-        }
-        test.log(logStatus, stepDetails);
+        currentTest().log(logStatus, stepDetails);
     }
 
     /**
@@ -121,24 +135,30 @@ public class ExtentReporter implements AutomationReporter {
      */
     @Override
     public void logTest(Status logStatus, String stepDetails, String screenShotFileName) throws IOException {
-        test.log(logStatus, stepDetails, getMediaEntity(screenShotFileName));
+        ExtentTest current = currentTest();
+        if(current != null) {
+            current.log(logStatus, stepDetails, getMediaEntity(screenShotFileName));
+        }
     }
 
     @Override
     public void logTest(Status logStatus, String stepDetails, boolean printToConsole) {
-        if(test == null) {
-            startTest("Test name was not recorded properly, unknown test");
-        }
         if(printToConsole) {
             Logger.log(stepDetails);
         }
 
-        test.log(logStatus, stepDetails);
+        ExtentTest current = currentTest();
+        if(current != null) {
+            current.log(logStatus, stepDetails);
+        }
     }
 
     @Override
     public void logTest(Status logStatus, Throwable throwable) {
-        test.log(logStatus, throwable);
+        ExtentTest current = currentTest();
+        if(current != null) {
+            current.log(logStatus, throwable);
+        }
     }
 
     /**
@@ -151,7 +171,20 @@ public class ExtentReporter implements AutomationReporter {
      */
     @Override
     public void logTest(Status logStatus, Throwable throwable, String screenShotFileName) throws IOException {
-        test.log(logStatus, throwable, getMediaEntity(screenShotFileName));
+        ExtentTest current = currentTest();
+        if(current != null) {
+            current.log(logStatus, throwable, getMediaEntity(screenShotFileName));
+        }
+    }
+
+    /**
+     * @return the thread's test, starting a placeholder test if the thread hasn't started one. Null if the reporter was not initialized.
+     */
+    private ExtentTest currentTest() {
+        if(test.get() == null) {
+            startTest(UNKNOWN_TEST);
+        }
+        return test.get();
     }
 
     @Override
@@ -160,8 +193,28 @@ public class ExtentReporter implements AutomationReporter {
         //reporter.end(test);
     }
 
+    /**
+     * Add a summary of the whole run to the report when it is closed, e.g. the startup phase times as system info.
+     * Summaries are added once per report, however many reporters or wrappers share it.
+     */
+    public static void addRunSummary(Consumer<AutomationReporter> summary) {
+        runSummaries.add(summary);
+    }
+
     @Override
     public void close() {
+        synchronized (ExtentReporter.class) {
+            if (summarizedReporter != reporter) {
+                summarizedReporter = reporter;
+                for (Consumer<AutomationReporter> summary : runSummaries) {
+                    try {
+                        summary.accept(this);
+                    } catch (RuntimeException e) {
+                        ErrorHandler.printErr("Unable to add the run summary to the report", e);
+                    }
+                }
+            }
+        }
         reporter.flush();
     }
 
@@ -174,13 +227,13 @@ public class ExtentReporter implements AutomationReporter {
 
     @Override
     public ExtentTest getTest() {
-        return test;
+        return test.get();
     }
 
     @Deprecated
     @Override
     public boolean logging() {
-        return test != null && loggingLevel.equals(LoggingLevel.DEBUG) || loggingLevel.equals(LoggingLevel.VERBOSE);
+        return test.get() != null && loggingLevel.equals(LoggingLevel.DEBUG) || loggingLevel.equals(LoggingLevel.VERBOSE);
     }
 
     /**
@@ -220,9 +273,9 @@ public class ExtentReporter implements AutomationReporter {
 
     @Override
     public void addScreenshot(String fileName, String description) throws IOException {
-        if(test != null && shouldLog(LoggingLevel.all)) {
+        if(test.get() != null && shouldLog(LoggingLevel.all)) {
             MediaEntityModelProvider mediaEntityModelProvider = MediaEntityBuilder.createScreenCaptureFromPath(fileName).build();
-            test.info("Screenshot: "  + " " + description, mediaEntityModelProvider);
+            test.get().info("Screenshot: "  + " " + description, mediaEntityModelProvider);
     }
     }
 
@@ -270,22 +270,8 @@ public class ExtentReportsAndTestCaseVerificationsBuilder {
      * @throws TemplateException if there is an issue generating the template
      */
     public String createFreeMarkerOutput(Map templateMap, String templateLocation) throws IOException, TemplateException {
-        /* Gather Performance Information */
-        Configuration configuration = new Configuration(Configuration.VERSION_2_3_22);
-        ClassLoader loader = Thread.currentThread().getContextClassLoader();
-        configuration.setClassLoaderForTemplateLoading(loader, "view/");
-        configuration.setDefaultEncoding("UTF-8");
-
-        /* Get the template (uses cache internally) */
-        Template template = configuration.getTemplate(templateLocation);
         File htmlOutputFile = File.createTempFile("comparison_", ".html");
-
-        /* Merge data-model with template */
-        StringWriter out = new StringWriter();
-        template.process(templateMap, out);
-        String source = out.toString();
-        write(htmlOutputFile, source);
-        out.close();
+        write(htmlOutputFile, renderFreeMarkerTemplate(templateMap, templateLocation));
 
         LogBuilder logBuilder = new LogBuilder();
 
@@ -301,6 +287,31 @@ public class ExtentReportsAndTestCaseVerificationsBuilder {
         return htmlOutputFile.toString();
     }
 
+    /**
+     * This method merges a data model with an Apache Freemarker template stored under src/main/resources/view/{template-type}
+     * Use this instead of {@link #createFreeMarkerOutput(Map, String)} when the HTML is written somewhere other than the temp directory
+     * @param templateMap the data model for the template
+     * @param templateLocation the template path relative to src/main/resources/view/
+     * @return the generated HTML
+     * @throws IOException if there is an issue reading the ftlh template file
+     * @throws TemplateException if there is an issue generating the template
+     */
+    public String renderFreeMarkerTemplate(Map templateMap, String templateLocation) throws IOException, TemplateException {
+        Configuration configuration = new Configuration(Configuration.VERSION_2_3_22);
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        configuration.setClassLoaderForTemplateLoading(loader, "view/");
+        configuration.setDefaultEncoding("UTF-8");
+
+        /* Get the template (uses cache internally) */
+        Template template = configuration.getTemplate(templateLocation);
+
+        /* Merge data-model with template */
+        try (StringWriter out = new StringWriter()) {
+            template.process(templateMap, out);
+            return out.toString();
+        }
+    }
+
     /**
      * This method reads all test .java file in a client project and applies a function to these files via delegate
      * This is a utility method that can be used to read tests method names, parse out verifications, etc.
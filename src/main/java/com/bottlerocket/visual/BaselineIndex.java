@@ -0,0 +1,418 @@
+package com.bottlerocket.visual;
+
+import com.bottlerocket.config.AutomationConfigProperties;
+import com.bottlerocket.utils.ErrorHandler;
+import com.bottlerocket.utils.Logger;
+import com.bottlerocket.webdriverwrapper.ScreenshotWriter;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Visual regression baselines kept on disk, keyed by platform, test and step, with the perceptual hashes of each baseline
+ * in a single index file so checking a screenshot doesn't need the baseline image at all in the common case.
+ * <br>
+ * {@link #check(String, String, String, byte[])} hashes the screenshot and compares the hashes with the baseline's.
+ * When both the dHash and the pHash are within the hash threshold the screenshot matches and no pixel diff is run.
+ * Only when the distance is over the threshold is the baseline image read and compared with {@link ImageDiff}; the screenshot
+ * then matches if the share of identical pixels reaches the similarity threshold, otherwise the screenshot and a diff mask are
+ * written to the failures directory.
+ * <br>
+ * A screenshot without a baseline becomes the baseline. With update baselines on, every screenshot replaces its baseline.
+ * <br>
+ * A hash threshold above 0 trades sensitivity for speed: a change small enough not to move the 8x8 hashes, such as a few
+ * characters of text, is not caught. Set VISUAL_HASH_THRESHOLD to -1 to always run the pixel diff when the hashes are not identical.
+ * <p>
+ * Usage Example:
+ * <br>
+ * {@code VisualCheck check = driverWrapper.checkVisual("LoginTest", "empty form");}
+ * <br>
+ * {@code Assert.assertTrue(check.isMatch(), check.toString());}
+ */
+public class BaselineIndex {
+    public static final String INDEX_FILE = "baseline-index.json";
+    public static final String FAILURES_DIRECTORY = "failures";
+    public static final String DEFAULT_DIRECTORY = "visual_baselines";
+    public static final int DEFAULT_HASH_THRESHOLD = 2;
+    public static final double DEFAULT_SIMILARITY_THRESHOLD = 0.999;
+
+    private static final int INDEX_VERSION = 1;
+    private static final Map<Path, BaselineIndex> SHARED = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Object> keyLocks = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    private int hashThreshold = DEFAULT_HASH_THRESHOLD;
+    private double similarityThreshold = DEFAULT_SIMILARITY_THRESHOLD;
+    private boolean updateBaselines;
+    private Supplier<ImageDiff> imageDiff = ImageDiff::new;
+
+    private BaselineIndex(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Read the index in the directory, or start an empty one if there is none yet.
+     */
+    public static BaselineIndex load(Path directory) throws IOException {
+        BaselineIndex index = new BaselineIndex(directory);
+        Path indexFile = directory.resolve(INDEX_FILE);
+        if (!Files.exists(indexFile)) {
+            return index;
+        }
+
+        try {
+            Map<String, Object> json = new Json().toType(Files.readString(indexFile, StandardCharsets.UTF_8), Json.MAP_TYPE);
+            Object entries = json.get("entries");
+            if (entries instanceof List) {
+                for (Object entry : (List<?>) entries) {
+                    Entry baseline = Entry.fromJson((Map<?, ?>) entry);
+                    index.entries.put(baseline.getKey(), baseline);
+                }
+            }
+        } catch (JsonException | ClassCastException | IllegalArgumentException e) {
+            throw new IOException("Unable to read the baseline index " + indexFile, e);
+        }
+        return index;
+    }
+
+    /**
+     * @return the index in VISUAL_BASELINE_DIRECTORY, loaded the first time it is used and saved when the JVM exits.
+     * The thresholds are set from the config that loads it, later calls share the index as it is.
+     */
+    public static BaselineIndex getShared(AutomationConfigProperties config) {
+        return getShared(Paths.get(config.visualBaselineDirectory), index -> index
+                .setHashThreshold(config.visualHashThreshold)
+                .setSimilarityThreshold(config.visualSimilarityThreshold)
+                .setUpdateBaselines(config.visualUpdateBaselines));
+    }
+
+    /**
+     * @return the index in the directory, loaded the first time it is used and saved when the JVM exits
+     */
+    public static BaselineIndex getShared(Path directory) {
+        return getShared(directory, index -> {
+        });
+    }
+
+    private static BaselineIndex getShared(Path directory, Consumer<BaselineIndex> configure) {
+        return SHARED.computeIfAbsent(directory.toAbsolutePath().normalize(), path -> {
+            BaselineIndex index;
+            try {
+                index = load(path);
+            } catch (IOException e) {
+                ErrorHandler.printErr("Unable to load the baseline index, starting an empty one", e);
+                index = new BaselineIndex(path);
+            }
+
+            configure.accept(index);
+            BaselineIndex shutdownIndex = index;
+            Runtime.getRuntime().addShutdownHook(new Thread(shutdownIndex::saveSuppressError, "baseline-index-shutdown"));
+            return index;
+        });
+    }
+
+    /**
+     * @param hashThreshold the Hamming distance, out of 64 bits, up to which both hashes must be for a screenshot to match without a pixel diff.
+     *                      A negative threshold always runs the pixel diff unless the hashes are identical.
+     */
+    public BaselineIndex setHashThreshold(int hashThreshold) {
+        this.hashThreshold = hashThreshold;
+        return this;
+    }
+
+    /**
+     * @param similarityThreshold the share of identical pixels, from 0 to 1, a pixel diff must reach for a screenshot to match
+     */
+    public BaselineIndex setSimilarityThreshold(double similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+        return this;
+    }
+
+    /**
+     * @param updateBaselines replace the baseline with every screenshot checked instead of comparing them
+     */
+    public BaselineIndex setUpdateBaselines(boolean updateBaselines) {
+        this.updateBaselines = updateBaselines;
+        return this;
+    }
+
+    /**
+     * @param imageDiff creates the {@link ImageDiff} the pixel diff is run with, e.g. to set a channel tolerance or ignore regions
+     */
+    public BaselineIndex setImageDiff(Supplier<ImageDiff> imageDiff) {
+        this.imageDiff = imageDiff;
+        return this;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Check a PNG screenshot against its baseline, see the class comment for the steps.
+     */
+    public VisualCheck check(String testName, String step, String platform, byte[] png) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        if (image == null) {
+            throw new IOException("Screenshot for " + key(platform, testName, step) + " is not in a format ImageIO can read");
+        }
+        return check(testName, step, platform, image, png);
+    }
+
+    public VisualCheck check(String testName, String step, String platform, BufferedImage image) throws IOException {
+        return check(testName, step, platform, image, null);
+    }
+
+    private VisualCheck check(String testName, String step, String platform, BufferedImage image, byte[] png) throws IOException {
+        String key = key(platform, testName, step);
+        PerceptualHash hash = PerceptualHash.of(image);
+
+        //checks of the same step run one at a time, so two threads can't both create its baseline or write the same files
+        synchronized (keyLocks.computeIfAbsent(key, k -> new Object())) {
+            return checkLocked(key, testName, step, platform, image, png, hash);
+        }
+    }
+
+    private VisualCheck checkLocked(String key, String testName, String step, String platform, BufferedImage image, byte[] png, PerceptualHash hash) throws IOException {
+        long dHash = hash.getDHash();
+        long pHash = hash.getPHash();
+        Entry baseline = entries.get(key);
+
+        if (baseline == null || updateBaselines) {
+            Path imagePath = Paths.get(platform, fileName(testName), fileName(step, key) + ".png");
+            writeImage(directory.resolve(imagePath), image, png);
+            entries.put(key, new Entry(platform, testName, step, dHash, pHash, image.getWidth(), image.getHeight(), imagePath.toString().replace('\\', '/')));
+            dirty = true;
+            return new VisualCheck(key, baseline == null ? VisualCheck.Status.NEW_BASELINE : VisualCheck.Status.UPDATED_BASELINE, 0, null, null);
+        }
+
+        int distance = Math.max(PerceptualHash.hammingDistance(dHash, baseline.getDHash()), PerceptualHash.hammingDistance(pHash, baseline.getPHash()));
+        boolean sameSize = image.getWidth() == baseline.getWidth() && image.getHeight() == baseline.getHeight();
+        if (sameSize && (distance == 0 || distance <= hashThreshold)) {
+            return new VisualCheck(key, VisualCheck.Status.MATCH_BY_HASH, distance, null, null);
+        }
+
+        Path baselineImage = directory.resolve(baseline.getImage());
+        BufferedImage baselinePixels = ImageIO.read(baselineImage.toFile());
+        if (baselinePixels == null) {
+            throw new IOException("Unable to read the baseline " + baselineImage + " for " + key);
+        }
+
+        DiffResult diff = imageDiff.get().withMask().compare(baselinePixels, image);
+        if (diff.getSimilarity() >= similarityThreshold) {
+            return new VisualCheck(key, VisualCheck.Status.MATCH_BY_PIXELS, distance, diff, null);
+        }
+
+        Path failure = directory.resolve(FAILURES_DIRECTORY).resolve(Paths.get(platform, fileName(testName), fileName(step, key)));
+        writeImage(Paths.get(failure + ".actual.png"), image, png);
+        writeImage(Paths.get(failure + ".diff.png"), diff.getMask(), null);
+        return new VisualCheck(key, VisualCheck.Status.DIFFERENT, distance, diff, Paths.get(failure + ".actual.png"));
+    }
+
+    private static void writeImage(Path target, BufferedImage image, byte[] png) throws IOException {
+        Files.createDirectories(target.getParent());
+        if (png != null) {
+            Files.write(target, png);
+        } else if (!ImageIO.write(image, "png", target.toFile())) {
+            throw new IOException("No PNG writer available for " + target);
+        }
+    }
+
+    public Entry get(String testName, String step, String platform) {
+        return entries.get(key(platform, testName, step));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Find the baselines that look like an image, nearest first. Scanning the index is a loop of XORs and bit counts,
+     * so this stays fast for thousands of baselines.
+     *
+     * @param image       the image to look up
+     * @param maxDistance the largest dHash Hamming distance, out of 64 bits, to include
+     */
+    public List<Entry> findSimilar(BufferedImage image, int maxDistance) {
+        long dHash = PerceptualHash.dHash(image);
+        List<Entry> similar = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (PerceptualHash.hammingDistance(dHash, entry.getDHash()) <= maxDistance) {
+                similar.add(entry);
+            }
+        }
+        similar.sort(Comparator.comparingInt(entry -> PerceptualHash.hammingDistance(dHash, entry.getDHash())));
+        return similar;
+    }
+
+    /**
+     * Write the index file if any baseline was added or updated. The file is replaced in one move so a crash can't leave half an index,
+     * atomically where the file system supports it.
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+
+        //cleared before the entries are read so a baseline added during the save marks the index dirty again, and set back if the save fails
+        dirty = false;
+        try {
+            List<Map<String, Object>> json = new ArrayList<>();
+            entries.values().stream().sorted(Comparator.comparing(Entry::getKey)).forEach(entry -> json.add(entry.toJson()));
+
+            Map<String, Object> index = new LinkedHashMap<>();
+            index.put("version", INDEX_VERSION);
+            index.put("entries", json);
+
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, INDEX_FILE, ".tmp");
+            try {
+                Files.writeString(temp, new Json().toJson(index), StandardCharsets.UTF_8);
+                ScreenshotWriter.moveIntoPlace(temp, directory.resolve(INDEX_FILE));
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException | RuntimeException e) {
+            dirty = true;
+            throw e;
+        }
+        Logger.log("Saved " + entries.size() + " visual baselines to " + directory.resolve(INDEX_FILE));
+    }
+
+    private void saveSuppressError() {
+        try {
+            save();
+        } catch (IOException e) {
+            ErrorHandler.printErr("Unable to save the baseline index", e);
+        }
+    }
+
+    static String key(String platform, String testName, String step) {
+        return platform + "/" + testName + "/" + step;
+    }
+
+    private static String fileName(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]+", "_");
+    }
+
+    /**
+     * The step's file name with a short hash of the whole key, so steps that only differ in characters the file name can't hold
+     * ("empty form" and "empty_form", "a/b" and "a_b") don't share an image.
+     */
+    static String fileName(String step, String key) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+        StringBuilder name = new StringBuilder(fileName(step)).append('-');
+        for (int i = 0; i < 4; i++) {
+            name.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+        }
+        return name.toString();
+    }
+
+    /**
+     * A baseline in the index: where it belongs, its hashes and size, and its image relative to the index directory.
+     */
+    public static class Entry {
+        private final String platform;
+        private final String testName;
+        private final String step;
+        private final long dHash;
+        private final long pHash;
+        private final int width;
+        private final int height;
+        private final String image;
+
+        Entry(String platform, String testName, String step, long dHash, long pHash, int width, int height, String image) {
+            this.platform = platform;
+            this.testName = testName;
+            this.step = step;
+            this.dHash = dHash;
+            this.pHash = pHash;
+            this.width = width;
+            this.height = height;
+            this.image = image;
+        }
+
+        public String getKey() {
+            return key(platform, testName, step);
+        }
+
+        public String getPlatform() {
+            return platform;
+        }
+
+        public String getTestName() {
+            return testName;
+        }
+
+        public String getStep() {
+            return step;
+        }
+
+        public long getDHash() {
+            return dHash;
+        }
+
+        public long getPHash() {
+            return pHash;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public String getImage() {
+            return image;
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("platform", platform);
+            json.put("test", testName);
+            json.put("step", step);
+            json.put("dHash", PerceptualHash.toHex(dHash));
+            json.put("pHash", PerceptualHash.toHex(pHash));
+            json.put("width", width);
+            json.put("height", height);
+            json.put("image", image);
+            return json;
+        }
+
+        static Entry fromJson(Map<?, ?> json) {
+            return new Entry((String) json.get("platform"), (String) json.get("test"), (String) json.get("step"),
+                    PerceptualHash.fromHex((String) json.get("dHash")), PerceptualHash.fromHex((String) json.get("pHash")),
+                    ((Number) json.get("width")).intValue(), ((Number) json.get("height")).intValue(), (String) json.get("image"));
+        }
+    }
+}
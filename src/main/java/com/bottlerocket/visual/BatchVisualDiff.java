@@ -0,0 +1,403 @@
+package com.bottlerocket.visual;
+
+import com.bottlerocket.utils.ErrorHandler;
+import com.bottlerocket.utils.ExtentReportsAndTestCaseVerificationsBuilder;
+import com.bottlerocket.utils.Logger;
+import com.bottlerocket.webdriverwrapper.ScreenshotProfile;
+import com.bottlerocket.webdriverwrapper.ScreenshotStore;
+import freemarker.template.TemplateException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compares the screenshots of two runs, pairing the files by their path relative to each run's screenshot directory,
+ * and writes an HTML summary with thumbnails and diff masks of everything that changed.
+ * <br>
+ * The pairs are compared in parallel on a {@link ForkJoinPool}, and each {@link ImageDiff} splits its rows across the same pool.
+ * Files with the same bytes are identical without being decoded, so a suite where little changed is mostly file reads.
+ * The content-addressed {@code objects/} directory of a {@link ScreenshotStore} is skipped, its files are compared through their named links,
+ * so runs saved with SCREENSHOT_NAMED_LINKS off have nothing to compare. A batch with nothing to compare fails.
+ * WebP screenshots are paired too, but need an ImageIO WebP plugin to be diffed unless their bytes are identical.
+ * <br>
+ * The summary is rendered with the FreeMarker template {@code view/visualdiff/index.ftlh} into {@code index.html} in the output directory,
+ * next to the {@code masks/} and {@code thumbnails/} it references. Masks and thumbnails keep each screenshot's relative path
+ * under those directories, so "login/form.png" and "login_form.png" don't share files.
+ * <p>
+ * Usage Example:
+ * <br>
+ * {@code java ... com.bottlerocket.visual.BatchVisualDiff screenshots/2024-01-01/mobile_screenshots screenshots/2024-01-02/mobile_screenshots build/visual-diff}
+ * <br>
+ * {@code BatchVisualDiff.Summary summary = new BatchVisualDiff(baseline, candidate, output).channelTolerance(8).run();}
+ */
+public class BatchVisualDiff {
+    public static final String TEMPLATE = "visualdiff/index.ftlh";
+    public static final String REPORT_FILE = "index.html";
+    public static final String MASKS_DIRECTORY = "masks";
+    public static final String THUMBNAILS_DIRECTORY = "thumbnails";
+
+    private static final List<String> IMAGE_EXTENSIONS = Arrays.asList(".png", ".jpg", ".jpeg", ".webp");
+
+    public enum Status {
+        /** Changed beyond the similarity threshold */
+        DIFFERENT,
+        /** Only in the baseline run */
+        MISSING,
+        /** Only in the candidate run */
+        NEW,
+        /** One of the files couldn't be read */
+        ERROR,
+        /** Changed, but within the similarity threshold */
+        SIMILAR,
+        /** Same pixels */
+        IDENTICAL
+    }
+
+    private final Path baselineDirectory;
+    private final Path candidateDirectory;
+    private final Path outputDirectory;
+    private int channelTolerance;
+    private double similarityThreshold = BaselineIndex.DEFAULT_SIMILARITY_THRESHOLD;
+    private int thumbnailSize = 240;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * @param baselineDirectory  the screenshot directory of the run to compare against
+     * @param candidateDirectory the screenshot directory of the run being checked
+     * @param outputDirectory    where the summary, masks and thumbnails are written
+     */
+    public BatchVisualDiff(Path baselineDirectory, Path candidateDirectory, Path outputDirectory) {
+        this.baselineDirectory = baselineDirectory;
+        this.candidateDirectory = candidateDirectory;
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * @param tolerance how far apart, 0-255, each channel of two pixels can be and still match
+     */
+    public BatchVisualDiff channelTolerance(int tolerance) {
+        this.channelTolerance = tolerance;
+        return this;
+    }
+
+    /**
+     * @param similarityThreshold the share of identical pixels, from 0 to 1, at which a changed screenshot is reported as similar rather than different
+     */
+    public BatchVisualDiff similarityThreshold(double similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+        return this;
+    }
+
+    /**
+     * @param thumbnailSize the largest width or height of the thumbnails in the summary
+     */
+    public BatchVisualDiff thumbnailSize(int thumbnailSize) {
+        this.thumbnailSize = thumbnailSize;
+        return this;
+    }
+
+    /**
+     * Use a specific pool instead of the common pool
+     */
+    public BatchVisualDiff usingPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Compare every pair and write the summary.
+     *
+     * @return the summary, also written as index.html in the output directory
+     * @throws IOException       if a screenshot directory can't be listed or the summary can't be written
+     * @throws TemplateException if there is an issue generating the HTML summary
+     */
+    public Summary run() throws IOException, TemplateException {
+        long startNanos = System.nanoTime();
+        Files.createDirectories(outputDirectory.resolve(MASKS_DIRECTORY));
+        Files.createDirectories(outputDirectory.resolve(THUMBNAILS_DIRECTORY));
+
+        TreeSet<String> names = new TreeSet<>(listImages(baselineDirectory));
+        names.addAll(listImages(candidateDirectory));
+        if (names.isEmpty()) {
+            Logger.log("No screenshots to compare in " + baselineDirectory + " or " + candidateDirectory +
+                    ". Stored screenshots are only compared through their names, check SCREENSHOT_NAMED_LINKS was on for both runs.");
+        }
+
+        List<Entry> entries;
+        try {
+            entries = pool.submit(() -> names.parallelStream().map(this::compare).collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted comparing screenshots", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error comparing screenshots", e.getCause());
+        }
+        entries.sort(Comparator.comparing(Entry::getStatus).thenComparingDouble(Entry::getSimilarity).thenComparing(Entry::getName));
+
+        Summary summary = new Summary(entries, (System.nanoTime() - startNanos) / 1_000_000, outputDirectory.resolve(REPORT_FILE));
+        writeReport(summary);
+        Logger.log(summary.toString());
+        return summary;
+    }
+
+    private List<String> listImages(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            throw new IOException(directory + " is not a directory");
+        }
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .map(file -> directory.relativize(file).toString().replace('\\', '/'))
+                    .filter(name -> !name.startsWith(ScreenshotStore.OBJECTS_DIRECTORY))
+                    .filter(name -> IMAGE_EXTENSIONS.stream().anyMatch(name.toLowerCase(Locale.ROOT)::endsWith))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Entry compare(String name) {
+        Path baseline = baselineDirectory.resolve(name);
+        Path candidate = candidateDirectory.resolve(name);
+        Entry entry = new Entry(name);
+        try {
+            if (!Files.exists(candidate)) {
+                entry.status = Status.MISSING;
+                entry.baselineThumbnail = thumbnail(Files.readAllBytes(baseline), name, "baseline");
+                return entry;
+            }
+            if (!Files.exists(baseline)) {
+                entry.status = Status.NEW;
+                entry.candidateThumbnail = thumbnail(Files.readAllBytes(candidate), name, "candidate");
+                return entry;
+            }
+
+            byte[] baselineBytes = Files.readAllBytes(baseline);
+            byte[] candidateBytes = Files.readAllBytes(candidate);
+            if (Arrays.equals(baselineBytes, candidateBytes)) {
+                entry.status = Status.IDENTICAL;
+                entry.similarity = 1;
+                return entry;
+            }
+
+            DiffResult diff = new ImageDiff().channelTolerance(channelTolerance).withMask().usingPool(pool)
+                    .compare(read(baselineBytes, baseline), read(candidateBytes, candidate));
+            entry.similarity = diff.getSimilarity();
+            entry.differentPixels = diff.getDifferentPixels();
+            entry.sameSize = diff.isSameSize();
+            if (diff.isIdentical()) {
+                entry.status = Status.IDENTICAL;
+                return entry;
+            }
+
+            entry.status = diff.getSimilarity() >= similarityThreshold ? Status.SIMILAR : Status.DIFFERENT;
+            Path mask = outputDirectory.resolve(MASKS_DIRECTORY).resolve(name + ".diff.png");
+            Files.createDirectories(mask.getParent());
+            diff.writeMask(mask.toFile());
+            entry.mask = relative(mask);
+            entry.baselineThumbnail = thumbnail(baselineBytes, name, "baseline");
+            entry.candidateThumbnail = thumbnail(candidateBytes, name, "candidate");
+            entry.maskThumbnail = thumbnail(Files.readAllBytes(mask), name, "mask");
+        } catch (IOException | RuntimeException e) {
+            ErrorHandler.printErr("Error comparing screenshot " + name, e);
+            entry.status = Status.ERROR;
+            entry.message = String.valueOf(e.getMessage());
+        }
+        return entry;
+    }
+
+    private static BufferedImage read(byte[] bytes, Path file) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+        if (image == null) {
+            throw new IOException("Unable to read " + file + " as an image");
+        }
+        return image;
+    }
+
+    private String thumbnail(byte[] image, String name, String kind) throws IOException {
+        Path thumbnail = outputDirectory.resolve(THUMBNAILS_DIRECTORY).resolve(name + "." + kind + ".png");
+        Files.createDirectories(thumbnail.getParent());
+        Files.write(thumbnail, new ScreenshotProfile(ScreenshotProfile.Format.PNG, 1, thumbnailSize, false).encode(image, null));
+        return relative(thumbnail);
+    }
+
+    private String relative(Path file) {
+        return outputDirectory.relativize(file).toString().replace('\\', '/');
+    }
+
+    private void writeReport(Summary summary) throws IOException, TemplateException {
+        Map<String, Object> templateMap = new HashMap<>();
+        templateMap.put("baseline", baselineDirectory.toAbsolutePath().toString());
+        templateMap.put("candidate", candidateDirectory.toAbsolutePath().toString());
+        templateMap.put("baselineUri", baselineDirectory.toAbsolutePath().toUri().toString());
+        templateMap.put("candidateUri", candidateDirectory.toAbsolutePath().toUri().toString());
+        templateMap.put("date", LocalDateTime.now().format(DateTimeFormatter.ofPattern("E, MMM dd yyyy HH:mm:ss")));
+        templateMap.put("threshold", String.format("%.2f%%", similarityThreshold * 100));
+        templateMap.put("summary", summary);
+        templateMap.put("changed", summary.getEntries().stream().filter(entry -> entry.getStatus() != Status.IDENTICAL).collect(Collectors.toList()));
+        templateMap.put("identical", summary.getEntries().stream().filter(entry -> entry.getStatus() == Status.IDENTICAL).collect(Collectors.toList()));
+
+        String html = new ExtentReportsAndTestCaseVerificationsBuilder().renderFreeMarkerTemplate(templateMap, TEMPLATE);
+        Files.writeString(summary.getReport(), html, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compare two run directories from the command line: baseline, candidate, then optionally the output directory (default build/visual-diff),
+     * the similarity threshold and the channel tolerance. Exits with 1 when any screenshot is different, missing, new or unreadable,
+     * or when there are no screenshots to compare.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || args[0].isEmpty() || args[1].isEmpty()) {
+            Logger.log("Usage: BatchVisualDiff <baseline directory> <candidate directory> [output directory] [similarity threshold] [channel tolerance]");
+            System.exit(2);
+        }
+
+        BatchVisualDiff batch = new BatchVisualDiff(Paths.get(args[0]), Paths.get(args[1]), Paths.get(args.length > 2 ? args[2] : "build/visual-diff"));
+        if (args.length > 3) {
+            batch.similarityThreshold(Double.parseDouble(args[3]));
+        }
+        if (args.length > 4) {
+            batch.channelTolerance(Integer.parseInt(args[4]));
+        }
+
+        Summary summary = batch.run();
+        Logger.log("Visual diff summary: " + summary.getReport().toAbsolutePath());
+        System.exit(summary.isPassed() ? 0 : 1);
+    }
+
+    /**
+     * One screenshot name and how it compares across the two runs. Paths are relative to the output directory.
+     */
+    public static class Entry {
+        private final String name;
+        private Status status;
+        private double similarity;
+        private long differentPixels;
+        private boolean sameSize = true;
+        private String mask;
+        private String baselineThumbnail;
+        private String candidateThumbnail;
+        private String maskThumbnail;
+        private String message;
+
+        Entry(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the share of identical pixels from 0 to 1, 0 for missing, new and unreadable screenshots
+         */
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        public String getSimilarityPercent() {
+            return String.format("%.3f%%", similarity * 100);
+        }
+
+        public long getDifferentPixels() {
+            return differentPixels;
+        }
+
+        public boolean isSameSize() {
+            return sameSize;
+        }
+
+        public String getMask() {
+            return mask;
+        }
+
+        public String getBaselineThumbnail() {
+            return baselineThumbnail;
+        }
+
+        public String getCandidateThumbnail() {
+            return candidateThumbnail;
+        }
+
+        public String getMaskThumbnail() {
+            return maskThumbnail;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * The outcome of a batch: every entry, most changed first, and the counts per status.
+     */
+    public static class Summary {
+        private final List<Entry> entries;
+        private final long elapsedMillis;
+        private final Path report;
+
+        Summary(List<Entry> entries, long elapsedMillis, Path report) {
+            this.entries = entries;
+            this.elapsedMillis = elapsedMillis;
+            this.report = report;
+        }
+
+        public List<Entry> getEntries() {
+            return entries;
+        }
+
+        public long count(Status status) {
+            return entries.stream().filter(entry -> entry.getStatus() == status).count();
+        }
+
+        public Map<String, Long> getCounts() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (Status status : Status.values()) {
+                counts.put(status.name(), count(status));
+            }
+            return counts;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public Path getReport() {
+            return report;
+        }
+
+        /**
+         * @return true if there were screenshots to compare and every one is identical or within the similarity threshold
+         */
+        public boolean isPassed() {
+            return !entries.isEmpty() && count(Status.DIFFERENT) + count(Status.MISSING) + count(Status.NEW) + count(Status.ERROR) == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Visual diff of " + entries.size() + " screenshots in " + elapsedMillis + " ms: " + getCounts();
+        }
+    }
+}
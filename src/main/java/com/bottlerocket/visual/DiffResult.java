@@ -0,0 +1,101 @@
+package com.bottlerocket.visual;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The outcome of an {@link ImageDiff} comparison.
+ */
+public class DiffResult {
+    private final int widthOne;
+    private final int heightOne;
+    private final int widthTwo;
+    private final int heightTwo;
+    private final long comparedPixels;
+    private final long differentPixels;
+    private final long ignoredPixels;
+    private final boolean stoppedEarly;
+    private final BufferedImage mask;
+
+    DiffResult(int widthOne, int heightOne, int widthTwo, int heightTwo, long comparedPixels, long differentPixels, long ignoredPixels,
+               boolean stoppedEarly, BufferedImage mask) {
+        this.widthOne = widthOne;
+        this.heightOne = heightOne;
+        this.widthTwo = widthTwo;
+        this.heightTwo = heightTwo;
+        this.comparedPixels = comparedPixels;
+        this.differentPixels = differentPixels;
+        this.ignoredPixels = ignoredPixels;
+        this.stoppedEarly = stoppedEarly;
+        this.mask = mask;
+    }
+
+    /**
+     * @return the share of compared pixels that match, from 0 to 1. Ignored pixels are left out, pixels outside the overlap of
+     * differently sized images count as different.
+     */
+    public double getSimilarity() {
+        return comparedPixels == 0 ? 1 : (double) (comparedPixels - differentPixels) / comparedPixels;
+    }
+
+    /**
+     * @return true if the images are the same size and every compared pixel matches
+     */
+    public boolean isIdentical() {
+        return isSameSize() && differentPixels == 0;
+    }
+
+    public boolean isSameSize() {
+        return widthOne == widthTwo && heightOne == heightTwo;
+    }
+
+    public long getComparedPixels() {
+        return comparedPixels;
+    }
+
+    public long getDifferentPixels() {
+        return differentPixels;
+    }
+
+    public long getIgnoredPixels() {
+        return ignoredPixels;
+    }
+
+    /**
+     * @return true if the comparison stopped at the {@link ImageDiff#stopAfter(long)} limit, the counts then only cover part of the images
+     */
+    public boolean isStoppedEarly() {
+        return stoppedEarly;
+    }
+
+    /**
+     * @return the overlap of the two images with differing pixels red, ignored pixels gray and matching pixels transparent,
+     * or null if the diff was not asked for a mask
+     */
+    public BufferedImage getMask() {
+        return mask;
+    }
+
+    /**
+     * Write the mask as a PNG.
+     *
+     * @throws IllegalStateException if the diff was not asked for a mask
+     */
+    public void writeMask(File file) throws IOException {
+        if (mask == null) {
+            throw new IllegalStateException("No diff mask was built, use ImageDiff.withMask()");
+        }
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        ImageIO.write(mask, "png", file);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.4f similar, %d of %d pixels different, %d ignored%s", getSimilarity(), differentPixels, comparedPixels,
+                ignoredPixels, isSameSize() ? "" : ", sizes differ (" + widthOne + "x" + heightOne + " and " + widthTwo + "x" + heightTwo + ")");
+    }
+}
@@ -0,0 +1,294 @@
+package com.bottlerocket.visual;
+
+import org.openqa.selenium.Rectangle;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares two images pixel by pixel, reading the raster data directly and splitting the rows into stripes across a {@link ForkJoinPool}.
+ * <br>
+ * Pixels match when every channel is within the channel tolerance. Ignore regions (clocks, carousels, ads) are left out of the comparison.
+ * With {@link #stopAfter(long)} the comparison stops as soon as that many pixels differ, which is all an identical-or-not check needs.
+ * With {@link #withMask()} the result has a mask image with the differing pixels in red and the ignored regions in gray.
+ * <p>
+ * Usage Example:
+ * <br>
+ * {@code DiffResult result = new ImageDiff().channelTolerance(8).ignore(clockRect).withMask().compare(baselineFile, screenshotFile);}
+ * <br>
+ * {@code if (result.getSimilarity() < 0.99) { result.writeMask(new File("diff.png")); }}
+ */
+public class ImageDiff {
+    private static final int MIN_STRIPE_ROWS = 32;
+
+    private final List<Rectangle> ignoreRegions = new ArrayList<>();
+    private int redTolerance;
+    private int greenTolerance;
+    private int blueTolerance;
+    private int alphaTolerance;
+    private long stopAfter = Long.MAX_VALUE;
+    private boolean mask;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * @param tolerance how far apart, 0-255, each channel of two pixels can be and still match
+     */
+    public ImageDiff channelTolerance(int tolerance) {
+        return channelTolerance(tolerance, tolerance, tolerance, tolerance);
+    }
+
+    public ImageDiff channelTolerance(int red, int green, int blue, int alpha) {
+        this.redTolerance = red;
+        this.greenTolerance = green;
+        this.blueTolerance = blue;
+        this.alphaTolerance = alpha;
+        return this;
+    }
+
+    /**
+     * Leave a region out of the comparison. Can be called more than once.
+     */
+    public ImageDiff ignore(Rectangle region) {
+        ignoreRegions.add(region);
+        return this;
+    }
+
+    /**
+     * Stop comparing once this many pixels differ. The result's counts are then lower bounds.
+     */
+    public ImageDiff stopAfter(long differentPixels) {
+        this.stopAfter = Math.max(1, differentPixels);
+        return this;
+    }
+
+    /**
+     * Build a mask image of the differences, see {@link DiffResult#getMask()}.
+     */
+    public ImageDiff withMask() {
+        this.mask = true;
+        return this;
+    }
+
+    /**
+     * Use a specific pool instead of the common pool, e.g. to keep diffs from competing with parallel tests.
+     */
+    public ImageDiff usingPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    public DiffResult compare(File imageOne, File imageTwo) throws IOException {
+        BufferedImage one = ImageIO.read(imageOne);
+        BufferedImage two = ImageIO.read(imageTwo);
+        if (one == null || two == null) {
+            throw new IOException("Unable to read " + (one == null ? imageOne : imageTwo) + " as an image");
+        }
+        return compare(one, two);
+    }
+
+    /**
+     * Compare the area the two images have in common. Pixels outside it, when the images differ in size, count as different.
+     */
+    public DiffResult compare(BufferedImage imageOne, BufferedImage imageTwo) {
+        int width = Math.min(imageOne.getWidth(), imageTwo.getWidth());
+        int height = Math.min(imageOne.getHeight(), imageTwo.getHeight());
+        long totalPixels = (long) Math.max(imageOne.getWidth(), imageTwo.getWidth()) * Math.max(imageOne.getHeight(), imageTwo.getHeight());
+        long outsideOverlap = totalPixels - (long) width * height;
+
+        BufferedImage maskImage = mask ? new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB) : null;
+        int[] maskPixels = maskImage != null ? ((DataBufferInt) maskImage.getRaster().getDataBuffer()).getData() : null;
+
+        Comparison comparison = new Comparison(PixelReader.of(imageOne), PixelReader.of(imageTwo), width, maskPixels, new AtomicLong(outsideOverlap));
+        int stripeRows = Math.max(MIN_STRIPE_ROWS, height / (pool.getParallelism() * 4));
+        long[] counts = pool.invoke(new Stripe(comparison, 0, height, stripeRows));
+
+        long different = counts[0] + outsideOverlap;
+        long ignored = counts[1];
+        long compared = counts[2] + outsideOverlap;
+        return new DiffResult(imageOne.getWidth(), imageOne.getHeight(), imageTwo.getWidth(), imageTwo.getHeight(),
+                compared, different, ignored, comparison.stoppedEarly, maskImage);
+    }
+
+    /**
+     * State shared by the stripes of one comparison.
+     */
+    private class Comparison {
+        private final PixelReader one;
+        private final PixelReader two;
+        private final int width;
+        private final int[] maskPixels;
+        private final AtomicLong differences;
+        private volatile boolean stoppedEarly;
+
+        Comparison(PixelReader one, PixelReader two, int width, int[] maskPixels, AtomicLong differences) {
+            this.one = one;
+            this.two = two;
+            this.width = width;
+            this.maskPixels = maskPixels;
+            this.differences = differences;
+        }
+
+        /**
+         * @return different, ignored and compared pixel counts for the rows
+         */
+        long[] compareRows(int fromRow, int toRow) {
+            int[] rowOne = new int[width];
+            int[] rowTwo = new int[width];
+            boolean[] ignoredRow = ignoreRegions.isEmpty() ? null : new boolean[width];
+            long different = 0;
+            long ignored = 0;
+            long compared = 0;
+
+            for (int y = fromRow; y < toRow; y++) {
+                if (differences.get() >= stopAfter) {
+                    stoppedEarly = true;
+                    break;
+                }
+
+                one.readRow(y, rowOne);
+                two.readRow(y, rowTwo);
+                boolean anyIgnored = markIgnored(y, ignoredRow);
+                int rowDifferences = 0;
+
+                for (int x = 0; x < width; x++) {
+                    if (anyIgnored && ignoredRow[x]) {
+                        ignored++;
+                        if (maskPixels != null) {
+                            maskPixels[y * width + x] = 0x80808080;
+                        }
+                        continue;
+                    }
+
+                    compared++;
+                    if (rowOne[x] != rowTwo[x] && !withinTolerance(rowOne[x], rowTwo[x])) {
+                        rowDifferences++;
+                        if (maskPixels != null) {
+                            maskPixels[y * width + x] = 0xFFFF0000;
+                        }
+                    }
+                }
+
+                different += rowDifferences;
+                if (rowDifferences > 0) {
+                    differences.addAndGet(rowDifferences);
+                }
+            }
+            return new long[]{different, ignored, compared};
+        }
+
+        private boolean markIgnored(int y, boolean[] ignoredRow) {
+            if (ignoredRow == null) {
+                return false;
+            }
+
+            boolean any = false;
+            Arrays.fill(ignoredRow, false);
+            for (Rectangle region : ignoreRegions) {
+                if (y >= region.getY() && y < region.getY() + region.getHeight()) {
+                    int from = Math.max(0, region.getX());
+                    int to = Math.min(width, region.getX() + region.getWidth());
+                    if (from < to) {
+                        Arrays.fill(ignoredRow, from, to, true);
+                        any = true;
+                    }
+                }
+            }
+            return any;
+        }
+    }
+
+    private boolean withinTolerance(int argbOne, int argbTwo) {
+        return Math.abs(((argbOne >>> 16) & 0xFF) - ((argbTwo >>> 16) & 0xFF)) <= redTolerance
+                && Math.abs(((argbOne >>> 8) & 0xFF) - ((argbTwo >>> 8) & 0xFF)) <= greenTolerance
+                && Math.abs((argbOne & 0xFF) - (argbTwo & 0xFF)) <= blueTolerance
+                && Math.abs((argbOne >>> 24) - (argbTwo >>> 24)) <= alphaTolerance;
+    }
+
+    private static class Stripe extends RecursiveTask<long[]> {
+        private final Comparison comparison;
+        private final int fromRow;
+        private final int toRow;
+        private final int stripeRows;
+
+        Stripe(Comparison comparison, int fromRow, int toRow, int stripeRows) {
+            this.comparison = comparison;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.stripeRows = stripeRows;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (toRow - fromRow <= stripeRows) {
+                return comparison.compareRows(fromRow, toRow);
+            }
+
+            int middle = (fromRow + toRow) >>> 1;
+            Stripe top = new Stripe(comparison, fromRow, middle, stripeRows);
+            top.fork();
+            long[] bottom = new Stripe(comparison, middle, toRow, stripeRows).compute();
+            long[] topCounts = top.join();
+            return new long[]{topCounts[0] + bottom[0], topCounts[1] + bottom[1], topCounts[2] + bottom[2]};
+        }
+    }
+
+    /**
+     * Reads a row of pixels as ARGB ints straight from the raster's data array for the common image types,
+     * and through a bulk {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)} otherwise.
+     */
+    interface PixelReader {
+        void readRow(int y, int[] row);
+
+        static PixelReader of(BufferedImage image) {
+            Raster raster = image.getRaster();
+            boolean untranslated = raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0;
+
+            if (untranslated && raster.getDataBuffer() instanceof DataBufferInt && raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+                    && (image.getType() == BufferedImage.TYPE_INT_ARGB || image.getType() == BufferedImage.TYPE_INT_RGB)) {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+                int opaque = image.getType() == BufferedImage.TYPE_INT_RGB ? 0xFF000000 : 0;
+                return (y, row) -> {
+                    System.arraycopy(data, y * stride, row, 0, row.length);
+                    if (opaque != 0) {
+                        for (int x = 0; x < row.length; x++) {
+                            row[x] |= opaque;
+                        }
+                    }
+                };
+            }
+
+            if (untranslated && raster.getDataBuffer() instanceof DataBufferByte && raster.getSampleModel() instanceof ComponentSampleModel
+                    && (image.getType() == BufferedImage.TYPE_3BYTE_BGR || image.getType() == BufferedImage.TYPE_4BYTE_ABGR)) {
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                boolean hasAlpha = image.getType() == BufferedImage.TYPE_4BYTE_ABGR;
+                int stride = ((ComponentSampleModel) raster.getSampleModel()).getScanlineStride();
+                return (y, row) -> {
+                    int i = y * stride;
+                    for (int x = 0; x < row.length; x++) {
+                        int alpha = hasAlpha ? data[i++] & 0xFF : 0xFF;
+                        int blue = data[i++] & 0xFF;
+                        int green = data[i++] & 0xFF;
+                        int red = data[i++] & 0xFF;
+                        row[x] = alpha << 24 | red << 16 | green << 8 | blue;
+                    }
+                };
+            }
+
+            return (y, row) -> image.getRGB(0, y, row.length, 1, row, 0, row.length);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.bottlerocket.visual;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * 64 bit perceptual hashes of an image. Similar looking images have hashes a small Hamming distance apart,
+ * so comparing two screenshots becomes an XOR and a bit count instead of a pixel diff.
+ * <br>
+ * dHash compares the brightness of neighbouring cells of a 9x8 grid and is sensitive to layout shifts.
+ * pHash keeps the signs of the lowest frequencies of a 32x32 DCT and is more robust to small rendering and compression noise.
+ * Both are computed from one box-averaged pass over the raster.
+ */
+public final class PerceptualHash {
+    private static final int DCT_SIZE = 32;
+    private static final int HASH_SIZE = 8;
+    private static final double[][] DCT_COEFFICIENTS = dctCoefficients();
+
+    private final long dHash;
+    private final long pHash;
+
+    private PerceptualHash(long dHash, long pHash) {
+        this.dHash = dHash;
+        this.pHash = pHash;
+    }
+
+    /**
+     * Compute both hashes of an image in one pass over its pixels.
+     */
+    public static PerceptualHash of(BufferedImage image) {
+        double[][] small = new double[HASH_SIZE][HASH_SIZE + 1];
+        double[][] large = new double[DCT_SIZE][DCT_SIZE];
+        downscaleGray(image, small, large);
+        return new PerceptualHash(dHash(small), pHash(large));
+    }
+
+    public static long dHash(BufferedImage image) {
+        return of(image).getDHash();
+    }
+
+    public static long pHash(BufferedImage image) {
+        return of(image).getPHash();
+    }
+
+    public long getDHash() {
+        return dHash;
+    }
+
+    public long getPHash() {
+        return pHash;
+    }
+
+    private static long dHash(double[][] gray) {
+        long hash = 0;
+        for (int y = 0; y < HASH_SIZE; y++) {
+            for (int x = 0; x < HASH_SIZE; x++) {
+                //compare whole luminance levels so a few stray pixels in a flat area don't flip the bit
+                hash = hash << 1 | (Math.round(gray[y][x]) < Math.round(gray[y][x + 1]) ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    private static long pHash(double[][] gray) {
+        //separable 2D DCT-II, only the 8x8 lowest frequencies are needed
+        double[][] rows = new double[DCT_SIZE][HASH_SIZE];
+        for (int y = 0; y < DCT_SIZE; y++) {
+            for (int u = 0; u < HASH_SIZE; u++) {
+                double sum = 0;
+                for (int x = 0; x < DCT_SIZE; x++) {
+                    sum += gray[y][x] * DCT_COEFFICIENTS[u][x];
+                }
+                rows[y][u] = sum;
+            }
+        }
+
+        double[] frequencies = new double[HASH_SIZE * HASH_SIZE];
+        for (int v = 0; v < HASH_SIZE; v++) {
+            for (int u = 0; u < HASH_SIZE; u++) {
+                double sum = 0;
+                for (int y = 0; y < DCT_SIZE; y++) {
+                    sum += rows[y][u] * DCT_COEFFICIENTS[v][y];
+                }
+                frequencies[v * HASH_SIZE + u] = sum;
+            }
+        }
+
+        //the DC term is the average brightness, leave it out of the median so it doesn't skew the bits
+        double[] acTerms = new double[frequencies.length - 1];
+        System.arraycopy(frequencies, 1, acTerms, 0, acTerms.length);
+        Arrays.sort(acTerms);
+        double median = (acTerms[acTerms.length / 2 - 1] + acTerms[acTerms.length / 2]) / 2;
+
+        long hash = 0;
+        for (double frequency : frequencies) {
+            hash = hash << 1 | (frequency > median ? 1 : 0);
+        }
+        return hash;
+    }
+
+    public static int hammingDistance(long hashOne, long hashTwo) {
+        return Long.bitCount(hashOne ^ hashTwo);
+    }
+
+    public static String toHex(long hash) {
+        return String.format("%016x", hash);
+    }
+
+    public static long fromHex(String hex) {
+        return Long.parseUnsignedLong(hex, 16);
+    }
+
+    /**
+     * Average the luminance of the pixels falling in each cell of both grids, reading the image once.
+     * Luminance is summed as integer thousandths of a level per cell and divided at the end.
+     */
+    private static void downscaleGray(BufferedImage image, double[][] small, double[][] large) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int smallWidth = small[0].length;
+        int largeWidth = large[0].length;
+
+        int[] smallColumn = new int[width];
+        int[] largeColumn = new int[width];
+        for (int x = 0; x < width; x++) {
+            smallColumn[x] = (int) ((long) x * smallWidth / width);
+            largeColumn[x] = (int) ((long) x * largeWidth / width);
+        }
+
+        long[] smallSums = new long[small.length * smallWidth];
+        long[] largeSums = new long[large.length * largeWidth];
+        long[] smallCounts = new long[smallSums.length];
+        long[] largeCounts = new long[largeSums.length];
+
+        ImageDiff.PixelReader reader = ImageDiff.PixelReader.of(image);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            reader.readRow(y, row);
+            int smallRow = (int) ((long) y * small.length / height) * smallWidth;
+            int largeRow = (int) ((long) y * large.length / height) * largeWidth;
+            for (int x = 0; x < width; x++) {
+                int argb = row[x];
+                int luminance = 299 * ((argb >>> 16) & 0xFF) + 587 * ((argb >>> 8) & 0xFF) + 114 * (argb & 0xFF);
+                int smallCell = smallRow + smallColumn[x];
+                int largeCell = largeRow + largeColumn[x];
+                smallSums[smallCell] += luminance;
+                smallCounts[smallCell]++;
+                largeSums[largeCell] += luminance;
+                largeCounts[largeCell]++;
+            }
+        }
+
+        average(smallSums, smallCounts, small);
+        average(largeSums, largeCounts, large);
+    }
+
+    private static void average(long[] sums, long[] counts, double[][] grid) {
+        int gridWidth = grid[0].length;
+        for (int i = 0; i < sums.length; i++) {
+            grid[i / gridWidth][i % gridWidth] = counts[i] == 0 ? 0 : sums[i] / 1000.0 / counts[i];
+        }
+    }
+
+    private static double[][] dctCoefficients() {
+        double[][] coefficients = new double[HASH_SIZE][DCT_SIZE];
+        for (int u = 0; u < HASH_SIZE; u++) {
+            for (int x = 0; x < DCT_SIZE; x++) {
+                coefficients[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2 * DCT_SIZE));
+            }
+        }
+        return coefficients;
+    }
+}
@@ -0,0 +1,86 @@
+package com.bottlerocket.visual;
+
+import java.nio.file.Path;
+
+/**
+ * The outcome of checking a screenshot against its baseline in a {@link BaselineIndex}.
+ */
+public class VisualCheck {
+    public enum Status {
+        /** There was no baseline, the screenshot became the baseline */
+        NEW_BASELINE,
+        /** Baselines are being updated, the screenshot replaced the baseline */
+        UPDATED_BASELINE,
+        /** The perceptual hashes were within the hash threshold, no pixel diff was needed */
+        MATCH_BY_HASH,
+        /** The hashes were too far apart but the pixel diff reached the similarity threshold */
+        MATCH_BY_PIXELS,
+        /** The pixel diff was below the similarity threshold */
+        DIFFERENT
+    }
+
+    private final String key;
+    private final Status status;
+    private final int hashDistance;
+    private final DiffResult diff;
+    private final Path failureImage;
+
+    VisualCheck(String key, Status status, int hashDistance, DiffResult diff, Path failureImage) {
+        this.key = key;
+        this.status = status;
+        this.hashDistance = hashDistance;
+        this.diff = diff;
+        this.failureImage = failureImage;
+    }
+
+    /**
+     * @return platform/test/step
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return true unless the screenshot is different from its baseline. A new or updated baseline counts as a match.
+     */
+    public boolean isMatch() {
+        return status != Status.DIFFERENT;
+    }
+
+    /**
+     * @return the larger of the dHash and pHash Hamming distances to the baseline, out of 64 bits
+     */
+    public int getHashDistance() {
+        return hashDistance;
+    }
+
+    /**
+     * @return the pixel diff, or null if none was run
+     */
+    public DiffResult getDiff() {
+        return diff;
+    }
+
+    /**
+     * @return the screenshot written to the failures directory when it is different, with the mask next to it as .diff.png, or null
+     */
+    public Path getFailureImage() {
+        return failureImage;
+    }
+
+    @Override
+    public String toString() {
+        String result = key + ": " + status + ", hash distance " + hashDistance;
+        if (diff != null) {
+            result += String.format(", %.4f similar", diff.getSimilarity());
+        }
+        if (failureImage != null) {
+            result += ", see " + failureImage;
+        }
+        return result;
+    }
+}
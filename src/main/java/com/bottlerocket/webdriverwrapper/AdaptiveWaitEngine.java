@@ -0,0 +1,64 @@
+package com.bottlerocket.webdriverwrapper;
+
+import org.openqa.selenium.support.ui.Sleeper;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Polls quickly for a short period, then backs off exponentially up to a maximum interval.
+ * <br>
+ * Most elements appear either almost immediately or after a noticeable delay. The fast phase catches the first case
+ * without waiting a full fixed interval, and the backoff keeps slow waits from flooding the driver with commands.
+ * A small random jitter is applied to backoff intervals so parallel sessions don't poll in lockstep.
+ */
+public class AdaptiveWaitEngine extends PollingWaitEngine {
+    static final double BACKOFF_MULTIPLIER = 1.5;
+    static final double JITTER = 0.2;
+
+    private final Duration fastPollInterval;
+    private final Duration fastPollPeriod;
+    private final Duration maxPollInterval;
+
+    public AdaptiveWaitEngine(Duration fastPollInterval, Duration fastPollPeriod, Duration maxPollInterval) {
+        this.fastPollInterval = fastPollInterval;
+        this.fastPollPeriod = fastPollPeriod;
+        this.maxPollInterval = maxPollInterval;
+    }
+
+    AdaptiveWaitEngine(Duration fastPollInterval, Duration fastPollPeriod, Duration maxPollInterval, Clock clock, Sleeper sleeper) {
+        super(clock, sleeper);
+        this.fastPollInterval = fastPollInterval;
+        this.fastPollPeriod = fastPollPeriod;
+        this.maxPollInterval = maxPollInterval;
+    }
+
+    @Override
+    protected Duration nextPollInterval(int pollCount, Duration elapsed) {
+        if (elapsed.compareTo(fastPollPeriod) < 0) {
+            return fastPollInterval;
+        }
+
+        double jitter = 1 + ThreadLocalRandom.current().nextDouble(-JITTER, JITTER);
+        return Duration.ofMillis(Math.round(backoffInterval(elapsed) * jitter));
+    }
+
+    /**
+     * The backoff interval before jitter, capped at the maximum interval. Starts at twice the fast interval when the fast period ends.
+     * <br>
+     * Sleeps that each grow by {@link #BACKOFF_MULTIPLIER} add up so that the next one is the first plus (multiplier - 1) times the time
+     * spent backing off, so the interval is worked out from the elapsed time rather than the poll count. The schedule then follows the clock
+     * however long each poll's round trip takes.
+     */
+    long backoffInterval(Duration elapsed) {
+        long backingOff = Math.max(0, elapsed.toMillis() - fastPollPeriod.toMillis());
+        double interval = Math.max(1, fastPollInterval.toMillis() * 2) + backingOff * (BACKOFF_MULTIPLIER - 1);
+        return (long) Math.min(interval, maxPollInterval.toMillis());
+    }
+
+    @Override
+    protected String getName() {
+        return "adaptive(" + fastPollInterval.toMillis() + " ms for " + fastPollPeriod.toMillis() + " ms, max " + maxPollInterval.toMillis() + " ms)";
+    }
+}
@@ -49,6 +49,20 @@ public abstract class AppiumDriverWrapper extends WebDriverWrapper {
     // LOCATOR FUNCTIONS
     public abstract WebElement findByAccessibilityId(String using);
 
+    /**
+     * Native screens are resolved against one download of the page source instead of a script,
+     * so XPath, id, accessibility id, class name and name locators cost a single round-trip in total.
+     */
+    @Override
+    protected Map<By, ElementState> resolveAllInOnePass(List<By> locators) {
+        return snapshot().resolveAll(locators);
+    }
+
+    @Override
+    protected boolean isPageSourceXml() {
+        return true;
+    }
+
     // ATTRIBUTE FUNCTIONS
     public String getElementContentDesc(WebElement element) {
         return element.getAttribute("contentDescription");
@@ -352,6 +366,17 @@ public abstract class AppiumDriverWrapper extends WebDriverWrapper {
 
     }
 
+    /**
+     * Start a {@link GestureQueue} that sends any number of taps, swipes and pauses to this session in one performActions call.
+     * <p>
+     * Usage Example:
+     * <br>
+     * {@code driverWrapper.gestures().swipe(500, 1500, 500, 500).swipe(500, 1500, 500, 500).tap(new Point(100, 200)).perform();}
+     */
+    public GestureQueue gestures() {
+        return new GestureQueue(this);
+    }
+
     public Rectangle getSwipeAreaBoundariesEqualToScreenSize() {
         return new Rectangle(
                 getDriver().manage().window().getPosition(),
@@ -937,6 +962,27 @@ public abstract class AppiumDriverWrapper extends WebDriverWrapper {
      */
     public abstract void activateApp(String bundleId);
 
+    /**
+     * Used to stop the app without removing its data
+     *
+     * @param bundleId, the bundle id (iOS) or package (Android) of the app
+     */
+    public abstract void terminateApp(String bundleId);
+
+    /**
+     * Native contexts have no window handle, so the health check asks for the current context instead.
+     */
+    @Override
+    public boolean isSessionHealthy() {
+        try {
+            getContext();
+            return true;
+        } catch (WebDriverException e) {
+            Logger.log("Session failed its health check: " + e.getMessage());
+            return false;
+        }
+    }
+
     public abstract void startRecording();
 
     public abstract void startRecording(BaseStartScreenRecordingOptions<? extends BaseStartScreenRecordingOptions<?>> options);
@@ -35,7 +35,7 @@ public class AppiumDriverWrapperAndroid extends AppiumDriverWrapper {
     protected AndroidDriver driver;
 
     public AppiumDriverWrapperAndroid(URL urlAddress, AutomationConfigProperties configProperties, int globalWaitInSeconds) {
-        super(new AndroidDriver(urlAddress, configProperties.capabilities), globalWaitInSeconds);
+        super(new AndroidDriver(urlAddress, SharedHttpClientFactory.getShared(configProperties), configProperties.capabilities), globalWaitInSeconds);
     }
 
     public AppiumDriverWrapperAndroid(AutomationConfigProperties config) throws WebDriverWrapperException {
@@ -159,7 +159,9 @@ public class AppiumDriverWrapperAndroid extends AppiumDriverWrapper {
 
     @Override
     public WebDriver context(String name) {
-        return getDriver().context(name);
+        WebDriver driver = getDriver().context(name);
+        getElementCache().switchedToContext(name);
+        return driver;
     }
 
     @Override
@@ -228,6 +230,11 @@ public class AppiumDriverWrapperAndroid extends AppiumDriverWrapper {
         driver.activateApp(bundleId);
     }
 
+    @Override
+    public void terminateApp(String bundleId) {
+        driver.terminateApp(bundleId);
+    }
+
     @Override
     public void startRecording() {
         driver.startRecordingScreen();
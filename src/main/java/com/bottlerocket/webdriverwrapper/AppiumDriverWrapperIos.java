@@ -32,7 +32,7 @@ public class AppiumDriverWrapperIos extends AppiumDriverWrapper {
     protected IOSDriver driver;
 
     public AppiumDriverWrapperIos(URL urlAddress, AutomationConfigProperties configProperties, int globalWaitInSeconds) {
-        super(new IOSDriver(urlAddress, configProperties.capabilities), globalWaitInSeconds);
+        super(new IOSDriver(urlAddress, SharedHttpClientFactory.getShared(configProperties), configProperties.capabilities), globalWaitInSeconds);
     }
 
     public AppiumDriverWrapperIos(AutomationConfigProperties config) throws WebDriverWrapperException {
@@ -90,6 +90,7 @@ public class AppiumDriverWrapperIos extends AppiumDriverWrapper {
     }
 
     public void back() {
+        getElementCache().invalidate();
         findByAccessibilityId("Back").click();
     }
 
@@ -97,6 +98,7 @@ public class AppiumDriverWrapperIos extends AppiumDriverWrapper {
      * Is there a reason these simple methods are only in iOS?
      */
     public void close() {
+        getElementCache().invalidate();
         findByAccessibilityId("Close").click();
     }
 
@@ -320,6 +322,7 @@ public class AppiumDriverWrapperIos extends AppiumDriverWrapper {
         driver.activateApp(bundleId);
     }
 
+    @Override
     public void terminateApp(String bundleId) {
         driver.terminateApp(bundleId);
 
@@ -0,0 +1,81 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.utils.Logger;
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpClientName;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the commands of local browser sessions with the global {@link CommandTracer}.
+ * <br>
+ * The local browser drivers (ChromeDriver, FirefoxDriver...) build their HTTP client with Selenium's default client factory, which is looked up
+ * by the name in the webdriver.http.factory system property. {@link #install()} puts this factory's name there, so local sessions keep their own
+ * driver class, with DevTools and the driver service they would normally start, and their commands still go through the tracer.
+ * Clients are created by the implementation the property named before, Selenium's "netty" client if it wasn't set.
+ * <br>
+ * Selenium looks the default factory up once, for the first session created in the JVM. A local session created before tracing was turned on
+ * fixes the default factory for the rest of the run, in which case start the JVM with -Dwebdriver.http.factory=bottlerocket-command-trace.
+ * <br>
+ * Registered in META-INF/services, which is how Selenium finds client factories by name.
+ */
+@HttpClientName(CommandTraceHttpClientFactory.NAME)
+public class CommandTraceHttpClientFactory implements HttpClient.Factory {
+    public static final String NAME = "bottlerocket-command-trace";
+    public static final String FACTORY_PROPERTY = "webdriver.http.factory";
+
+    private static volatile String delegateName = "netty";
+    private static final AtomicLong clientsCreated = new AtomicLong();
+
+    private volatile HttpClient.Factory delegate;
+
+    /**
+     * Make this the default HTTP client factory for local sessions created from now on.
+     */
+    public static synchronized void install() {
+        String current = System.getProperty(FACTORY_PROPERTY);
+        if (NAME.equals(current)) {
+            return;
+        }
+
+        if (current != null && !current.isEmpty()) {
+            delegateName = current;
+        }
+        System.setProperty(FACTORY_PROPERTY, NAME);
+        Logger.log("Tracing the commands of local browser sessions, sent with the " + delegateName + " HTTP client.");
+    }
+
+    /**
+     * @return Selenium's default client factory without tracing, the one it would use if {@link #install()} hadn't been called
+     */
+    public static HttpClient.Factory createUntracedDefault() {
+        return NAME.equals(System.getProperty(FACTORY_PROPERTY)) ? HttpClient.Factory.create(delegateName) : HttpClient.Factory.createDefault();
+    }
+
+    /**
+     * @return the number of clients created by every instance, i.e. the local sessions that are traced
+     */
+    public static long getClientsCreated() {
+        return clientsCreated.get();
+    }
+
+    @Override
+    public HttpClient createClient(ClientConfig config) {
+        clientsCreated.incrementAndGet();
+        return delegate().createClient(config.withFilter(CommandTracer.getGlobal().filter()));
+    }
+
+    @Override
+    public void cleanupIdleClients() {
+        delegate().cleanupIdleClients();
+    }
+
+    //created on first use, Selenium instantiates every registered factory each time it looks one up by name
+    private HttpClient.Factory delegate() {
+        if (delegate == null) {
+            delegate = HttpClient.Factory.create(delegateName);
+        }
+        return delegate;
+    }
+}
@@ -0,0 +1,46 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.config.AutomationConfigProperties;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+/**
+ * Traces the WebDriver commands of each TestNG test with the global {@link CommandTracer} and writes one trace file per test
+ * to the "traces" folder of the report output directory.
+ * <br>
+ * Add it to the suite's listeners and set COMMAND_TRACE=true. Without COMMAND_TRACE the tracer's filter is not installed
+ * and nothing is recorded.
+ * <p>
+ * Usage Example:
+ * <br>
+ * {@code <listeners><listener class-name="com.bottlerocket.webdriverwrapper.CommandTraceListener"/></listeners>}
+ */
+public class CommandTraceListener implements ITestListener {
+    public static final String DEFAULT_TRACE_DIRECTORY = "build/traces";
+
+    @Override
+    public void onTestStart(ITestResult result) {
+        CommandTracer.getGlobal().startTest(result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName());
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        endTest();
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        endTest();
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        endTest();
+    }
+
+    private static void endTest() {
+        AutomationConfigProperties config = SessionContext.current().getConfig();
+        String directory = config != null && config.reportOutputDirectory != null ? config.reportOutputDirectory + "/traces" : DEFAULT_TRACE_DIRECTORY;
+        CommandTracer.getGlobal().endTest(directory);
+    }
+}
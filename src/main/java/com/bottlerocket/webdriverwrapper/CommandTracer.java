@@ -0,0 +1,244 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.utils.ErrorHandler;
+import com.bottlerocket.utils.Logger;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.Filter;
+import org.openqa.selenium.remote.http.HttpHandler;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records every WebDriver command sent by the framework's sessions and writes them per test as Chrome Trace Event JSON,
+ * which can be opened in Perfetto (ui.perfetto.dev) or chrome://tracing to see where a slow test spends its time.
+ * <br>
+ * Each command is recorded with its name (e.g. "POST /element"), locator for find commands, start time, duration, thread,
+ * request and response size and HTTP status.
+ * <br>
+ * Tracing is turned on with COMMAND_TRACE, which adds {@link #filter()} to the {@link SharedHttpClientFactory} used by remote sessions and to the
+ * {@link CommandTraceHttpClientFactory} used by local browser sessions. When it is off the filter is not installed at all.
+ * Commands are only recorded on threads between {@link #startTest(String)} and {@link #endTest(String)},
+ * {@link CommandTraceListener} does this for every TestNG test.
+ */
+public class CommandTracer {
+    public static final String TRACE_FILE_SUFFIX = ".trace.json";
+
+    private static final CommandTracer GLOBAL = new CommandTracer();
+
+    private final ThreadLocal<TestTrace> currentTest = new ThreadLocal<>();
+
+    /**
+     * @return the tracer used by the shared HTTP client factory
+     */
+    public static CommandTracer getGlobal() {
+        return GLOBAL;
+    }
+
+    /**
+     * @return an HTTP filter that records each command sent on a thread with a test in progress
+     */
+    public Filter filter() {
+        return next -> request -> trace(next, request);
+    }
+
+    private HttpResponse trace(HttpHandler next, HttpRequest request) {
+        TestTrace trace = currentTest.get();
+        if (trace == null) {
+            return next.execute(request);
+        }
+
+        long startMicros = nowMicros();
+        long startNanos = System.nanoTime();
+        Map<String, Object> args = new LinkedHashMap<>();
+        try {
+            HttpResponse response = next.execute(request);
+            args.put("status", response.getStatus());
+            String responseLength = response.getHeader("Content-Length");
+            if (responseLength != null) {
+                args.put("responseBytes", Long.parseLong(responseLength));
+            }
+            return response;
+        } catch (RuntimeException e) {
+            args.put("error", e.getClass().getSimpleName() + ": " + e.getMessage());
+            throw e;
+        } finally {
+            describeRequest(request, args);
+            trace.add(new TraceEvent(commandName(request.getMethod(), request.getUri()), startMicros,
+                    (System.nanoTime() - startNanos) / 1000, Thread.currentThread(), args));
+        }
+    }
+
+    private static void describeRequest(HttpRequest request, Map<String, Object> args) {
+        if (request.getMethod() != HttpMethod.POST) {
+            return;
+        }
+
+        byte[] body = Contents.bytes(request.getContent());
+        args.put("requestBytes", body.length);
+        if (request.getUri().endsWith("/element") || request.getUri().endsWith("/elements")) {
+            try {
+                Map<String, Object> payload = new Json().toType(new String(body, StandardCharsets.UTF_8), Json.MAP_TYPE);
+                args.put("locator", payload.get("using") + ": " + payload.get("value"));
+            } catch (JsonException e) {
+                //not a W3C find payload, leave the locator out
+            }
+        }
+    }
+
+    /**
+     * Start recording commands sent from this thread.
+     *
+     * @param testName used as the trace file name
+     */
+    public void startTest(String testName) {
+        currentTest.set(new TestTrace(testName));
+    }
+
+    public boolean isTracing() {
+        return currentTest.get() != null;
+    }
+
+    /**
+     * Stop recording on this thread and write the trace as {@code <testName>.trace.json} in the given directory.
+     * Errors are logged rather than thrown, this is meant to be called from teardown.
+     *
+     * @return the trace file, or null if no test was being traced or nothing was recorded
+     */
+    public File endTest(String directory) {
+        TestTrace trace = currentTest.get();
+        currentTest.remove();
+        if (trace == null || trace.events.isEmpty()) {
+            return null;
+        }
+
+        File file = new File(directory, trace.testName.replaceAll("[^A-Za-z0-9._-]", "_") + TRACE_FILE_SUFFIX);
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), toChromeTrace(trace.events).getBytes(StandardCharsets.UTF_8));
+            Logger.log("Command trace for " + trace.testName + " written to " + file.getPath());
+            return file;
+        } catch (IOException e) {
+            ErrorHandler.printErr("Unable to write the command trace to " + file.getPath(), e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the events in the Chrome Trace Event format: one complete ("X") event per command and a name for each thread
+     */
+    static String toChromeTrace(List<TraceEvent> events) {
+        List<Map<String, Object>> traceEvents = new ArrayList<>();
+        Set<Long> namedThreads = new LinkedHashSet<>();
+        for (TraceEvent event : events) {
+            if (namedThreads.add(event.threadId)) {
+                Map<String, Object> threadName = new LinkedHashMap<>();
+                threadName.put("name", "thread_name");
+                threadName.put("ph", "M");
+                threadName.put("pid", 1);
+                threadName.put("tid", event.threadId);
+                threadName.put("args", Collections.singletonMap("name", event.threadName));
+                traceEvents.add(threadName);
+            }
+
+            Map<String, Object> complete = new LinkedHashMap<>();
+            complete.put("name", event.name);
+            complete.put("cat", "webdriver");
+            complete.put("ph", "X");
+            complete.put("ts", event.startMicros);
+            complete.put("dur", event.durationMicros);
+            complete.put("pid", 1);
+            complete.put("tid", event.threadId);
+            complete.put("args", event.args);
+            traceEvents.add(complete);
+        }
+
+        Map<String, Object> trace = new LinkedHashMap<>();
+        trace.put("traceEvents", traceEvents);
+        trace.put("displayTimeUnit", "ms");
+        return new Json().toJson(trace);
+    }
+
+    /**
+     * Name a command by its method and path with the session and element ids removed, e.g. "GET /element/{id}/text".
+     */
+    static String commandName(HttpMethod method, String uri) {
+        String path = uri.contains("?") ? uri.substring(0, uri.indexOf('?')) : uri;
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+
+        //"session/<id>" prefixes every command except new session, and is the whole path for delete session.
+        //Anything before it is the server's base path, e.g. "/wd/hub"
+        int session = segments.indexOf("session");
+        if (session >= 0 && segments.size() > session + 2) {
+            segments = segments.subList(session + 2, segments.size());
+        } else if (session >= 0 && segments.size() == session + 2) {
+            segments = new ArrayList<>(segments.subList(session, segments.size()));
+            segments.set(1, "{id}");
+        } else if (session >= 0) {
+            segments = segments.subList(session, segments.size());
+        }
+
+        StringBuilder name = new StringBuilder(method.toString()).append(' ');
+        for (int i = 0; i < segments.size(); i++) {
+            boolean isElementId = i > 0 && (segments.get(i - 1).equals("element") || segments.get(i - 1).equals("shadow")) && !segments.get(i).equals("active");
+            name.append('/').append(isElementId ? "{id}" : segments.get(i));
+        }
+        return name.toString();
+    }
+
+    private static long nowMicros() {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+    }
+
+    private static class TestTrace {
+        private final String testName;
+        private final List<TraceEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+        TestTrace(String testName) {
+            this.testName = testName;
+        }
+
+        void add(TraceEvent event) {
+            events.add(event);
+        }
+    }
+
+    static class TraceEvent {
+        private final String name;
+        private final long startMicros;
+        private final long durationMicros;
+        private final long threadId;
+        private final String threadName;
+        private final Map<String, Object> args;
+
+        TraceEvent(String name, long startMicros, long durationMicros, Thread thread, Map<String, Object> args) {
+            this.name = name;
+            this.startMicros = startMicros;
+            this.durationMicros = durationMicros;
+            this.threadId = thread.getId();
+            this.threadName = thread.getName();
+            this.args = args;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.config.AutomationConfigProperties;
+import com.bottlerocket.errorhandling.WebDriverWrapperException;
+import com.bottlerocket.utils.ErrorHandler;
+import com.bottlerocket.utils.Logger;
+import org.openqa.selenium.WebDriverException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of driver sessions created in the background from one config and leased to tests.
+ * <br>
+ * Creating a driver takes 10-60 seconds, most of it in the Appium or browser session start. The pool pays that cost once per session
+ * instead of once per test class: a returned session is reset with the {@link SessionResetPolicy} and handed to the next test.
+ * Sessions that fail the health check, fail to reset or are older than the max age are quit and replaced.
+ * {@link #checkIdleSessions()} does the same for idle sessions, for callers that check on a schedule.
+ * <p>
+ * Usage Example:
+ * <br>
+ * {@code DriverSessionPool pool = new DriverSessionPool(config); pool.start();}
+ * <br>
+ * {@code WebDriverWrapper driverWrapper = pool.lease();}
+ * <br>
+ * {@code try { ... } finally { pool.release(driverWrapper); }}
+ * <br>
+ * A leased wrapper's {@link SessionContext} is bound to the leasing thread until it is released.
+ */
+public class DriverSessionPool implements AutoCloseable {
+    private final AutomationConfigProperties config;
+    private final int size;
+    private final Duration maxAge;
+    private final Duration leaseTimeout;
+    private final SessionResetPolicy resetPolicy;
+    private final SessionFactory sessionFactory;
+
+    private final BlockingQueue<PooledSession> idle = new LinkedBlockingQueue<>();
+    private final Map<WebDriverWrapper, PooledSession> leased = new ConcurrentHashMap<>();
+    private final ExecutorService starter;
+    private final AtomicInteger starting = new AtomicInteger();
+    //sessions started or starting and not yet quit, never more than size
+    private final AtomicInteger sessions = new AtomicInteger();
+    private volatile boolean closed;
+
+    private final LatencyHistogram leaseWait = new LatencyHistogram();
+    private final LatencyHistogram sessionStart = new LatencyHistogram();
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong reusedLeases = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong startFailures = new AtomicLong();
+
+    /**
+     * Creates driver wrappers for the pool. {@link WebDriverWrapper#createDriverWrapper(AutomationConfigProperties)} by default.
+     */
+    public interface SessionFactory {
+        WebDriverWrapper create(AutomationConfigProperties config) throws Exception;
+
+        /**
+         * Check a session before it is leased and after it is reset.
+         */
+        default boolean isHealthy(WebDriverWrapper driverWrapper) {
+            return driverWrapper.isSessionHealthy();
+        }
+
+        /**
+         * End a session that is evicted or left over when the pool closes.
+         */
+        default void destroy(WebDriverWrapper driverWrapper) {
+            driverWrapper.quit();
+        }
+    }
+
+    /**
+     * Create a pool sized and configured from SESSION_POOL_SIZE, SESSION_POOL_MAX_AGE, SESSION_POOL_LEASE_TIMEOUT and SESSION_RESET.
+     */
+    public DriverSessionPool(AutomationConfigProperties config) {
+        this(config, config.sessionPoolSize, Duration.ofMinutes(config.sessionPoolMaxAgeMinutes), Duration.ofSeconds(config.sessionPoolLeaseTimeoutSeconds),
+                SessionResetPolicy.fromConfig(config), WebDriverWrapper::createDriverWrapper);
+    }
+
+    public DriverSessionPool(AutomationConfigProperties config, int size, Duration maxAge, Duration leaseTimeout, SessionResetPolicy resetPolicy, SessionFactory sessionFactory) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The session pool needs at least one session, size was " + size);
+        }
+
+        this.config = config;
+        this.size = size;
+        this.maxAge = maxAge;
+        this.leaseTimeout = leaseTimeout;
+        this.resetPolicy = resetPolicy;
+        this.sessionFactory = sessionFactory;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.starter = Executors.newFixedThreadPool(size, runnable -> {
+            Thread thread = new Thread(runnable, "driver-session-pool-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start creating every session in the background. Returns immediately, {@link #lease()} blocks until a session is ready.
+     */
+    public void start() {
+        for (int i = sessions.get(); i < size; i++) {
+            startSession();
+        }
+    }
+
+    /**
+     * Start a session in the background unless the pool already has its size of sessions.
+     */
+    private void startSession() {
+        if (closed || sessions.getAndUpdate(count -> count < size ? count + 1 : count) >= size) {
+            return;
+        }
+
+        starting.incrementAndGet();
+        starter.submit(() -> {
+            long startNanos = System.nanoTime();
+            try {
+                //each session gets its own context so pooled wrappers don't share the pool thread's global one
+                WebDriverWrapper driverWrapper = SessionContext.callWith(new SessionContext(), () -> {
+                    try {
+                        return sessionFactory.create(config);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                sessionStart.record((System.nanoTime() - startNanos) / 1000);
+                if (closed) {
+                    quit(driverWrapper);
+                } else {
+                    idle.add(new PooledSession(driverWrapper));
+                }
+            } catch (RuntimeException e) {
+                sessions.decrementAndGet();
+                startFailures.incrementAndGet();
+                ErrorHandler.printErr("Unable to start a pooled driver session", e);
+            } finally {
+                starting.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Lease a session, waiting up to the pool's lease timeout for one to become available.
+     *
+     * @throws WebDriverWrapperException if no healthy session becomes available in time
+     */
+    public WebDriverWrapper lease() throws WebDriverWrapperException {
+        return lease(leaseTimeout);
+    }
+
+    public WebDriverWrapper lease(Duration timeout) throws WebDriverWrapperException {
+        if (closed) {
+            throw new WebDriverWrapperException("The driver session pool is closed");
+        }
+
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + timeout.toNanos();
+        try {
+            while (true) {
+                long remaining = deadline - System.nanoTime();
+                if (idle.isEmpty() && starting.get() == 0) {
+                    //a start failed, try again rather than waiting out the timeout
+                    startSession();
+                }
+
+                PooledSession session = idle.poll(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+                if (session == null) {
+                    throw new WebDriverWrapperException("No driver session became available within " + timeout.toSeconds() + " seconds. " + this);
+                }
+
+                if (session.isExpired(maxAge) || !sessionFactory.isHealthy(session.driverWrapper)) {
+                    evict(session);
+                    continue;
+                }
+
+                session.leaseCount++;
+                leases.incrementAndGet();
+                if (session.leaseCount > 1) {
+                    reusedLeases.incrementAndGet();
+                }
+                leased.put(session.driverWrapper, session);
+                SessionContext.bind(session.driverWrapper.getSessionContext());
+                return session.driverWrapper;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverWrapperException("Interrupted while waiting for a driver session", e);
+        } finally {
+            leaseWait.record((System.nanoTime() - startNanos) / 1000);
+        }
+    }
+
+    /**
+     * Return a leased session. It is reset and made available to the next lease, or replaced if it can't be reset or is too old.
+     */
+    public void release(WebDriverWrapper driverWrapper) {
+        PooledSession session = leased.remove(driverWrapper);
+        if (session == null) {
+            Logger.log("Released a driver session that was not leased from this pool, ignoring it.");
+            return;
+        }
+
+        if (SessionContext.current() == driverWrapper.getSessionContext()) {
+            SessionContext.unbind();
+        }
+
+        if (closed || session.isExpired(maxAge) || resetPolicy == SessionResetPolicy.NEW_SESSION) {
+            evict(session);
+            return;
+        }
+
+        try {
+            resetPolicy.reset(driverWrapper);
+        } catch (Exception e) {
+            ErrorHandler.printErr("Unable to reset the pooled driver session, replacing it", e);
+            evict(session);
+            return;
+        }
+
+        if (!sessionFactory.isHealthy(driverWrapper)) {
+            evict(session);
+            return;
+        }
+
+        idle.add(session);
+    }
+
+    /**
+     * Health check the idle sessions and replace the ones that crashed or are too old, so the next lease doesn't have to.
+     * Leased sessions are checked when they are released. A lease waits while the session it would get is being checked.
+     *
+     * @return the number of sessions replaced
+     */
+    public int checkIdleSessions() {
+        int replaced = 0;
+        for (int i = idle.size(); i > 0 && !closed; i--) {
+            PooledSession session = idle.poll();
+            if (session == null) {
+                break;
+            }
+
+            if (session.isExpired(maxAge) || !sessionFactory.isHealthy(session.driverWrapper)) {
+                evict(session);
+                replaced++;
+            } else if (closed) {
+                quit(session.driverWrapper);
+            } else {
+                idle.add(session);
+            }
+        }
+        return replaced;
+    }
+
+    /**
+     * Quit a leased session and start a replacement, e.g. after a test leaves the driver in a state the reset policy can't recover from.
+     */
+    public void evict(WebDriverWrapper driverWrapper) {
+        PooledSession session = leased.remove(driverWrapper);
+        if (SessionContext.current() == driverWrapper.getSessionContext()) {
+            SessionContext.unbind();
+        }
+        evict(session != null ? session : new PooledSession(driverWrapper));
+    }
+
+    private void evict(PooledSession session) {
+        evictions.incrementAndGet();
+        quit(session.driverWrapper);
+        sessions.decrementAndGet();
+        startSession();
+    }
+
+    private void quit(WebDriverWrapper driverWrapper) {
+        try {
+            sessionFactory.destroy(driverWrapper);
+        } catch (WebDriverException e) {
+            Logger.log("Unable to quit the pooled driver session, it may already be gone: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Quit every session, including leased ones.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        starter.shutdownNow();
+
+        List<PooledSession> sessions = new ArrayList<>(leased.values());
+        leased.clear();
+        idle.drainTo(sessions);
+        for (PooledSession session : sessions) {
+            quit(session.driverWrapper);
+        }
+        Logger.log(toString());
+    }
+
+    //===== METRICS =====
+
+    /**
+     * @return how long each lease waited for a session, in microseconds
+     */
+    public LatencyHistogram getLeaseWait() {
+        return leaseWait;
+    }
+
+    /**
+     * @return how long each session took to start, in microseconds
+     */
+    public LatencyHistogram getSessionStart() {
+        return sessionStart;
+    }
+
+    public long getLeaseCount() {
+        return leases.get();
+    }
+
+    /**
+     * @return the number of leases that got a session an earlier test had already used, i.e. the session starts that were saved
+     */
+    public long getReusedLeaseCount() {
+        return reusedLeases.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getStartFailureCount() {
+        return startFailures.get();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getLeasedCount() {
+        return leased.size();
+    }
+
+    @Override
+    public String toString() {
+        return "Driver session pool: " + idle.size() + " idle, " + leased.size() + " leased, " + starting.get() + " starting. " +
+                leases.get() + " leases (" + reusedLeases.get() + " reused), lease wait p50 " + leaseWait.getPercentile(50) / 1000 +
+                " ms p95 " + leaseWait.getPercentile(95) / 1000 + " ms, " + evictions.get() + " evicted, " + startFailures.get() + " failed to start";
+    }
+
+    private static class PooledSession {
+        private final WebDriverWrapper driverWrapper;
+        private final Instant createdAt = Instant.now();
+        private int leaseCount;
+
+        PooledSession(WebDriverWrapper driverWrapper) {
+            this.driverWrapper = driverWrapper;
+        }
+
+        boolean isExpired(Duration maxAge) {
+            return Duration.between(createdAt, Instant.now()).compareTo(maxAge) > 0;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.bottlerocket.webdriverwrapper;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.interactions.Locatable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Opt-in cache of {@link WebElement} references, keyed by locator and the current window, frame and context.
+ * <br>
+ * Elements handed out by the cache are proxies. If the underlying element goes stale the proxy finds it again with the same locator
+ * and retries the call once, so callers holding a cached element never see a {@link StaleElementReferenceException} for an element
+ * that is still on the page.
+ * <br>
+ * {@link WebDriverWrapper} clears the cache whenever the page or the scope changes (navigation, refresh, back, forward, and switching window, frame or context).
+ * Switches made directly on the driver are not tracked, so use the wrapper methods when the cache is enabled.
+ * <br>
+ * The cache also holds the {@link PageSnapshot} used by the fast probes ({@link WebDriverWrapper#isElementPresentNow(By, boolean)}).
+ * That is cleared at the same points, whether or not element caching is enabled.
+ */
+public class ElementCache {
+    private final Map<String, WebElement> elements = new HashMap<>();
+    private final Supplier<? extends SearchContext> searchContext;
+    private boolean enabled;
+
+    private String window = "";
+    private final List<String> framePath = new ArrayList<>();
+    private String context = "";
+    private PageSnapshot pageSnapshot;
+
+    private long hits;
+    private long misses;
+    private long reResolves;
+    private long invalidations;
+
+    /**
+     * @param searchContext supplies the context used to find stale elements again, usually the wrapper's driver
+     */
+    public ElementCache(Supplier<? extends SearchContext> searchContext) {
+        this.searchContext = searchContext;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            elements.clear();
+        }
+    }
+
+    /**
+     * @return the cached element for the locator in the current scope, or null if it is not cached or the cache is disabled
+     */
+    public WebElement get(By by) {
+        if (!enabled) {
+            return null;
+        }
+
+        WebElement element = elements.get(key(by));
+        if (element == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return element;
+    }
+
+    /**
+     * Cache an element found with the given locator in the current scope.
+     *
+     * @return the element to hand back to the caller. This is a re-resolving proxy when the cache is enabled, otherwise the element itself.
+     */
+    public WebElement put(By by, WebElement element) {
+        if (!enabled || element == null) {
+            return element;
+        }
+
+        WebElement cached = element instanceof CachedElement ? element : (WebElement) Proxy.newProxyInstance(
+                ElementCache.class.getClassLoader(),
+                new Class<?>[]{WebElement.class, WrapsElement.class, Locatable.class, TakesScreenshot.class, CachedElement.class},
+                new ReResolvingHandler(by, element));
+        elements.put(key(by), cached);
+        return cached;
+    }
+
+    public void remove(By by) {
+        elements.remove(key(by));
+    }
+
+    /**
+     * Drop every cached element. Called when the page changes.
+     */
+    public void invalidate() {
+        pageSnapshot = null;
+        if (!elements.isEmpty()) {
+            invalidations++;
+            elements.clear();
+        }
+    }
+
+    /**
+     * @return the snapshot cached for the current page and scope, or null if none has been cached
+     */
+    public PageSnapshot getPageSnapshot() {
+        return pageSnapshot;
+    }
+
+    public void setPageSnapshot(PageSnapshot pageSnapshot) {
+        this.pageSnapshot = pageSnapshot;
+    }
+
+    void switchedToWindow(String windowHandle) {
+        window = windowHandle;
+        framePath.clear();
+        invalidate();
+    }
+
+    void switchedToFrame(String frame) {
+        framePath.add(frame);
+        invalidate();
+    }
+
+    void switchedToDefaultContent() {
+        framePath.clear();
+        invalidate();
+    }
+
+    void switchedToContext(String contextName) {
+        context = contextName;
+        framePath.clear();
+        invalidate();
+    }
+
+    private String key(By by) {
+        return window + "|" + String.join("/", framePath) + "|" + context + "|" + by;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of times a cached element went stale and was found again
+     */
+    public long getReResolves() {
+        return reResolves;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public void resetCounters() {
+        hits = 0;
+        misses = 0;
+        reResolves = 0;
+        invalidations = 0;
+    }
+
+    @Override
+    public String toString() {
+        long lookups = hits + misses;
+        return "Element cache: " + hits + " hits, " + misses + " misses" +
+                (lookups > 0 ? " (" + (100 * hits / lookups) + "% hit rate)" : "") +
+                ", " + reResolves + " re-resolved, " + invalidations + " invalidations";
+    }
+
+    /**
+     * Marker for elements handed out by the cache.
+     */
+    interface CachedElement {
+    }
+
+    private class ReResolvingHandler implements InvocationHandler {
+        private final By by;
+        private WebElement element;
+
+        ReResolvingHandler(By by, WebElement element) {
+            this.by = by;
+            this.element = element;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == WrapsElement.class) {
+                return element;
+            }
+
+            try {
+                return method.invoke(element, args);
+            } catch (InvocationTargetException e) {
+                if (!(e.getCause() instanceof StaleElementReferenceException)) {
+                    throw e.getCause();
+                }
+            }
+
+            element = searchContext.get().findElement(by);
+            reResolves++;
+            try {
+                return method.invoke(element, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.bottlerocket.webdriverwrapper;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Rectangle;
+
+/**
+ * A read-only snapshot of what a locator matched at the moment it was resolved.
+ * <br>
+ * This is returned by {@link WebDriverWrapper#resolveAll(java.util.List)} so page objects can check the state of
+ * many elements at once without holding on to live {@link org.openqa.selenium.WebElement}s.
+ * All values describe the <b>first</b> matching element, {@link #getCount()} gives the total number of matches.
+ */
+public class ElementState {
+    private final By locator;
+    private final int count;
+    private final boolean displayed;
+    private final Rectangle rect;
+    private final String text;
+
+    public ElementState(By locator, int count, boolean displayed, Rectangle rect, String text) {
+        this.locator = locator;
+        this.count = count;
+        this.displayed = displayed;
+        this.rect = rect;
+        this.text = text;
+    }
+
+    /**
+     * @param locator the locator that found nothing
+     * @return a state representing an element that is not on the screen
+     */
+    public static ElementState absent(By locator) {
+        return new ElementState(locator, 0, false, null, null);
+    }
+
+    public By getLocator() {
+        return locator;
+    }
+
+    public boolean isPresent() {
+        return count > 0;
+    }
+
+    public boolean isDisplayed() {
+        return displayed;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the bounds of the first matching element, or null if nothing was found
+     */
+    public Rectangle getRect() {
+        return rect;
+    }
+
+    /**
+     * @return the text of the first matching element, or null if nothing was found
+     */
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return locator + " [count=" + count + ", displayed=" + displayed + ", rect=" + (rect == null ? null : rect.getX() + "," + rect.getY() + " " + rect.getWidth() + "x" + rect.getHeight()) + ", text=" + text + "]";
+    }
+}
@@ -0,0 +1,126 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.utils.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.Rectangle;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the {@link ElementState} of many locators in one pass, either with a single script execution (web)
+ * or with a single page source download (Appium).
+ * <br>
+ * Locators that cannot be translated for the one-pass lookup (relative locators, UiAutomator, predicate strings, etc.)
+ * are left out of the returned map so the caller can resolve them against the live driver.
+ */
+public class ElementStateResolver {
+
+    /**
+     * Receives a list of [using, value] pairs as arguments[0] and returns one entry per pair.
+     * A null entry means the selector could not be evaluated in the browser.
+     */
+    private static final String RESOLVE_ALL_SCRIPT =
+            "var locators = arguments[0], out = [];" +
+            "for (var i = 0; i < locators.length; i++) {" +
+            "  var using = locators[i][0], value = locators[i][1], found = [];" +
+            "  try {" +
+            "    if (using === 'css selector') {" +
+            "      found = Array.prototype.slice.call(document.querySelectorAll(value));" +
+            "    } else if (using === 'tag name') {" +
+            "      found = Array.prototype.slice.call(document.getElementsByTagName(value));" +
+            "    } else if (using === 'xpath') {" +
+            "      var snapshot = document.evaluate(value, document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);" +
+            "      for (var j = 0; j < snapshot.snapshotLength; j++) { found.push(snapshot.snapshotItem(j)); }" +
+            "    } else if (using === 'link text' || using === 'partial link text') {" +
+            "      var links = document.getElementsByTagName('a');" +
+            "      for (var k = 0; k < links.length; k++) {" +
+            "        var linkText = (links[k].innerText || links[k].textContent || '').trim();" +
+            "        if (using === 'link text' ? linkText === value : linkText.indexOf(value) !== -1) { found.push(links[k]); }" +
+            "      }" +
+            "    } else { out.push(null); continue; }" +
+            "  } catch (e) { out.push(null); continue; }" +
+            "  if (found.length === 0) { out.push({count: 0}); continue; }" +
+            "  var el = found[0], rect = el.getBoundingClientRect(), style = window.getComputedStyle(el);" +
+            "  out.push({" +
+            "    count: found.length," +
+            "    displayed: rect.width > 0 && rect.height > 0 && style.visibility !== 'hidden' && style.display !== 'none'," +
+            "    x: Math.round(rect.left + window.pageXOffset), y: Math.round(rect.top + window.pageYOffset)," +
+            "    width: Math.round(rect.width), height: Math.round(rect.height)," +
+            "    text: (el.innerText || el.textContent || '').trim()" +
+            "  });" +
+            "}" +
+            "return out;";
+
+    /**
+     * Resolve every W3C locator in one executeScript call.
+     * <br>
+     * <b>Note:</b> "displayed" is computed from the element's bounding box and computed style,
+     * which is close to but not identical to the WebDriver isDisplayed atom.
+     *
+     * @param executor the driver to run the script on
+     * @param locators the locators to resolve
+     * @return the resolved states, keyed by locator. Locators that could not be resolved in the script are not included.
+     */
+    public static Map<By, ElementState> resolveWithScript(JavascriptExecutor executor, List<By> locators) {
+        Map<By, ElementState> states = new LinkedHashMap<>();
+        List<By> scriptable = new ArrayList<>();
+        List<List<String>> parameters = new ArrayList<>();
+
+        for (By locator : locators) {
+            if (locator instanceof By.Remotable) {
+                By.Remotable.Parameters remoteParameters = ((By.Remotable) locator).getRemoteParameters();
+                scriptable.add(locator);
+                parameters.add(List.of(remoteParameters.using(), String.valueOf(remoteParameters.value())));
+            }
+        }
+
+        if (scriptable.isEmpty()) {
+            return states;
+        }
+
+        Object result = executor.executeScript(RESOLVE_ALL_SCRIPT, parameters);
+        if (!(result instanceof List)) {
+            Logger.log("Unexpected result from the resolve script, falling back to individual lookups: " + result);
+            return states;
+        }
+
+        List<?> results = (List<?>) result;
+        for (int i = 0; i < scriptable.size() && i < results.size(); i++) {
+            if (results.get(i) instanceof Map) {
+                states.put(scriptable.get(i), toElementState(scriptable.get(i), (Map<?, ?>) results.get(i)));
+            }
+        }
+
+        return states;
+    }
+
+    private static ElementState toElementState(By locator, Map<?, ?> values) {
+        int count = toInt(values.get("count"));
+        if (count == 0) {
+            return ElementState.absent(locator);
+        }
+
+        Rectangle rect = new Rectangle(toInt(values.get("x")), toInt(values.get("y")), toInt(values.get("height")), toInt(values.get("width")));
+        return new ElementState(locator, count, Boolean.TRUE.equals(values.get("displayed")), rect, (String) values.get("text"));
+    }
+
+    private static int toInt(Object number) {
+        return number instanceof Number ? ((Number) number).intValue() : 0;
+    }
+
+    /**
+     * Resolve every locator the page source can answer against one download of the Appium page source.
+     *
+     * @param pageSource the XML page source from Appium
+     * @param locators   the locators to resolve
+     * @return the resolved states, keyed by locator. Locators that cannot be answered from the page source are not included.
+     * @see PageSnapshot
+     */
+    public static Map<By, ElementState> resolveWithPageSource(String pageSource, List<By> locators) {
+        return new PageSnapshot(pageSource).resolveAll(locators);
+    }
+}
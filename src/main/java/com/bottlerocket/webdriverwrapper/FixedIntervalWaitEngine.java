@@ -0,0 +1,38 @@
+package com.bottlerocket.webdriverwrapper;
+
+import org.openqa.selenium.support.ui.Sleeper;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Polls at a constant interval. With the default 500 ms this behaves like Selenium's {@link org.openqa.selenium.support.ui.WebDriverWait}.
+ */
+public class FixedIntervalWaitEngine extends PollingWaitEngine {
+    public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofMillis(500);
+
+    private final Duration pollInterval;
+
+    public FixedIntervalWaitEngine() {
+        this(DEFAULT_POLL_INTERVAL);
+    }
+
+    public FixedIntervalWaitEngine(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    FixedIntervalWaitEngine(Duration pollInterval, Clock clock, Sleeper sleeper) {
+        super(clock, sleeper);
+        this.pollInterval = pollInterval;
+    }
+
+    @Override
+    protected Duration nextPollInterval(int pollCount, Duration elapsed) {
+        return pollInterval;
+    }
+
+    @Override
+    protected String getName() {
+        return "fixed(" + pollInterval.toMillis() + " ms)";
+    }
+}
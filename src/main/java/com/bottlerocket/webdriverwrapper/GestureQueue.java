@@ -0,0 +1,207 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.utils.Logger;
+import com.bottlerocket.utils.SwipeProperties;
+import com.bottlerocket.utils.WebElementUtils;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.Interaction;
+import org.openqa.selenium.interactions.Pause;
+import org.openqa.selenium.interactions.PointerInput;
+import org.openqa.selenium.interactions.Sequence;
+import org.openqa.selenium.json.Json;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Builds any number of taps, swipes and pauses into one W3C actions payload that is sent with a single performActions call.
+ * <br>
+ * {@link AppiumDriverWrapper#tap(Point, int)}, {@link AppiumDriverWrapper#swipe(SwipeProperties)} and the other gesture methods each send
+ * their own request, so a flow like "swipe three times then tap" costs a round trip, and the server's settle time, per gesture.
+ * Gestures added here run one after another in the order they were added. The fingers of a multi finger gesture move at the same time.
+ * <p>
+ * Usage Example:
+ * <br>
+ * {@code driverWrapper.gestures().swipe(500, 1500, 500, 500).swipe(500, 1500, 500, 500).pause(200).tap(new Point(100, 200)).perform();}
+ * <br>
+ * {@code driverWrapper.gestures().dryRun().multiSwipe(pinch).perform();} logs the payload instead of sending it.
+ */
+public class GestureQueue {
+    public static final int DEFAULT_TAP_TIME_IN_MILLISECONDS = 100;
+
+    private final AppiumDriverWrapper driverWrapper;
+    private final List<PointerInput> fingers = new ArrayList<>();
+    private final List<Sequence> sequences = new ArrayList<>();
+    private int ticks;
+    private int gestures;
+    private boolean dryRun;
+
+    /**
+     * @param driverWrapper the session to perform the gestures on, may be null for a queue that is only used in dry run mode
+     */
+    public GestureQueue(AppiumDriverWrapper driverWrapper) {
+        this.driverWrapper = driverWrapper;
+        this.dryRun = driverWrapper == null;
+    }
+
+    /**
+     * Log the actions payload on {@link #perform()} instead of sending it.
+     */
+    public GestureQueue dryRun() {
+        this.dryRun = true;
+        return this;
+    }
+
+    public GestureQueue tap(Point point) {
+        return tap(point, DEFAULT_TAP_TIME_IN_MILLISECONDS);
+    }
+
+    public GestureQueue tap(Point point, int touchTimeInMilliseconds) {
+        return multiTap(Collections.singletonList(point), touchTimeInMilliseconds);
+    }
+
+    public GestureQueue tap(WebElement element, int touchTimeInMilliseconds) {
+        return tap(WebElementUtils.getCenterPoint(element), touchTimeInMilliseconds);
+    }
+
+    /**
+     * Tap with one finger per point, all at the same time.
+     */
+    public GestureQueue multiTap(List<Point> points, int touchTimeInMilliseconds) {
+        List<List<Interaction>> steps = new ArrayList<>();
+        for (int fingerCount = 0; fingerCount < points.size(); fingerCount++) {
+            PointerInput finger = finger(fingerCount);
+            Point point = points.get(fingerCount);
+            List<Interaction> tap = new ArrayList<>();
+            tap.add(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.viewport(), point.getX(), point.getY()));
+            tap.add(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
+            tap.add(new Pause(finger, Duration.ofMillis(touchTimeInMilliseconds)));
+            tap.add(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+            steps.add(tap);
+        }
+        return add(steps);
+    }
+
+    /**
+     * Swipe with the default start delay and swipe time of {@link SwipeProperties}.
+     */
+    public GestureQueue swipe(int startX, int startY, int endX, int endY) {
+        return swipe(new SwipeProperties(startX, startY, endX, endY));
+    }
+
+    public GestureQueue swipe(SwipeProperties swipeProperties) {
+        return multiSwipe(Collections.singletonList(swipeProperties));
+    }
+
+    /**
+     * Swipe with one finger per {@link SwipeProperties}, all at the same time, e.g. a pinch or zoom.
+     */
+    public GestureQueue multiSwipe(List<SwipeProperties> swipeProperties) {
+        List<List<Interaction>> steps = new ArrayList<>();
+        for (int fingerCount = 0; fingerCount < swipeProperties.size(); fingerCount++) {
+            PointerInput finger = finger(fingerCount);
+            SwipeProperties properties = swipeProperties.get(fingerCount);
+            List<Interaction> swipe = new ArrayList<>();
+            swipe.add(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.viewport(),
+                    properties.getStartPoint().getX(), properties.getStartPoint().getY()));
+            swipe.add(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
+            swipe.add(new Pause(finger, properties.getStartDelay()));
+            swipe.add(finger.createPointerMove(properties.getSwipeTime(), PointerInput.Origin.viewport(),
+                    properties.getEndPoint().getX(), properties.getEndPoint().getY()));
+            swipe.add(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+            steps.add(swipe);
+        }
+        return add(steps);
+    }
+
+    /**
+     * Drag one finger through each point in turn, taking the given time for each segment.
+     */
+    public GestureQueue drag(List<Point> path, Duration segmentTime) {
+        if (path.isEmpty()) {
+            return this;
+        }
+
+        PointerInput finger = finger(0);
+        List<Interaction> drag = new ArrayList<>();
+        drag.add(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.viewport(), path.get(0).getX(), path.get(0).getY()));
+        drag.add(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
+        for (Point point : path.subList(1, path.size())) {
+            drag.add(finger.createPointerMove(segmentTime, PointerInput.Origin.viewport(), point.getX(), point.getY()));
+        }
+        drag.add(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+        return add(Collections.singletonList(drag));
+    }
+
+    public GestureQueue pause(int timeInMilliseconds) {
+        return pause(Duration.ofMillis(timeInMilliseconds));
+    }
+
+    public GestureQueue pause(Duration duration) {
+        return add(Collections.singletonList(Collections.singletonList(new Pause(finger(0), duration))));
+    }
+
+    /**
+     * Add one gesture. Each list holds the actions of one finger, starting at finger 0, and the lists run side by side.
+     * Every finger is padded with zero length pauses so all of them end the gesture on the same tick.
+     */
+    private GestureQueue add(List<List<Interaction>> fingerActions) {
+        int length = fingerActions.stream().mapToInt(List::size).max().orElse(0);
+        for (int fingerCount = 0; fingerCount < sequences.size(); fingerCount++) {
+            List<Interaction> actions = fingerCount < fingerActions.size() ? fingerActions.get(fingerCount) : Collections.emptyList();
+            Sequence sequence = sequences.get(fingerCount);
+            for (Interaction action : actions) {
+                sequence.addAction(action);
+            }
+            for (int tick = actions.size(); tick < length; tick++) {
+                sequence.addAction(new Pause(fingers.get(fingerCount), Duration.ZERO));
+            }
+        }
+        ticks += length;
+        gestures++;
+        return this;
+    }
+
+    private PointerInput finger(int index) {
+        while (fingers.size() <= index) {
+            PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger" + fingers.size());
+            fingers.add(finger);
+            //a finger added part way through waits out the gestures before it
+            sequences.add(new Sequence(finger, ticks));
+        }
+        return fingers.get(index);
+    }
+
+    public int getGestureCount() {
+        return gestures;
+    }
+
+    /**
+     * @return the W3C actions payload for everything queued so far
+     */
+    public String toJson() {
+        List<Map<String, Object>> actions = sequences.stream().map(Sequence::toJson).collect(Collectors.toList());
+        return new Json().toJson(Collections.singletonMap("actions", actions));
+    }
+
+    /**
+     * Send every queued gesture in one performActions call, or log the payload in dry run mode.
+     */
+    public void perform() {
+        if (sequences.isEmpty()) {
+            return;
+        }
+
+        if (dryRun) {
+            Logger.log("Gesture queue dry run, " + gestures + " gestures: " + toJson());
+            return;
+        }
+
+        driverWrapper.getDriver().perform(sequences);
+    }
+}
@@ -0,0 +1,83 @@
+package com.bottlerocket.webdriverwrapper;
+
+/**
+ * A small fixed-size latency histogram with log-linear buckets, accurate to within 12.5%.
+ * <br>
+ * Values are recorded in microseconds. Recording is a couple of bit operations and an array increment, so it is cheap enough
+ * to run on every element lookup. Percentiles report the upper bound of the bucket they fall in, capped at the real maximum.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    //2^36 microseconds is about 19 hours, anything longer lands in the last bucket
+    private static final int MAX_EXPONENT = 36;
+
+    private final long[] buckets = new long[bucketIndex(Long.MAX_VALUE) + 1];
+    private long count;
+    private long max;
+    private long total;
+
+    static int bucketIndex(long micros) {
+        if (micros < LINEAR_LIMIT) {
+            return (int) Math.max(0, micros);
+        }
+
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+        int subBucket = exponent == MAX_EXPONENT && micros >= (1L << (MAX_EXPONENT + 1))
+                ? SUB_BUCKETS - 1
+                : (int) ((micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+
+        int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + subBucket) * width + width - 1;
+    }
+
+    public synchronized void record(long micros) {
+        buckets[bucketIndex(micros)]++;
+        count++;
+        total += micros;
+        max = Math.max(max, micros);
+    }
+
+    /**
+     * @param percentile a value between 0 and 100
+     * @return the latency in microseconds at or below which the given percentage of recorded values fall, 0 if nothing was recorded
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max);
+            }
+        }
+
+        return max;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized long getTotal() {
+        return total;
+    }
+}
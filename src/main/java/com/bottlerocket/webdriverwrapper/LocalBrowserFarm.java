@@ -0,0 +1,438 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.config.AutomationConfigProperties;
+import com.bottlerocket.config.AutomationConfigPropertiesLoader;
+import com.bottlerocket.config.ConfigPropertiesBinderWeb;
+import com.bottlerocket.errorhandling.WebDriverWrapperException;
+import com.bottlerocket.utils.ErrorHandler;
+import com.bottlerocket.utils.Logger;
+import org.apache.commons.io.FileUtils;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.firefox.GeckoDriverService;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.service.DriverService;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs a set of headless local Chrome or Firefox browsers for parallel web runs on one machine, without a Selenium Grid.
+ * <br>
+ * Each browser gets its own driver process on a free port and its own user data directory, so parallel tests don't share cookies,
+ * storage or profile locks. Browsers are leased to test threads through a {@link DriverSessionPool}: a browser that crashes or whose
+ * driver process dies fails the health check and is replaced with a new one. Idle browsers are health checked in the background every
+ * BROWSER_FARM_HEALTH_CHECK_INTERVAL seconds, so a crash is usually replaced before a test leases the browser.
+ * <br>
+ * The farm samples the CPU and resident memory of each driver process and its browser processes every BROWSER_FARM_SAMPLE_INTERVAL seconds.
+ * {@link #getSuggestedParallelism()} uses the samples to estimate how many browsers the machine can run, to size BROWSER_FARM_SIZE per CI box.
+ * Memory is read from /proc and is only available on Linux.
+ * <p>
+ * Usage Example:
+ * <br>
+ * {@code LocalBrowserFarm farm = WebDriverWrapper.startLocalBrowserFarm(config);}
+ * <br>
+ * {@code WebDriverWrapper driverWrapper = farm.lease(); try { ... } finally { farm.release(driverWrapper); }}
+ * <br>
+ * {@code farm.close();}
+ */
+public class LocalBrowserFarm implements AutoCloseable, DriverSessionPool.SessionFactory {
+    private static final Object PROCESS_START_LOCK = new Object();
+
+    private final AutomationConfigProperties config;
+    private final String browser;
+    private final int size;
+    private final DriverSessionPool pool;
+    private final Map<WebDriverWrapper, BrowserInstance> instances = new ConcurrentHashMap<>();
+    private final List<InstanceStats> retiredStats = new ArrayList<>();
+    private final ScheduledExecutorService monitor;
+
+    public LocalBrowserFarm(AutomationConfigProperties config) {
+        this(config, null);
+    }
+
+    /**
+     * @param sessionFactory creates the farm's sessions instead of the farm starting browsers itself, null for the farm's own browsers
+     */
+    LocalBrowserFarm(AutomationConfigProperties config, DriverSessionPool.SessionFactory sessionFactory) {
+        this.config = config;
+        this.browser = config.browserName == null || config.browserName.isEmpty() ? "chrome" : config.browserName.toLowerCase();
+        if (!browser.equals("chrome") && !browser.equals("firefox")) {
+            throw new IllegalArgumentException("The local browser farm supports chrome and firefox, not " + config.browserName);
+        }
+
+        this.size = config.browserFarmSize > 0 ? config.browserFarmSize : Runtime.getRuntime().availableProcessors();
+        this.pool = new DriverSessionPool(config, size, Duration.ofMinutes(config.sessionPoolMaxAgeMinutes),
+                Duration.ofSeconds(config.sessionPoolLeaseTimeoutSeconds), SessionResetPolicy.fromConfig(config), sessionFactory != null ? sessionFactory : this);
+        this.monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "browser-farm-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start every browser in the background and begin sampling and health checks. Returns immediately, {@link #lease()} blocks until a browser is ready.
+     */
+    public void start() {
+        Logger.log("Starting a local browser farm of " + size + " headless " + browser + " browsers.");
+        pool.start();
+        long sampleInterval = Math.max(1, config.browserFarmSampleIntervalSeconds);
+        monitor.scheduleAtFixedRate(this::sample, sampleInterval, sampleInterval, TimeUnit.SECONDS);
+        long healthCheckInterval = Math.max(1, config.browserFarmHealthCheckIntervalSeconds);
+        monitor.scheduleWithFixedDelay(this::checkHealth, healthCheckInterval, healthCheckInterval, TimeUnit.SECONDS);
+    }
+
+    public WebDriverWrapper lease() throws WebDriverWrapperException {
+        return pool.lease();
+    }
+
+    public void release(WebDriverWrapper driverWrapper) {
+        pool.release(driverWrapper);
+    }
+
+    /**
+     * Replace a leased browser, e.g. after a test leaves it in a state the reset policy can't recover from.
+     */
+    public void evict(WebDriverWrapper driverWrapper) {
+        pool.evict(driverWrapper);
+    }
+
+    public DriverSessionPool getPool() {
+        return pool;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        monitor.shutdownNow();
+        pool.close();
+        Logger.log(toString());
+    }
+
+    //===== SESSION FACTORY =====
+
+    @Override
+    public WebDriverWrapper create(AutomationConfigProperties config) throws Exception {
+        Path userDataDir = Files.createTempDirectory("browser-farm-" + browser + "-");
+        DriverService service = null;
+        try {
+            service = createDriverService();
+            Optional<ProcessHandle> process = startProcess(service::start);
+            RemoteWebDriver driver = WebDriverWrapper.newRemoteWebDriver(service.getUrl(), config, options(userDataDir));
+            WebDriverWrapper driverWrapper = new WebDriverWrapperGeneric(config, driver);
+            instances.put(driverWrapper, new BrowserInstance(service, userDataDir, process.orElse(null)));
+            return driverWrapper;
+        } catch (IOException | RuntimeException e) {
+            if (service != null) {
+                service.stop();
+            }
+            FileUtils.deleteQuietly(userDataDir.toFile());
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean isHealthy(WebDriverWrapper driverWrapper) {
+        BrowserInstance instance = instances.get(driverWrapper);
+        return instance != null && instance.service.isRunning() && driverWrapper.isSessionHealthy();
+    }
+
+    @Override
+    public void destroy(WebDriverWrapper driverWrapper) {
+        BrowserInstance instance = instances.remove(driverWrapper);
+        try {
+            driverWrapper.quit();
+        } catch (WebDriverException e) {
+            Logger.log("Unable to quit the farm browser, it may have crashed: " + e.getMessage());
+        } finally {
+            if (instance != null) {
+                instance.service.stop();
+                FileUtils.deleteQuietly(instance.userDataDir.toFile());
+                synchronized (retiredStats) {
+                    retiredStats.add(instance.stats());
+                }
+            }
+        }
+    }
+
+    private DriverService createDriverService() {
+        String driverDirectory = System.getProperty("user.dir") + AutomationConfigPropertiesLoader.PROJECT_RELATIVE_DRIVER_EXECUTABLE_PATH;
+        if (browser.equals("firefox")) {
+            WebDriverWrapper.setupWebDriverPath("webdriver.gecko.driver", driverDirectory + "geckodriver", config);
+            return new GeckoDriverService.Builder().usingAnyFreePort().build();
+        }
+
+        WebDriverWrapper.setupWebDriverPath("webdriver.chrome.driver", driverDirectory + "chromedriver", config);
+        return new ChromeDriverService.Builder().usingAnyFreePort().build();
+    }
+
+    /**
+     * The config's capabilities with the farm's headless and profile arguments added after them, so the capabilities can't replace them.
+     */
+    Capabilities options(Path userDataDir) {
+        if (browser.equals("firefox")) {
+            FirefoxOptions firefoxOptions = new FirefoxOptions(config.capabilities);
+            firefoxOptions.setHeadless(true);
+            firefoxOptions.addArguments("-profile", userDataDir.toString());
+            return firefoxOptions;
+        }
+
+        ChromeOptions chromeOptions = ConfigPropertiesBinderWeb.getChromeOptions(config).merge(config.capabilities);
+        if (!config.headlessChrome) {
+            chromeOptions.addArguments("--headless");
+        }
+        chromeOptions.addArguments("--user-data-dir=" + userDataDir);
+        return chromeOptions;
+    }
+
+    interface ProcessStart {
+        void start() throws IOException;
+    }
+
+    /**
+     * Start a process and find it. The driver service doesn't expose its process, so it is the child of this JVM that appeared while it started.
+     * Starts are done one at a time so each is matched to its own process.
+     *
+     * @return the process, or empty if no child or more than one appeared, e.g. when other code started a process at the same time
+     */
+    static Optional<ProcessHandle> startProcess(ProcessStart start) throws IOException {
+        synchronized (PROCESS_START_LOCK) {
+            Set<ProcessHandle> before = ProcessHandle.current().children().collect(Collectors.toSet());
+            start.start();
+            List<ProcessHandle> started = ProcessHandle.current().children().filter(child -> !before.contains(child)).collect(Collectors.toList());
+            return started.size() == 1 ? Optional.of(started.get(0)) : Optional.empty();
+        }
+    }
+
+    //===== HEALTH CHECK =====
+
+    private void checkHealth() {
+        try {
+            int replaced = pool.checkIdleSessions();
+            if (replaced > 0) {
+                Logger.log("Local browser farm: replacing " + replaced + " idle " + browser + " browsers that crashed or expired.");
+            }
+        } catch (RuntimeException e) {
+            //keep the schedule running, an exception would cancel it
+            ErrorHandler.printErr("Unable to health check the local browser farm", e);
+        }
+    }
+
+    //===== SAMPLING =====
+
+    private void sample() {
+        for (BrowserInstance instance : instances.values()) {
+            instance.sample();
+        }
+    }
+
+    /**
+     * @return the latest and peak usage of each running browser, and the usage of the browsers that have been replaced
+     */
+    public List<InstanceStats> getInstanceStats() {
+        List<InstanceStats> stats = instances.values().stream().map(BrowserInstance::stats).collect(Collectors.toList());
+        synchronized (retiredStats) {
+            stats.addAll(retiredStats);
+        }
+        return stats;
+    }
+
+    /**
+     * Estimate how many browsers this machine can run at once from the average CPU and peak memory each browser has used so far.
+     *
+     * @return the suggested farm size, or the current size if nothing has been sampled yet
+     */
+    public int getSuggestedParallelism() {
+        List<InstanceStats> stats = getInstanceStats().stream().filter(s -> s.getSamples() > 0).collect(Collectors.toList());
+        if (stats.isEmpty()) {
+            return size;
+        }
+
+        double averageCpuPercent = stats.stream().mapToDouble(InstanceStats::getAverageCpuPercent).average().orElse(0);
+        long peakRssBytes = stats.stream().mapToLong(InstanceStats::getPeakRssBytes).max().orElse(0);
+
+        int byCpu = averageCpuPercent > 0 ? (int) (Runtime.getRuntime().availableProcessors() * 100 / averageCpuPercent) : Integer.MAX_VALUE;
+        int byMemory = peakRssBytes > 0 ? (int) (totalMemoryBytes() / peakRssBytes) : Integer.MAX_VALUE;
+        int suggested = Math.min(byCpu, byMemory);
+        return suggested == Integer.MAX_VALUE ? size : Math.max(1, suggested);
+    }
+
+    private static long totalMemoryBytes() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getTotalMemorySize();
+        }
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    @Override
+    public String toString() {
+        List<InstanceStats> stats = getInstanceStats();
+        double averageCpuPercent = stats.stream().filter(s -> s.getSamples() > 0).mapToDouble(InstanceStats::getAverageCpuPercent).average().orElse(0);
+        long peakRssBytes = stats.stream().mapToLong(InstanceStats::getPeakRssBytes).max().orElse(0);
+        return "Local browser farm: " + size + " " + browser + " browsers, " + stats.size() + " started. Average CPU " +
+                String.format("%.1f", averageCpuPercent) + "% of a core per browser, peak memory " + peakRssBytes / (1024 * 1024) +
+                " MB per browser, suggested parallelism " + getSuggestedParallelism() + ". " + pool;
+    }
+
+    /**
+     * CPU and memory used by one browser's driver process and the browser processes it started.
+     * CPU is a percentage of one core over the last sample interval.
+     */
+    public static class InstanceStats {
+        private final int port;
+        private final String userDataDir;
+        private final boolean alive;
+        private final double cpuPercent;
+        private final double averageCpuPercent;
+        private final double peakCpuPercent;
+        private final long rssBytes;
+        private final long peakRssBytes;
+        private final int samples;
+
+        InstanceStats(int port, String userDataDir, boolean alive, double cpuPercent, double averageCpuPercent, double peakCpuPercent,
+                      long rssBytes, long peakRssBytes, int samples) {
+            this.port = port;
+            this.userDataDir = userDataDir;
+            this.alive = alive;
+            this.cpuPercent = cpuPercent;
+            this.averageCpuPercent = averageCpuPercent;
+            this.peakCpuPercent = peakCpuPercent;
+            this.rssBytes = rssBytes;
+            this.peakRssBytes = peakRssBytes;
+            this.samples = samples;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public String getUserDataDir() {
+            return userDataDir;
+        }
+
+        public boolean isAlive() {
+            return alive;
+        }
+
+        public double getCpuPercent() {
+            return cpuPercent;
+        }
+
+        public double getAverageCpuPercent() {
+            return averageCpuPercent;
+        }
+
+        public double getPeakCpuPercent() {
+            return peakCpuPercent;
+        }
+
+        public long getRssBytes() {
+            return rssBytes;
+        }
+
+        public long getPeakRssBytes() {
+            return peakRssBytes;
+        }
+
+        public int getSamples() {
+            return samples;
+        }
+
+        @Override
+        public String toString() {
+            return "port " + port + (alive ? "" : " (stopped)") + ": CPU " + String.format("%.1f", cpuPercent) + "% (peak " +
+                    String.format("%.1f", peakCpuPercent) + "%), memory " + rssBytes / (1024 * 1024) + " MB (peak " + peakRssBytes / (1024 * 1024) + " MB)";
+        }
+    }
+
+    private static class BrowserInstance {
+        private final DriverService service;
+        private final Path userDataDir;
+        private final ProcessHandle process;
+
+        private long lastCpuNanos;
+        private long lastSampleNanos = System.nanoTime();
+        private double cpuPercent;
+        private double totalCpuPercent;
+        private double peakCpuPercent;
+        private long rssBytes;
+        private long peakRssBytes;
+        private int samples;
+
+        BrowserInstance(DriverService service, Path userDataDir, ProcessHandle process) {
+            this.service = service;
+            this.userDataDir = userDataDir;
+            this.process = process;
+        }
+
+        synchronized void sample() {
+            if (process == null || !process.isAlive()) {
+                return;
+            }
+
+            Set<ProcessHandle> processes = Stream.concat(Stream.of(process), process.descendants()).collect(Collectors.toSet());
+            long cpuNanos = processes.stream().mapToLong(p -> p.info().totalCpuDuration().map(Duration::toNanos).orElse(0L)).sum();
+            long now = System.nanoTime();
+            //the first sample covers the time since the browser started
+            cpuPercent = 100.0 * (cpuNanos - lastCpuNanos) / Math.max(1, now - lastSampleNanos);
+            lastCpuNanos = cpuNanos;
+            lastSampleNanos = now;
+
+            rssBytes = processes.stream().mapToLong(p -> readRssBytes(p.pid())).sum();
+            peakRssBytes = Math.max(peakRssBytes, rssBytes);
+            peakCpuPercent = Math.max(peakCpuPercent, cpuPercent);
+            totalCpuPercent += cpuPercent;
+            samples++;
+        }
+
+        synchronized InstanceStats stats() {
+            return new InstanceStats(service.getUrl().getPort(), userDataDir.toString(), process != null && process.isAlive(), cpuPercent,
+                    samples > 0 ? totalCpuPercent / samples : 0, peakCpuPercent, rssBytes, peakRssBytes, samples);
+        }
+
+        /**
+         * @return the resident set size from /proc/[pid]/status, or 0 where /proc isn't available
+         */
+        private static long readRssBytes(long pid) {
+            File status = Paths.get("/proc", String.valueOf(pid), "status").toFile();
+            if (!status.exists()) {
+                return 0;
+            }
+
+            try {
+                for (String line : Files.readAllLines(status.toPath())) {
+                    if (line.startsWith("VmRSS:")) {
+                        return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                //the process ended between listing and reading
+            }
+            return 0;
+        }
+    }
+}
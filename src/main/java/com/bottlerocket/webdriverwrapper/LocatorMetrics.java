@@ -0,0 +1,198 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.utils.ErrorHandler;
+import com.bottlerocket.utils.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.json.Json;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Latency, polling and outcome statistics for element lookups, kept per locator and lookup method.
+ * <br>
+ * {@link WebDriverWrapper} records every element, getElement, getElements, isElementDisplayed and waitInvisible call here.
+ * At the end of a run write the table with {@link #writeReport(String)} and look at the locators with the highest p95 first,
+ * those are the ones worth rewriting.
+ * <br>
+ * Nested lookups are recorded for each method, e.g. isElementDisplayed also records the getElement call it makes.
+ */
+public class LocatorMetrics {
+    public static final String JSON_FILE_NAME = "locator-metrics.json";
+    public static final String CSV_FILE_NAME = "locator-metrics.csv";
+
+    private static final LocatorMetrics GLOBAL = new LocatorMetrics();
+
+    public enum Outcome {
+        FOUND,
+        TIMEOUT,
+        ERROR
+    }
+
+    private final Map<String, LocatorStats> stats = new ConcurrentHashMap<>();
+    private final AtomicBoolean reportOnExit = new AtomicBoolean();
+
+    /**
+     * @return the metrics shared by every wrapper in this JVM
+     */
+    public static LocatorMetrics getGlobal() {
+        return GLOBAL;
+    }
+
+    public void record(String operation, By locator, long elapsedNanos, int polls, Outcome outcome) {
+        String locatorName = String.valueOf(locator);
+        stats.computeIfAbsent(operation + " " + locatorName, key -> new LocatorStats(locatorName, operation))
+                .record(elapsedNanos / 1000, polls, outcome);
+    }
+
+    /**
+     * @return the statistics for every locator and method, slowest p95 first
+     */
+    public List<LocatorStats> getStats() {
+        List<LocatorStats> sorted = new ArrayList<>(stats.values());
+        sorted.sort(Comparator.comparingLong((LocatorStats s) -> s.getHistogram().getPercentile(95)).reversed()
+                .thenComparing(Comparator.comparingLong(LocatorStats::getCount).reversed()));
+        return sorted;
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    /**
+     * Write the table as {@value #JSON_FILE_NAME} and {@value #CSV_FILE_NAME} in the given directory.
+     * Errors are logged rather than thrown, this is meant to be called from teardown.
+     *
+     * @param directory the directory to write to, usually the report output directory
+     */
+    public void writeReport(String directory) {
+        if (stats.isEmpty()) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(new File(directory).toPath());
+            writeJson(new File(directory, JSON_FILE_NAME));
+            writeCsv(new File(directory, CSV_FILE_NAME));
+            Logger.log("Locator metrics written to " + directory);
+        } catch (IOException e) {
+            ErrorHandler.printErr("Unable to write locator metrics to " + directory, e);
+        }
+    }
+
+    /**
+     * Write the report when the JVM exits. Only the first call registers the hook, so every wrapper can call this safely.
+     *
+     * @param directory the directory to write to, usually the report output directory
+     */
+    public void writeReportOnExit(String directory) {
+        if (reportOnExit.compareAndSet(false, true)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> writeReport(directory), "locator-metrics-report"));
+        }
+    }
+
+    public void writeJson(File file) throws IOException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (LocatorStats locatorStats : getStats()) {
+            rows.add(locatorStats.toMap());
+        }
+
+        Files.write(file.toPath(), new Json().toJson(rows).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void writeCsv(File file) throws IOException {
+        StringBuilder csv = new StringBuilder("locator,operation,count,timeouts,errors,avgPolls,p50Ms,p95Ms,p99Ms,maxMs\n");
+        for (LocatorStats locatorStats : getStats()) {
+            Map<String, Object> row = locatorStats.toMap();
+            csv.append('"').append(locatorStats.getLocator().replace("\"", "\"\"")).append('"');
+            for (Map.Entry<String, Object> column : row.entrySet()) {
+                if (!column.getKey().equals("locator")) {
+                    csv.append(',').append(column.getValue());
+                }
+            }
+            csv.append('\n');
+        }
+
+        Files.write(file.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static class LocatorStats {
+        private final String locator;
+        private final String operation;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private long polls;
+        private long timeouts;
+        private long errors;
+
+        LocatorStats(String locator, String operation) {
+            this.locator = locator;
+            this.operation = operation;
+        }
+
+        synchronized void record(long micros, int polls, Outcome outcome) {
+            histogram.record(micros);
+            this.polls += polls;
+            if (outcome == Outcome.TIMEOUT) {
+                timeouts++;
+            } else if (outcome == Outcome.ERROR) {
+                errors++;
+            }
+        }
+
+        public String getLocator() {
+            return locator;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        public long getCount() {
+            return histogram.getCount();
+        }
+
+        public synchronized long getTimeouts() {
+            return timeouts;
+        }
+
+        public synchronized long getErrors() {
+            return errors;
+        }
+
+        public synchronized double getAveragePolls() {
+            return getCount() == 0 ? 0 : (double) polls / getCount();
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("locator", locator);
+            row.put("operation", operation);
+            row.put("count", getCount());
+            row.put("timeouts", getTimeouts());
+            row.put("errors", getErrors());
+            row.put("avgPolls", Math.round(getAveragePolls() * 10) / 10.0);
+            row.put("p50Ms", toMillis(histogram.getPercentile(50)));
+            row.put("p95Ms", toMillis(histogram.getPercentile(95)));
+            row.put("p99Ms", toMillis(histogram.getPercentile(99)));
+            row.put("maxMs", toMillis(histogram.getMax()));
+            return row;
+        }
+
+        private static double toMillis(long micros) {
+            return Math.round(micros / 100.0) / 10.0;
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.utils.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.InvalidArgumentException;
+import org.openqa.selenium.WebElement;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.StringReader;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A parsed copy of the page source that answers read-only queries without going back to the driver.
+ * <br>
+ * On big Android and iOS hierarchies every findElement by XPath can take seconds. A snapshot downloads the page source once,
+ * parses it and indexes the attributes locators use (resource-id, name, content-desc, class, type, text, label, value),
+ * so id, accessibility id, class name, tag name and name lookups are map lookups and XPath is evaluated locally.
+ * <br>
+ * Use a snapshot for existence, text and attribute assertions. When the element needs to be clicked or typed into,
+ * {@link #getLiveElement(By)} finds it on the driver. Locators the snapshot can't answer (css, UiAutomator, predicate strings, etc.)
+ * fall back to a zero-wait lookup on the driver when the snapshot was created by {@link WebDriverWrapper#snapshot()}.
+ * <br>
+ * Web pages are HTML, which is rarely well-formed XML, so a web wrapper's snapshot isn't parsed: {@link #count(By)}, {@link #getText(By)}
+ * and {@link #getAttribute(By, String)} go to the driver, and the queries returning {@link SnapshotElement}s throw.
+ * <br>
+ * A snapshot never changes. Take a new one after anything that changes the screen.
+ * <p>
+ * Usage Example:
+ * <br>
+ * {@code PageSnapshot screen = snapshot();}
+ * <br>
+ * {@code Assert.assertEquals(screen.getText(By.id(TITLE_ID)), "Settings");}
+ * <br>
+ * {@code Assert.assertTrue(screen.exists(AppiumBy.accessibilityId(SAVE_BUTTON)));}
+ */
+public class PageSnapshot {
+    private static final List<String> INDEXED_ATTRIBUTES = List.of("resource-id", "name", "content-desc", "class", "type", "text", "label", "value");
+    private static final String ANDROID_ID_SEPARATOR = ":id/";
+
+    private final String pageSource;
+    private final Document document;
+    private final WebDriverWrapper liveDriver;
+    private final Instant capturedAt = Instant.now();
+
+    private final Map<String, Map<String, List<Element>>> attributeIndex = new HashMap<>();
+    private final Map<String, List<Element>> tagIndex = new HashMap<>();
+    private final Map<String, List<Element>> androidIdSuffixIndex = new HashMap<>();
+    private final Map<Element, Integer> documentOrder = new IdentityHashMap<>();
+
+    /**
+     * Create a snapshot with no live driver. Locators the snapshot can't answer throw {@link InvalidArgumentException}.
+     *
+     * @param pageSource the XML page source
+     */
+    public PageSnapshot(String pageSource) {
+        this(pageSource, null, true);
+    }
+
+    /**
+     * @param parse false to keep the page source without parsing it, e.g. for web pages, so every query goes to the live driver
+     */
+    PageSnapshot(String pageSource, WebDriverWrapper liveDriver, boolean parse) {
+        this.pageSource = pageSource;
+        this.liveDriver = liveDriver;
+        this.document = parse ? parsePageSource(pageSource) : null;
+
+        if (document != null) {
+            index(document.getDocumentElement());
+        }
+    }
+
+    private void index(Element root) {
+        List<Element> pending = new ArrayList<>();
+        pending.add(root);
+
+        //iterative depth-first walk so deep hierarchies can't overflow the stack, children are pushed in reverse to keep document order
+        while (!pending.isEmpty()) {
+            Element element = pending.remove(pending.size() - 1);
+            documentOrder.put(element, documentOrder.size());
+            tagIndex.computeIfAbsent(element.getTagName(), key -> new ArrayList<>()).add(element);
+
+            for (String attribute : INDEXED_ATTRIBUTES) {
+                if (element.hasAttribute(attribute)) {
+                    String value = element.getAttribute(attribute);
+                    attributeIndex.computeIfAbsent(attribute, key -> new HashMap<>())
+                            .computeIfAbsent(value, key -> new ArrayList<>()).add(element);
+
+                    int separator = value.indexOf(ANDROID_ID_SEPARATOR);
+                    if (attribute.equals("resource-id") && separator >= 0) {
+                        androidIdSuffixIndex.computeIfAbsent(value.substring(separator + ANDROID_ID_SEPARATOR.length()), key -> new ArrayList<>()).add(element);
+                    }
+                }
+            }
+
+            NodeList children = element.getChildNodes();
+            for (int i = children.getLength() - 1; i >= 0; i--) {
+                if (children.item(i).getNodeType() == Node.ELEMENT_NODE) {
+                    pending.add((Element) children.item(i));
+                }
+            }
+        }
+    }
+
+    static Document parsePageSource(String pageSource) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new InputSource(new StringReader(pageSource)));
+        } catch (Exception e) {
+            Logger.log("Unable to parse the page source: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return false if the page source was not well-formed XML or is a web page, which isn't parsed. Every query then goes to the live driver.
+     */
+    public boolean isParsed() {
+        return document != null;
+    }
+
+    public String getPageSource() {
+        return pageSource;
+    }
+
+    public Instant getCapturedAt() {
+        return capturedAt;
+    }
+
+    /**
+     * @return true if the locator can be answered from the snapshot without the driver
+     */
+    public boolean canResolve(By locator) {
+        return isParsed() && strategyOf(locator) != null && isSupported(strategyOf(locator));
+    }
+
+    //===== QUERIES =====
+
+    /**
+     * @return every element matching the locator, in document order
+     * @throws InvalidArgumentException if the locator can't be answered from the snapshot, see {@link #canResolve(By)}
+     */
+    public List<SnapshotElement> findAll(By locator) {
+        if (!isParsed()) {
+            throw new InvalidArgumentException("The page source was not parsed, so " + locator + " cannot be answered from the snapshot. " +
+                    "Use count, getText, getAttribute or getLiveElement, which go to the driver.");
+        } else if (!canResolve(locator)) {
+            throw new InvalidArgumentException(locator + " cannot be answered from the page source snapshot");
+        }
+
+        List<SnapshotElement> found = new ArrayList<>();
+        for (Element element : lookup(locator)) {
+            found.add(new SnapshotElement(element));
+        }
+        return found;
+    }
+
+    /**
+     * @return the first element matching the locator, or null if there is none
+     * @throws InvalidArgumentException if the locator can't be answered from the snapshot, see {@link #canResolve(By)}
+     */
+    public SnapshotElement find(By locator) {
+        List<SnapshotElement> found = findAll(locator);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    public boolean exists(By locator) {
+        return count(locator) > 0;
+    }
+
+    public int count(By locator) {
+        if (canResolve(locator)) {
+            return lookup(locator).size();
+        }
+        return liveElements(locator).size();
+    }
+
+    /**
+     * @return the text of the first matching element, or null if nothing matches
+     */
+    public String getText(By locator) {
+        if (canResolve(locator)) {
+            SnapshotElement element = find(locator);
+            return element == null ? null : element.getText();
+        }
+
+        List<WebElement> elements = liveElements(locator);
+        return elements.isEmpty() ? null : elements.get(0).getText();
+    }
+
+    /**
+     * @return the attribute of the first matching element, or null if nothing matches or the element doesn't have the attribute
+     */
+    public String getAttribute(By locator, String attribute) {
+        if (canResolve(locator)) {
+            SnapshotElement element = find(locator);
+            return element == null ? null : element.getAttribute(attribute);
+        }
+
+        List<WebElement> elements = liveElements(locator);
+        return elements.isEmpty() ? null : elements.get(0).getAttribute(attribute);
+    }
+
+    /**
+     * @return every element whose text (text, label or value attribute) equals the given text, in document order
+     */
+    public List<SnapshotElement> findByText(String text) {
+        Set<Element> matches = new LinkedHashSet<>();
+        for (String attribute : List.of("text", "label", "value")) {
+            matches.addAll(indexed(attribute, text));
+        }
+        return toSnapshotElements(sortByDocumentOrder(matches));
+    }
+
+    /**
+     * @return every element whose text (text, label or value attribute) contains the given text, in document order
+     */
+    public List<SnapshotElement> findByTextContaining(String text) {
+        Set<Element> matches = new LinkedHashSet<>();
+        for (String attribute : List.of("text", "label", "value")) {
+            for (Map.Entry<String, List<Element>> entry : attributeIndex.getOrDefault(attribute, Collections.emptyMap()).entrySet()) {
+                if (entry.getKey().contains(text)) {
+                    matches.addAll(entry.getValue());
+                }
+            }
+        }
+        return toSnapshotElements(sortByDocumentOrder(matches));
+    }
+
+    /**
+     * @return every element with the attribute set to the given value, in document order. Non-indexed attributes are evaluated with XPath.
+     */
+    public List<SnapshotElement> findByAttribute(String attribute, String value) {
+        if (INDEXED_ATTRIBUTES.contains(attribute)) {
+            return toSnapshotElements(indexed(attribute, value));
+        }
+        return findAll(By.xpath("//*[@" + attribute + "=" + xpathLiteral(value) + "]"));
+    }
+
+    /**
+     * @return the state of the first matching element, or null if the locator can't be answered from the snapshot
+     */
+    public ElementState getState(By locator) {
+        if (!canResolve(locator)) {
+            return null;
+        }
+
+        List<Element> found = lookup(locator);
+        if (found.isEmpty()) {
+            return ElementState.absent(locator);
+        }
+
+        SnapshotElement first = new SnapshotElement(found.get(0));
+        return new ElementState(locator, found.size(), first.isDisplayed(), first.getRect(), first.getText());
+    }
+
+    /**
+     * @return the states of every locator the snapshot can answer, keyed by locator. Locators it can't answer are left out.
+     */
+    public Map<By, ElementState> resolveAll(List<By> locators) {
+        Map<By, ElementState> states = new LinkedHashMap<>();
+        for (By locator : locators) {
+            try {
+                ElementState state = getState(locator);
+                if (state != null) {
+                    states.put(locator, state);
+                }
+            } catch (InvalidArgumentException e) {
+                Logger.log("Unable to evaluate " + locator + " against the page source, it will be resolved on the device instead.");
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Find the element on the live driver so it can be interacted with. Uses the wrapper's normal getElement wait.
+     *
+     * @throws IllegalStateException if the snapshot was not created from a driver
+     */
+    public WebElement getLiveElement(By locator) {
+        if (liveDriver == null) {
+            throw new IllegalStateException("This snapshot was not taken from a driver, there is no live element for " + locator);
+        }
+        return liveDriver.getElement(locator);
+    }
+
+    //===== LOOKUP =====
+
+    private List<Element> lookup(By locator) {
+        String strategy = strategyOf(locator);
+        String value = valueOf(locator);
+
+        switch (strategy) {
+            case "id":
+                Set<Element> byId = new LinkedHashSet<>(indexed("resource-id", value));
+                byId.addAll(indexed("name", value));
+                byId.addAll(androidIdSuffixIndex.getOrDefault(value, Collections.emptyList()));
+                return sortByDocumentOrder(byId);
+            case "accessibilityId":
+                Set<Element> byAccessibilityId = new LinkedHashSet<>(indexed("content-desc", value));
+                byAccessibilityId.addAll(indexed("name", value));
+                return sortByDocumentOrder(byAccessibilityId);
+            case "className":
+            case "tagName":
+                Set<Element> byClass = new LinkedHashSet<>(tagIndex.getOrDefault(value, Collections.emptyList()));
+                byClass.addAll(indexed("class", value));
+                byClass.addAll(indexed("type", value));
+                return sortByDocumentOrder(byClass);
+            case "name":
+                return indexed("name", value);
+            case "xpath":
+                return evaluateXpath(value);
+            default:
+                throw new InvalidArgumentException(locator + " cannot be answered from the page source snapshot");
+        }
+    }
+
+    private List<Element> evaluateXpath(String expression) {
+        List<Element> found = new ArrayList<>();
+        try {
+            XPath xPath = XPathFactory.newInstance().newXPath();
+            NodeList nodes = (NodeList) xPath.evaluate(expression, document, XPathConstants.NODESET);
+            for (int i = 0; i < nodes.getLength(); i++) {
+                if (nodes.item(i) instanceof Element) {
+                    found.add((Element) nodes.item(i));
+                }
+            }
+        } catch (XPathExpressionException e) {
+            throw new InvalidArgumentException("Unable to evaluate the XPath " + expression + " against the page source snapshot", e);
+        }
+        return found;
+    }
+
+    private List<Element> indexed(String attribute, String value) {
+        return attributeIndex.getOrDefault(attribute, Collections.emptyMap()).getOrDefault(value, Collections.emptyList());
+    }
+
+    private List<Element> sortByDocumentOrder(Set<Element> elements) {
+        List<Element> sorted = new ArrayList<>(elements);
+        sorted.sort((a, b) -> Integer.compare(documentOrder.get(a), documentOrder.get(b)));
+        return sorted;
+    }
+
+    private static List<SnapshotElement> toSnapshotElements(List<Element> elements) {
+        List<SnapshotElement> snapshotElements = new ArrayList<>();
+        for (Element element : elements) {
+            snapshotElements.add(new SnapshotElement(element));
+        }
+        return snapshotElements;
+    }
+
+    private List<WebElement> liveElements(By locator) {
+        if (liveDriver == null) {
+            throw new InvalidArgumentException(locator + " cannot be answered from the page source snapshot");
+        }
+        return liveDriver.withImplicitWait(Duration.ZERO, () -> liveDriver.getDriver().findElements(locator));
+    }
+
+    //===== LOCATOR PARSING =====
+
+    private static boolean isSupported(String strategy) {
+        switch (strategy) {
+            case "id":
+            case "accessibilityId":
+            case "className":
+            case "tagName":
+            case "name":
+            case "xpath":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * The strategy is read from the locator's toString, which has the form "By.strategy: value" or "AppiumBy.strategy: value".
+     *
+     * @return the strategy, or null if the locator doesn't use that form (relative locators, chained locators, etc.)
+     */
+    static String strategyOf(By locator) {
+        String description = locator.toString();
+        int separator = description.indexOf(": ");
+        int dot = description.indexOf('.');
+        if (separator < 0 || dot < 0 || dot > separator) {
+            return null;
+        }
+        return description.substring(dot + 1, separator);
+    }
+
+    static String valueOf(By locator) {
+        String description = locator.toString();
+        return description.substring(description.indexOf(": ") + 2);
+    }
+
+    /**
+     * XPath 1.0 has no escape character, so values containing both quote types have to be built with concat()
+     */
+    static String xpathLiteral(String value) {
+        if (!value.contains("'")) {
+            return "'" + value + "'";
+        } else if (!value.contains("\"")) {
+            return "\"" + value + "\"";
+        }
+
+        StringBuilder concat = new StringBuilder("concat(");
+        String[] parts = value.split("'", -1);
+        for (int i = 0; i < parts.length; i++) {
+            concat.append("'").append(parts[i]).append("'");
+            if (i < parts.length - 1) {
+                concat.append(", \"'\", ");
+            }
+        }
+
+        return concat.append(")").toString();
+    }
+}
@@ -0,0 +1,107 @@
+package com.bottlerocket.webdriverwrapper;
+
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.support.ui.Sleeper;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Shared polling loop for wait engines. Subclasses only decide how long to sleep between polls.
+ * <br>
+ * Like {@link org.openqa.selenium.support.ui.WebDriverWait}, {@link NotFoundException} and {@link StaleElementReferenceException}
+ * thrown by the condition are treated as "not yet" rather than failures.
+ * The sleep before the final poll is shortened so the last poll happens at the deadline, never after it.
+ */
+public abstract class PollingWaitEngine implements WaitEngine {
+    private final Clock clock;
+    private final Sleeper sleeper;
+    private final AtomicLong totalWaits = new AtomicLong();
+    private final AtomicLong totalPolls = new AtomicLong();
+    private final ThreadLocal<WaitStatistics> lastWaitStatistics = new ThreadLocal<>();
+
+    protected PollingWaitEngine() {
+        this(Clock.systemDefaultZone(), Sleeper.SYSTEM_SLEEPER);
+    }
+
+    protected PollingWaitEngine(Clock clock, Sleeper sleeper) {
+        this.clock = clock;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * @param pollCount the number of polls performed so far, starting at 1
+     * @param elapsed   the time since the wait started
+     * @return how long to sleep before the next poll
+     */
+    protected abstract Duration nextPollInterval(int pollCount, Duration elapsed);
+
+    protected abstract String getName();
+
+    @Override
+    public <T> T until(WebDriver driver, Function<? super WebDriver, T> condition, Duration timeout) {
+        Instant start = clock.instant();
+        Instant deadline = start.plus(timeout);
+        RuntimeException lastException = null;
+        int polls = 0;
+
+        while (true) {
+            polls++;
+            try {
+                T value = condition.apply(driver);
+                if (value != null && !Boolean.FALSE.equals(value)) {
+                    record(polls, start, false);
+                    return value;
+                }
+            } catch (NotFoundException | StaleElementReferenceException e) {
+                lastException = e;
+            }
+
+            Instant now = clock.instant();
+            if (!now.isBefore(deadline)) {
+                record(polls, start, true);
+                throw new TimeoutException(String.format(
+                        "Expected condition failed: waiting for %s (tried for %d ms with %d polls using the %s wait engine)",
+                        condition, timeout.toMillis(), polls, getName()), lastException);
+            }
+
+            Duration remaining = Duration.between(now, deadline);
+            Duration interval = nextPollInterval(polls, Duration.between(start, now));
+            try {
+                sleeper.sleep(interval.compareTo(remaining) < 0 ? interval : remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                record(polls, start, true);
+                throw new WebDriverException("Interrupted while waiting for " + condition, e);
+            }
+        }
+    }
+
+    private void record(int polls, Instant start, boolean timedOut) {
+        totalWaits.incrementAndGet();
+        totalPolls.addAndGet(polls);
+        lastWaitStatistics.set(new WaitStatistics(getName(), polls, Duration.between(start, clock.instant()), timedOut));
+    }
+
+    @Override
+    public WaitStatistics getLastWaitStatistics() {
+        return lastWaitStatistics.get();
+    }
+
+    @Override
+    public long getTotalWaits() {
+        return totalWaits.get();
+    }
+
+    @Override
+    public long getTotalPolls() {
+        return totalPolls.get();
+    }
+}
@@ -0,0 +1,284 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.config.AutomationConfigProperties;
+import com.bottlerocket.utils.Logger;
+import org.openqa.selenium.Rectangle;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * How screenshots are encoded when they are saved: the format, the quality of lossy formats, the largest width or height,
+ * and whether they are converted to grayscale.
+ * <br>
+ * Encoding happens on the {@link ScreenshotWriter}'s threads, the test thread only captures the PNG.
+ * WebP is used when an ImageIO WebP plugin is on the classpath, otherwise JPEG is written instead.
+ * <br>
+ * {@link #LOSSLESS} writes the PNG exactly as it was captured, which is what pixel diffs need. Screenshots that are compared,
+ * such as {@link WebDriverWrapper#checkVisual(String, String)}, always use the captured bytes whatever the configured profile is.
+ * <p>
+ * Usage Example:
+ * <br>
+ * {@code driverWrapper.takeScreenshot(outputLocation, "baseline.png", ScreenshotProfile.LOSSLESS);}
+ * <br>
+ * {@code ScreenshotProfile archive = new ScreenshotProfile(ScreenshotProfile.Format.JPEG, 0.7f, 1280, false);}
+ */
+public class ScreenshotProfile {
+    public enum Format {
+        PNG("png"),
+        JPEG("jpg"),
+        WEBP("webp");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    public static final ScreenshotProfile LOSSLESS = new ScreenshotProfile(Format.PNG, 1, 0, false);
+
+    private static final AtomicBoolean WEBP_FALLBACK_LOGGED = new AtomicBoolean();
+
+    private final Format format;
+    private final float quality;
+    private final int maxDimension;
+    private final boolean grayscale;
+
+    /**
+     * @param format       the format to write
+     * @param quality      the quality of lossy formats, from 0 to 1
+     * @param maxDimension the largest width or height, larger screenshots are scaled down keeping their aspect ratio. 0 keeps the size.
+     * @param grayscale    convert to grayscale
+     */
+    public ScreenshotProfile(Format format, float quality, int maxDimension, boolean grayscale) {
+        this.format = format == Format.WEBP && !ImageIO.getImageWritersByFormatName("webp").hasNext() ? Format.JPEG : format;
+        this.quality = Math.max(0, Math.min(1, quality));
+        this.maxDimension = Math.max(0, maxDimension);
+        this.grayscale = grayscale;
+
+        if (this.format != format && WEBP_FALLBACK_LOGGED.compareAndSet(false, true)) {
+            Logger.log("No WebP ImageIO plugin on the classpath, writing screenshots as JPEG instead.");
+        }
+    }
+
+    /**
+     * @return the profile from SCREENSHOT_FORMAT, SCREENSHOT_QUALITY, SCREENSHOT_MAX_DIMENSION and SCREENSHOT_GRAYSCALE,
+     * or {@link #LOSSLESS} if the format isn't recognized
+     */
+    public static ScreenshotProfile fromConfig(AutomationConfigProperties config) {
+        Format format = parseFormat(config.screenshotFormat);
+        if (format == null) {
+            Logger.log("SCREENSHOT_FORMAT \"" + config.screenshotFormat + "\" is not png, jpg or webp, screenshots will be saved as they were captured.");
+            return LOSSLESS;
+        }
+
+        ScreenshotProfile profile = new ScreenshotProfile(format, config.screenshotQuality, config.screenshotMaxDimension, config.screenshotGrayscale);
+        return profile.isLossless() ? LOSSLESS : profile;
+    }
+
+    /**
+     * @return the format named, ignoring case, with "jpg" accepted for JPEG, or null if the name isn't a format
+     */
+    static Format parseFormat(String name) {
+        String format = name == null ? "" : name.trim().toUpperCase(Locale.ROOT);
+        if (format.equals("JPG")) {
+            return Format.JPEG;
+        }
+
+        for (Format candidate : Format.values()) {
+            if (candidate.name().equals(format)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public float getQuality() {
+        return quality;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    public boolean isGrayscale() {
+        return grayscale;
+    }
+
+    /**
+     * @return true if the profile writes screenshots exactly as they were captured
+     */
+    public boolean isLossless() {
+        return format == Format.PNG && maxDimension == 0 && !grayscale;
+    }
+
+    /**
+     * @return the file name with a .png, .jpg, .jpeg or .webp extension replaced by this profile's, other names
+     * and every name of a lossless profile unchanged
+     */
+    public String fileName(String fileName) {
+        if (isLossless()) {
+            return fileName;
+        }
+
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        for (String extension : new String[]{".png", ".jpg", ".jpeg", ".webp"}) {
+            if (lower.endsWith(extension)) {
+                return fileName.substring(0, fileName.length() - extension.length()) + "." + format.getExtension();
+            }
+        }
+        return fileName;
+    }
+
+    /**
+     * Crop, scale, convert and encode a captured screenshot.
+     *
+     * @param png  the screenshot as captured, PNG encoded
+     * @param crop the part of the screenshot to keep, or null to keep all of it
+     * @return the encoded screenshot, the captured bytes themselves when there is nothing to do
+     */
+    public byte[] encode(byte[] png, Rectangle crop) throws IOException {
+        if (crop == null && isLossless()) {
+            return png;
+        }
+
+        BufferedImage image = decode(png, crop);
+        image = scale(image);
+        if (grayscale || format != Format.PNG) {
+            image = convert(image, grayscale ? BufferedImage.TYPE_BYTE_GRAY : format == Format.PNG ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        }
+        return write(image);
+    }
+
+    /**
+     * Decode the screenshot, or only the crop when there is one, clipped to the image so an element partly off screen still gets its visible part.
+     * The size comes from the PNG header, so the full frame is never decoded just to be cropped.
+     */
+    static BufferedImage decode(byte[] png, Rectangle crop) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(png))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Screenshot is not in a format ImageIO can read");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (crop != null) {
+                    int imageWidth = reader.getWidth(0);
+                    int imageHeight = reader.getHeight(0);
+
+                    int x = Math.max(0, Math.min(crop.getX(), imageWidth - 1));
+                    int y = Math.max(0, Math.min(crop.getY(), imageHeight - 1));
+                    int width = Math.max(1, Math.min(crop.getWidth(), imageWidth - x));
+                    int height = Math.max(1, Math.min(crop.getHeight(), imageHeight - y));
+                    param.setSourceRegion(new java.awt.Rectangle(x, y, width, height));
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale down to the max dimension, halving first while the image is more than twice too big so bilinear steps don't drop detail.
+     */
+    private BufferedImage scale(BufferedImage image) {
+        int largest = Math.max(image.getWidth(), image.getHeight());
+        if (maxDimension == 0 || largest <= maxDimension) {
+            return image;
+        }
+
+        int targetWidth = Math.max(1, (int) Math.round((double) image.getWidth() * maxDimension / largest));
+        int targetHeight = Math.max(1, (int) Math.round((double) image.getHeight() * maxDimension / largest));
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage scaled = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            if (width < targetWidth * 2 && height < targetHeight * 2) {
+                width = targetWidth;
+                height = targetHeight;
+            }
+
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(scaled, 0, 0, width, height, null);
+            graphics.dispose();
+            scaled = step;
+        } while (width != targetWidth || height != targetHeight);
+        return scaled;
+    }
+
+    private static BufferedImage convert(BufferedImage image, int type) {
+        if (image.getType() == type) {
+            return image;
+        }
+
+        BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        Graphics2D graphics = converted.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return converted;
+    }
+
+    private byte[] write(BufferedImage image) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format.name().toLowerCase(Locale.ROOT));
+        if (!writers.hasNext()) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (format != Format.PNG && param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionType() == null && param.getCompressionTypes() != null) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return format + (format == Format.PNG ? "" : " quality " + quality) + (maxDimension > 0 ? " max " + maxDimension + "px" : "") + (grayscale ? " grayscale" : "");
+    }
+}
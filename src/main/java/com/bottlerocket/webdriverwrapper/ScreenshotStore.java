@@ -0,0 +1,284 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.reporters.AutomationReporter;
+import com.bottlerocket.reporters.ExtentReporter;
+import com.bottlerocket.utils.ErrorHandler;
+import com.bottlerocket.utils.Logger;
+import org.openqa.selenium.Rectangle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores screenshots by the SHA-256 of their content, so a frame captured many times (an idle screen, a repeated failure shot)
+ * is written once and every report entry references the same file.
+ * <br>
+ * Screenshots are hashed on the test thread as they are captured. A new hash is queued on the {@link ScreenshotWriter} as
+ * {@code objects/ab/abcdef....png} under the store's directory; a hash already seen costs no write at all.
+ * Cropped and re-encoded screenshots are hashed together with the crop and {@link ScreenshotProfile}, so different elements of the same frame are kept apart.
+ * <br>
+ * The screenshot can also be linked to its usual name with a hard link, which keeps code that reads screenshots by name working
+ * without a second copy on disk. Where hard links aren't supported the file is copied instead.
+ * Names are linked in the order the screenshots were captured, so a reused name always ends up on the latest capture even when
+ * an earlier one was still being written. The link is made under a temporary name and moved over the old one, so nothing ever
+ * writes through a link into a stored file that other report entries reference.
+ * <br>
+ * The dedupe counts of every store are logged when the JVM exits and added to the report's system info when the report is closed.
+ * <p>
+ * Usage Example:
+ * <br>
+ * {@code ScreenshotStore.Stored stored = ScreenshotStore.forDirectory(Paths.get(outputLocation)).store(writer, png, null, null);}
+ * <br>
+ * {@code reporter.addScreenshot(outputLocation + stored.getRelativePath(), "login");}
+ */
+public class ScreenshotStore {
+    public static final String OBJECTS_DIRECTORY = "objects/";
+
+    private static final Map<Path, ScreenshotStore> STORES = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (getCapturedCount() > 0) {
+                Logger.log(getSummary());
+            }
+        }, "screenshot-store-summary"));
+        ExtentReporter.addRunSummary(ScreenshotStore::addToReport);
+    }
+
+    private final Path directory;
+    private final Map<String, CompletableFuture<Path>> objects = new ConcurrentHashMap<>();
+    private final Map<Path, CompletableFuture<Void>> links = new ConcurrentHashMap<>();
+    private final AtomicLong captured = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong deduplicatedBytes = new AtomicLong();
+
+    ScreenshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the store for the directory, shared by every wrapper saving screenshots there
+     */
+    public static ScreenshotStore forDirectory(Path directory) {
+        return STORES.computeIfAbsent(directory.toAbsolutePath().normalize(), ScreenshotStore::new);
+    }
+
+    /**
+     * Store a screenshot as it was captured, see {@link #store(ScreenshotWriter, byte[], Rectangle, ScreenshotProfile, Path)}.
+     */
+    public Stored store(ScreenshotWriter writer, byte[] png, Rectangle crop, Path namedLink) {
+        return store(writer, png, crop, ScreenshotProfile.LOSSLESS, namedLink);
+    }
+
+    /**
+     * Store a screenshot, queuing it on the writer unless the same content is already stored with the same crop and profile.
+     *
+     * @param writer    the writer to queue new screenshots on
+     * @param png       the screenshot as captured, PNG encoded
+     * @param crop      the part of the screenshot to keep, or null to store it as it is
+     * @param profile   the format, quality and size to store it in
+     * @param namedLink a path to hard link to the stored file once it and every screenshot stored earlier under the same name are written, or null
+     * @return the stored file's path relative to the store's directory, for the report to reference, and a future for its write
+     */
+    public Stored store(ScreenshotWriter writer, byte[] png, Rectangle crop, ScreenshotProfile profile, Path namedLink) {
+        String hash = hash(png, crop, profile);
+        String relativePath = OBJECTS_DIRECTORY + hash.substring(0, 2) + "/" + hash + "." + profile.getFormat().getExtension();
+        captured.incrementAndGet();
+
+        CompletableFuture<Path> queued = new CompletableFuture<>();
+        CompletableFuture<Path> object = objects.putIfAbsent(hash, queued);
+        if (object == null) {
+            object = queued;
+            CompletableFuture<Path> written;
+            try {
+                written = writer.write(png, directory.resolve(relativePath), crop, profile);
+            } catch (RuntimeException e) {
+                objects.remove(hash, queued);
+                throw e;
+            }
+            written.whenComplete((path, error) -> {
+                if (error != null) {
+                    //let the next capture of this frame try again instead of referencing a file that was never written
+                    objects.remove(hash, queued);
+                    queued.completeExceptionally(error);
+                } else {
+                    queued.complete(path);
+                }
+            });
+        } else {
+            deduplicated.incrementAndGet();
+            deduplicatedBytes.addAndGet(png.length);
+        }
+
+        CompletableFuture<Path> written = namedLink == null ? object : linkInOrder(object, namedLink);
+        return new Stored(relativePath, written);
+    }
+
+    /**
+     * Link the name once the object is written and every earlier link to the same name is done, whether or not they succeeded.
+     */
+    private CompletableFuture<Path> linkInOrder(CompletableFuture<Path> object, Path namedLink) {
+        Path key = namedLink.toAbsolutePath().normalize();
+        CompletableFuture<Void> linked = links.compute(key, (name, previous) ->
+                (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous.exceptionally(error -> null))
+                        .thenCompose(ignored -> object)
+                        .thenAccept(path -> link(path, namedLink)));
+        linked.whenComplete((ignored, error) -> links.remove(key, linked));
+        return linked.thenApply(ignored -> namedLink);
+    }
+
+    private static void link(Path object, Path namedLink) {
+        Path temp = namedLink.resolveSibling("." + namedLink.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            if (namedLink.getParent() != null) {
+                Files.createDirectories(namedLink.getParent());
+            }
+            try {
+                Files.createLink(temp, object);
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                Files.copy(object, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            ScreenshotWriter.moveIntoPlace(temp, namedLink);
+        } catch (IOException e) {
+            ErrorHandler.printErr("Error linking screenshot " + namedLink + " to " + object, e);
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                //left behind when the name was already a link to the same file, which a move leaves as it is
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                ErrorHandler.printErr("Error deleting " + temp, e);
+            }
+        }
+    }
+
+    static String hash(byte[] png, Rectangle crop, ScreenshotProfile profile) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        digest.update(png);
+        if (crop != null) {
+            digest.update(ByteBuffer.allocate(16).putInt(crop.getX()).putInt(crop.getY()).putInt(crop.getWidth()).putInt(crop.getHeight()).array());
+        }
+        if (!profile.isLossless()) {
+            digest.update(profile.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    //===== METRICS =====
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the screenshots stored, including duplicates
+     */
+    public long getCaptured() {
+        return captured.get();
+    }
+
+    /**
+     * @return the screenshots that were already stored and cost no write
+     */
+    public long getDeduplicated() {
+        return deduplicated.get();
+    }
+
+    /**
+     * @return the PNG bytes of the captures that were already stored
+     */
+    public long getDeduplicatedBytes() {
+        return deduplicatedBytes.get();
+    }
+
+    /**
+     * @return the share of screenshots that were duplicates, from 0 to 1
+     */
+    public double getDedupeRatio() {
+        long total = captured.get();
+        return total == 0 ? 0 : (double) deduplicated.get() / total;
+    }
+
+    public static long getCapturedCount() {
+        return STORES.values().stream().mapToLong(ScreenshotStore::getCaptured).sum();
+    }
+
+    /**
+     * @return the counts of every store this run, e.g. "Screenshots: 1200 captured, 310 unique, 74.2% deduplicated, 412.5 MB not written"
+     */
+    public static String getSummary() {
+        long total = getCapturedCount();
+        long duplicates = STORES.values().stream().mapToLong(ScreenshotStore::getDeduplicated).sum();
+        long bytes = STORES.values().stream().mapToLong(ScreenshotStore::getDeduplicatedBytes).sum();
+        double ratio = total == 0 ? 0 : 100.0 * duplicates / total;
+        return String.format("Screenshots: %d captured, %d unique, %.1f%% deduplicated, %.1f MB not written",
+                total, total - duplicates, ratio, bytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Add the run's dedupe counts to the report's system info. Registered with {@link ExtentReporter#addRunSummary}, which calls it when the report is closed.
+     */
+    public static void addToReport(AutomationReporter reporter) {
+        if (reporter != null && getCapturedCount() > 0) {
+            reporter.addSystemInfo("Screenshots", getSummary().substring("Screenshots: ".length()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Screenshot store %s: %d captured, %d unique, %.1f%% deduplicated",
+                directory, captured.get(), captured.get() - deduplicated.get(), 100 * getDedupeRatio());
+    }
+
+    /**
+     * A saved screenshot: the file the report references and the write the caller can wait for.
+     */
+    public static class Stored {
+        private final String relativePath;
+        private final CompletableFuture<Path> written;
+
+        Stored(String relativePath, CompletableFuture<Path> written) {
+            this.relativePath = relativePath;
+            this.written = written;
+        }
+
+        /**
+         * @return the stored file's path relative to the store's directory
+         */
+        public String getRelativePath() {
+            return relativePath;
+        }
+
+        /**
+         * @return a future that completes with the named link once it is linked, or with the stored file if there is no link,
+         * and exceptionally if either could not be written
+         */
+        public CompletableFuture<Path> getWritten() {
+            return written;
+        }
+    }
+}
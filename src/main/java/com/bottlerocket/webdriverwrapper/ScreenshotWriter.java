@@ -0,0 +1,325 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.config.AutomationConfigProperties;
+import com.bottlerocket.utils.ErrorHandler;
+import com.bottlerocket.utils.Logger;
+import org.openqa.selenium.Rectangle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes screenshots to disk on background threads so the test thread only pays for the capture itself.
+ * <br>
+ * The test thread captures the screenshot as bytes and queues it. A writer thread crops and encodes it with its {@link ScreenshotProfile} and writes it with a
+ * {@link FileChannel}. The queue is bounded: when it is full, {@link #write(byte[], Path, Rectangle)} blocks until there is room,
+ * so a slow disk slows the tests down rather than filling the heap with screenshots.
+ * <br>
+ * Each writer thread has its own queue and a target always goes to the same one, so screenshots queued for the same file
+ * (a reused name like "failure.png") are written in the order they were queued and the last one wins.
+ * Files are written to a temporary file next to the target and moved into place, so a reader never sees a partly written screenshot.
+ * <br>
+ * {@link #flush()} waits for everything queued so far to be written, and {@link #close()} flushes before stopping the writer threads.
+ * The shared writer is flushed by a shutdown hook, so screenshots queued at the end of a run are not lost.
+ * <p>
+ * Usage Example:
+ * <br>
+ * {@code driverWrapper.getScreenshotWriter().write(driverWrapper.getScreenshotBytes(), Paths.get("screenshots/login.png"), null);}
+ */
+public class ScreenshotWriter implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 32;
+    public static final int DEFAULT_THREADS = 2;
+
+    private static volatile ScreenshotWriter shared;
+
+    private final List<BlockingQueue<Job>> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final Object flushLock = new Object();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean closed;
+
+    private final LatencyHistogram writeTime = new LatencyHistogram();
+    private final LatencyHistogram backpressureWait = new LatencyHistogram();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    /**
+     * @param capacity the number of screenshots that can wait to be written before {@link #write(byte[], Path, Rectangle)} blocks,
+     *                 split between the writer threads
+     * @param threads  the number of writer threads
+     */
+    public ScreenshotWriter(int capacity, int threads) {
+        int workerCount = Math.max(1, threads);
+        int workerCapacity = Math.max(1, (capacity + workerCount - 1) / workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            BlockingQueue<Job> queue = new ArrayBlockingQueue<>(workerCapacity);
+            queues.add(queue);
+            Thread worker = new Thread(() -> drain(queue), "screenshot-writer-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * @return the writer shared by every wrapper, created with SCREENSHOT_QUEUE_CAPACITY and SCREENSHOT_WRITER_THREADS the first time it is used
+     */
+    public static ScreenshotWriter getShared(AutomationConfigProperties config) {
+        return getShared(config.screenshotQueueCapacity, config.screenshotWriterThreads);
+    }
+
+    /**
+     * @return the writer shared by every wrapper, created with the default capacity and threads if no config has created it yet
+     */
+    public static ScreenshotWriter getShared() {
+        return getShared(DEFAULT_CAPACITY, DEFAULT_THREADS);
+    }
+
+    private static ScreenshotWriter getShared(int capacity, int threads) {
+        if (shared == null) {
+            synchronized (ScreenshotWriter.class) {
+                if (shared == null) {
+                    ScreenshotWriter writer = new ScreenshotWriter(capacity, threads);
+                    Runtime.getRuntime().addShutdownHook(new Thread(writer::close, "screenshot-writer-shutdown"));
+                    shared = writer;
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Queue a screenshot to be written as it was captured, blocking while the queue is full.
+     *
+     * @param png    the screenshot as captured, PNG encoded
+     * @param target the file to write
+     * @param crop   the part of the screenshot to keep, or null to write it as it is
+     * @return a future that completes with the target once it is written, or exceptionally if it could not be written
+     */
+    public CompletableFuture<Path> write(byte[] png, Path target, Rectangle crop) {
+        return write(png, target, crop, ScreenshotProfile.LOSSLESS);
+    }
+
+    /**
+     * Queue a screenshot to be encoded with the profile and written, blocking while the queue is full.
+     *
+     * @param png     the screenshot as captured, PNG encoded
+     * @param target  the file to write
+     * @param crop    the part of the screenshot to keep, or null to write it as it is
+     * @param profile the format, quality and size to write it in
+     * @return a future that completes with the target once it is written, or exceptionally if it could not be written
+     */
+    public CompletableFuture<Path> write(byte[] png, Path target, Rectangle crop, ScreenshotProfile profile) {
+        if (closed) {
+            throw new IllegalStateException("The screenshot writer is closed, unable to write " + target);
+        }
+
+        Job job = new Job(png, target, crop, profile);
+        BlockingQueue<Job> queue = queueFor(target);
+        pending.incrementAndGet();
+        long startNanos = System.nanoTime();
+        try {
+            if (!queue.offer(job)) {
+                queue.put(job);
+                backpressureWait.record((System.nanoTime() - startNanos) / 1000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done();
+            job.future.completeExceptionally(e);
+            return job.future;
+        }
+        maxQueueDepth.accumulateAndGet(getQueueDepth(), Math::max);
+        return job.future;
+    }
+
+    private BlockingQueue<Job> queueFor(Path target) {
+        return queues.get(Math.floorMod(target.toAbsolutePath().normalize().hashCode(), queues.size()));
+    }
+
+    private void drain(BlockingQueue<Job> queue) {
+        while (true) {
+            Job job;
+            try {
+                job = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (job == null) {
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+
+            long startNanos = System.nanoTime();
+            try {
+                writeFile(job.target, job.profile.encode(job.png, job.crop));
+                written.incrementAndGet();
+                job.future.complete(job.target);
+            } catch (IOException | RuntimeException e) {
+                failed.incrementAndGet();
+                ErrorHandler.printErr("Error writing screenshot " + job.target, e);
+                job.future.completeExceptionally(e);
+            } finally {
+                writeTime.record((System.nanoTime() - startNanos) / 1000);
+                done();
+            }
+        }
+    }
+
+    private static void writeFile(Path target, byte[] bytes) throws IOException {
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+
+        Path directory = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, "." + target.getFileName(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            moveIntoPlace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Replace the target with the file, atomically where the file system supports it.
+     * Replacing rather than writing in place also leaves alone any other file the target was hard linked to.
+     */
+    public static void moveIntoPlace(Path file, Path target) throws IOException {
+        try {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void done() {
+        if (pending.decrementAndGet() == 0) {
+            synchronized (flushLock) {
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wait until every screenshot queued so far has been written or has failed.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            while (pending.get() > 0) {
+                try {
+                    flushLock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop accepting screenshots, write everything already queued, then stop the writer threads.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        flush();
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        Logger.log(toString());
+    }
+
+    //===== METRICS =====
+
+    public int getQueueDepth() {
+        return queues.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return the screenshots queued or being written
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return how long each crop, encode and write took on the writer thread, in microseconds
+     */
+    public LatencyHistogram getWriteTime() {
+        return writeTime;
+    }
+
+    /**
+     * @return how long test threads blocked on a full queue, in microseconds, one value per blocked write
+     */
+    public LatencyHistogram getBackpressureWait() {
+        return backpressureWait;
+    }
+
+    @Override
+    public String toString() {
+        return "Screenshot writer: " + written.get() + " written, " + failed.get() + " failed, " + pending.get() + " pending, queue depth " +
+                getQueueDepth() + " (max " + maxQueueDepth.get() + " of " + queues.stream().mapToInt(queue -> queue.size() + queue.remainingCapacity()).sum() + "), write p50 " +
+                writeTime.getPercentile(50) / 1000 + " ms, " + backpressureWait.getCount() + " writes blocked on a full queue";
+    }
+
+    private static class Job {
+        private final byte[] png;
+        private final Path target;
+        private final Rectangle crop;
+        private final ScreenshotProfile profile;
+        private final CompletableFuture<Path> future = new CompletableFuture<>();
+
+        Job(byte[] png, Path target, Rectangle crop, ScreenshotProfile profile) {
+            this.png = png;
+            this.target = target;
+            this.crop = crop;
+            this.profile = profile;
+        }
+    }
+}
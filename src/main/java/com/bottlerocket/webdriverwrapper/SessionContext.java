@@ -0,0 +1,147 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.config.AutomationConfigProperties;
+import com.bottlerocket.reporters.AutomationReporter;
+import com.bottlerocket.webdriverwrapper.uiElementLocator.TestPlatform;
+
+import java.util.function.Supplier;
+
+/**
+ * The per-session state that used to live in statics: the test platform, the driver wrapper, the reporter and the config.
+ * <br>
+ * Each thread can bind its own context, so one JVM can run several drivers at once (e.g. TestNG parallel="methods").
+ * Threads that haven't bound a context share the global one, which behaves exactly like the old statics,
+ * so single-driver runs don't need to change anything.
+ * <p>
+ * Usage Example (one driver per test method):
+ * <br>
+ * {@code @BeforeMethod public void setUp() { SessionContext.bindNew(); driverWrapper = new WebDriverWrapperGeneric(config); }}
+ * <br>
+ * {@code @AfterMethod public void tearDown() { driverWrapper.quit(); SessionContext.unbind(); }}
+ * <br>
+ * A wrapper remembers the context it was created in, see {@link WebDriverWrapper#getSessionContext()}, so it keeps using its own platform
+ * even when it is handed to another thread.
+ */
+public class SessionContext {
+    private static final SessionContext GLOBAL = new SessionContext();
+    private static final ThreadLocal<SessionContext> BOUND = new ThreadLocal<>();
+
+    private volatile TestPlatform testPlatform;
+    private volatile String runtimePlatform;
+    private volatile WebDriverWrapper driverWrapper;
+    private volatile AutomationReporter reporter;
+    private volatile AutomationConfigProperties config;
+
+    /**
+     * @return the context bound to this thread, or the global context if none is bound
+     */
+    public static SessionContext current() {
+        SessionContext bound = BOUND.get();
+        return bound != null ? bound : GLOBAL;
+    }
+
+    /**
+     * @return the context shared by every thread that hasn't bound its own
+     */
+    public static SessionContext global() {
+        return GLOBAL;
+    }
+
+    public static boolean isBound() {
+        return BOUND.get() != null;
+    }
+
+    public static void bind(SessionContext context) {
+        BOUND.set(context);
+    }
+
+    /**
+     * Bind a new, empty context to this thread.
+     *
+     * @return the new context
+     */
+    public static SessionContext bindNew() {
+        SessionContext context = new SessionContext();
+        bind(context);
+        return context;
+    }
+
+    /**
+     * Remove this thread's context. Call this when the session ends, pooled threads otherwise keep the old context.
+     */
+    public static void unbind() {
+        BOUND.remove();
+    }
+
+    /**
+     * Run the action with the given context bound to this thread, then restore the context that was bound before.
+     */
+    public static <T> T callWith(SessionContext context, Supplier<T> action) {
+        SessionContext previous = BOUND.get();
+        BOUND.set(context);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                BOUND.remove();
+            } else {
+                BOUND.set(previous);
+            }
+        }
+    }
+
+    public static void runWith(SessionContext context, Runnable action) {
+        callWith(context, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public TestPlatform getTestPlatform() {
+        return testPlatform;
+    }
+
+    public void setTestPlatform(TestPlatform testPlatform) {
+        this.testPlatform = testPlatform;
+    }
+
+    /**
+     * @return the platform name used by {@link com.bottlerocket.config.ResourceLocatorBundle}, e.g. "web", "iOS" or "android"
+     */
+    public String getRuntimePlatform() {
+        return runtimePlatform;
+    }
+
+    public void setRuntimePlatform(String runtimePlatform) {
+        this.runtimePlatform = runtimePlatform;
+    }
+
+    public WebDriverWrapper getDriverWrapper() {
+        return driverWrapper;
+    }
+
+    public void setDriverWrapper(WebDriverWrapper driverWrapper) {
+        this.driverWrapper = driverWrapper;
+    }
+
+    public AutomationReporter getReporter() {
+        return reporter;
+    }
+
+    public void setReporter(AutomationReporter reporter) {
+        this.reporter = reporter;
+    }
+
+    public AutomationConfigProperties getConfig() {
+        return config;
+    }
+
+    public void setConfig(AutomationConfigProperties config) {
+        this.config = config;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionContext{" + (this == GLOBAL ? "global, " : "") + "platform=" + testPlatform + ", driverWrapper=" + driverWrapper + "}";
+    }
+}
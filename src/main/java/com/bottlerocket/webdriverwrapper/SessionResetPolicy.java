@@ -0,0 +1,175 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.bash.BashCommand;
+import com.bottlerocket.bash.BashRunner;
+import com.bottlerocket.config.AutomationConfigProperties;
+import com.bottlerocket.errorhandling.WebDriverWrapperException;
+import com.bottlerocket.utils.Logger;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * How a session is cleaned up between tests so the next test starts from a known state without paying for a new session.
+ * Used by {@link WebDriverWrapper#resetSession()} and the {@link DriverSessionPool}.
+ * <br>
+ * A policy that throws means the session could not be reset and should be replaced.
+ */
+public interface SessionResetPolicy {
+
+    void reset(WebDriverWrapper driverWrapper) throws Exception;
+
+    /**
+     * Hand the session to the next test as it was left.
+     */
+    SessionResetPolicy NONE = driverWrapper -> {
+    };
+
+    /**
+     * Clear local and session storage and cookies, close every window but the current one, then load the start URL.
+     *
+     * @param startUrl the page each test starts on, e.g. "about:blank" or the site's home page
+     */
+    static SessionResetPolicy clearBrowserState(String startUrl) {
+        return driverWrapper -> {
+            String mainWindow = driverWrapper.getDriver().getWindowHandle();
+            for (String windowHandle : driverWrapper.getWindowHandles()) {
+                if (!windowHandle.equals(mainWindow)) {
+                    driverWrapper.switchToWindow(windowHandle);
+                    driverWrapper.close();
+                }
+            }
+            driverWrapper.switchToWindow(mainWindow);
+
+            //storage is per origin, so it has to be cleared before leaving the page
+            driverWrapper.executeScript("try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+            driverWrapper.getDriver().manage().deleteAllCookies();
+            driverWrapper.navigateTo(startUrl);
+        };
+    }
+
+    /**
+     * Terminate and activate the app, which returns it to its launch screen but keeps its data.
+     *
+     * @param appId the bundle id (iOS) or package (Android) of the app
+     */
+    static SessionResetPolicy restartApp(String appId) {
+        return driverWrapper -> {
+            AppiumDriverWrapper appiumDriverWrapper = (AppiumDriverWrapper) driverWrapper;
+            appiumDriverWrapper.terminateApp(appId);
+            appiumDriverWrapper.activateApp(appId);
+            appiumDriverWrapper.getElementCache().invalidate();
+        };
+    }
+
+    /**
+     * Stop the app and clear its data with "adb shell pm clear", then activate it. The app starts as if freshly installed.
+     * Android only, adb must be on the path of the machine running the tests.
+     *
+     * @param appPackage the package of the app
+     * @param udid       the device to run adb against, or null/empty if only one device is connected
+     */
+    static SessionResetPolicy clearAppData(String appPackage, String udid) {
+        return driverWrapper -> {
+            AppiumDriverWrapper appiumDriverWrapper = (AppiumDriverWrapper) driverWrapper;
+            appiumDriverWrapper.terminateApp(appPackage);
+
+            File out = File.createTempFile("adb_clear_out", ".txt");
+            File err = File.createTempFile("adb_clear_err", ".txt");
+            try {
+                BashCommand command = new BashCommand("adb");
+                if (udid != null && !udid.isEmpty()) {
+                    command.addParam("-s", udid);
+                }
+                command.addParam("shell", "pm");
+                command.addParam("clear", appPackage);
+                new BashRunner(out.getAbsolutePath(), err.getAbsolutePath()).executeCommand(command, true);
+
+                List<String> output = Files.readAllLines(out.toPath());
+                if (!output.contains("Success")) {
+                    throw new WebDriverWrapperException("Unable to clear the data of " + appPackage + ": " + output + " " + Files.readAllLines(err.toPath()));
+                }
+            } finally {
+                out.delete();
+                err.delete();
+            }
+
+            appiumDriverWrapper.activateApp(appPackage);
+            appiumDriverWrapper.getElementCache().invalidate();
+        };
+    }
+
+    /**
+     * Close and launch the app with {@link AppiumDriverWrapper#resetApp()}. Appium applies the session's noReset/fullReset settings on launch.
+     */
+    SessionResetPolicy RESET_APP = driverWrapper -> {
+        AppiumDriverWrapper appiumDriverWrapper = (AppiumDriverWrapper) driverWrapper;
+        appiumDriverWrapper.resetApp();
+        appiumDriverWrapper.getElementCache().invalidate();
+    };
+
+    /**
+     * Don't reuse the session: the reset always fails, so {@link WebDriverWrapper#resetSession()} callers and the {@link DriverSessionPool}
+     * replace it with a new session. For fullReset, which reinstalls the app when a session starts and can't be done within a session.
+     */
+    SessionResetPolicy NEW_SESSION = driverWrapper -> {
+        throw new WebDriverWrapperException("The session reset policy starts a new session for every test");
+    };
+
+    /**
+     * Pick the policy from SESSION_RESET: "none", "browser", "restart", "clear_data", "reset_app", "new_session" or "auto".
+     * <br>
+     * "auto" clears browser state on web. On mobile it follows the session's reset settings:
+     * fullReset starts a new session for every test so the app is reinstalled, noReset keeps app data and only restarts the app,
+     * otherwise a local Android device has its app data cleared and remote Android devices and iOS reset the app.
+     * A remote device can't be reached with adb from the machine running the tests.
+     *
+     * @param config the run configuration
+     * @return the reset policy for the config
+     */
+    static SessionResetPolicy fromConfig(AutomationConfigProperties config) {
+        String appId = config.isIos() || config.isIpad() ? config.bundleId : config.appPackage;
+        String reset = config.sessionReset == null ? "auto" : config.sessionReset.toLowerCase();
+
+        switch (reset) {
+            case "none":
+                return NONE;
+            case "browser":
+                return clearBrowserState(config.sessionResetUrl);
+            case "restart":
+                return restartApp(appId);
+            case "clear_data":
+                return clearAppData(appId, config.udid);
+            case "reset_app":
+                return RESET_APP;
+            case "new_session":
+                return NEW_SESSION;
+            case "auto":
+                break;
+            default:
+                Logger.log("Session reset " + config.sessionReset + " not recognized, choosing one for the platform.");
+        }
+
+        if (config.isWeb()) {
+            Logger.log("Session reset: clearing browser state and loading " + config.sessionResetUrl + ".");
+            return clearBrowserState(config.sessionResetUrl);
+        } else if (config.isAndroid() || config.isAndroidTablet() || config.isIos() || config.isIpad()) {
+            if (config.fullReset) {
+                Logger.log("Session reset: starting a new session for every test, fullReset reinstalls " + appId + " when a session starts.");
+                return NEW_SESSION;
+            } else if (config.noReset) {
+                Logger.log("Session reset: restarting " + appId + ", noReset keeps its data.");
+                return restartApp(appId);
+            } else if ((config.isAndroid() || config.isAndroidTablet()) && !config.remote) {
+                Logger.log("Session reset: clearing the data of " + appId + " with adb.");
+                return clearAppData(appId, config.udid);
+            }
+            Logger.log("Session reset: resetting " + appId + (config.isAndroid() || config.isAndroidTablet() ? ", adb can't reach a remote device." : "."));
+            return RESET_APP;
+        }
+
+        Logger.log("No session reset available for platform " + config.platformName + ", sessions will not be reset between tests.");
+        return NONE;
+    }
+}
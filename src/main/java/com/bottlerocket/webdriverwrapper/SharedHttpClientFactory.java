@@ -0,0 +1,114 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.config.AutomationConfigProperties;
+import com.bottlerocket.utils.Logger;
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.HttpClient;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The HTTP client factory used for every remote session the framework creates (Selenium Grid, Sauce, remote and local Appium).
+ * <br>
+ * Without this each RemoteWebDriver, AndroidDriver and IOSDriver looks up and builds its own client factory with Selenium's defaults.
+ * Sharing one factory per configuration keeps the underlying connection pool and event loop alive across sessions, so later sessions
+ * reuse warm keep-alive connections instead of paying for new TCP and TLS handshakes, and the timeouts come from the config.
+ * <br>
+ * The client implementation is picked with HTTP_CLIENT_FACTORY, the same names Selenium accepts in the webdriver.http.factory system property.
+ * Use an HTTP/2 capable implementation there (e.g. "jdk-http-client" when selenium-http-jdk-client is on the classpath) to get HTTP/2.
+ */
+public class SharedHttpClientFactory implements HttpClient.Factory {
+    private static final Map<String, SharedHttpClientFactory> SHARED = new ConcurrentHashMap<>();
+
+    private final HttpClient.Factory delegate;
+    private final String delegateName;
+    private final Duration connectTimeout;
+    private final Duration readTimeout;
+    private final boolean commandTrace;
+    private final AtomicLong clientsCreated = new AtomicLong();
+
+    public SharedHttpClientFactory(String delegateName, Duration connectTimeout, Duration readTimeout) {
+        this(delegateName, connectTimeout, readTimeout, false);
+    }
+
+    /**
+     * @param commandTrace record the commands sent by this factory's clients with the global {@link CommandTracer}
+     */
+    public SharedHttpClientFactory(String delegateName, Duration connectTimeout, Duration readTimeout, boolean commandTrace) {
+        this.delegateName = delegateName == null || delegateName.isEmpty() ? "default" : delegateName;
+        this.delegate = delegateName == null || delegateName.isEmpty() ? CommandTraceHttpClientFactory.createUntracedDefault() : HttpClient.Factory.create(delegateName);
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.commandTrace = commandTrace;
+    }
+
+    /**
+     * @return the factory shared by every session created with the same HTTP settings as this config
+     */
+    public static SharedHttpClientFactory getShared(AutomationConfigProperties config) {
+        String key = config.httpClientFactory + "|" + config.httpConnectTimeoutSeconds + "|" + config.httpReadTimeoutSeconds + "|" + config.commandTrace;
+        return SHARED.computeIfAbsent(key, k -> {
+            SharedHttpClientFactory factory = new SharedHttpClientFactory(config.httpClientFactory,
+                    Duration.ofSeconds(config.httpConnectTimeoutSeconds), Duration.ofSeconds(config.httpReadTimeoutSeconds),
+                    config.commandTrace);
+            Logger.log("Created shared HTTP client factory: " + factory);
+            return factory;
+        });
+    }
+
+    /**
+     * @return a client config for the remote server with this factory's timeouts
+     */
+    public ClientConfig clientConfig(URL url) {
+        return ClientConfig.defaultConfig().baseUrl(url).connectionTimeout(connectTimeout).readTimeout(readTimeout);
+    }
+
+    @Override
+    public HttpClient createClient(URL url) {
+        return createClient(clientConfig(url));
+    }
+
+    @Override
+    public HttpClient createClient(ClientConfig config) {
+        clientsCreated.incrementAndGet();
+        ClientConfig clientConfig = withTimeouts(config);
+        if (commandTrace) {
+            clientConfig = clientConfig.withFilter(CommandTracer.getGlobal().filter());
+        }
+        return delegate.createClient(clientConfig);
+    }
+
+    /**
+     * Apply this factory's timeouts where the caller's config still has Selenium's defaults, a timeout the caller chose is kept.
+     */
+    private ClientConfig withTimeouts(ClientConfig config) {
+        ClientConfig defaults = ClientConfig.defaultConfig();
+        ClientConfig clientConfig = config;
+        if (clientConfig.connectionTimeout().equals(defaults.connectionTimeout())) {
+            clientConfig = clientConfig.connectionTimeout(connectTimeout);
+        }
+        if (clientConfig.readTimeout().equals(defaults.readTimeout())) {
+            clientConfig = clientConfig.readTimeout(readTimeout);
+        }
+        return clientConfig;
+    }
+
+    @Override
+    public void cleanupIdleClients() {
+        delegate.cleanupIdleClients();
+    }
+
+    public long getClientsCreated() {
+        return clientsCreated.get();
+    }
+
+    @Override
+    public String toString() {
+        return "SharedHttpClientFactory{" + delegateName + ", connect timeout " + connectTimeout.toSeconds() + "s, read timeout " +
+                readTimeout.toSeconds() + "s, " + (commandTrace ? "command trace on, " : "") + clientsCreated.get() + " clients created}";
+    }
+}
@@ -0,0 +1,128 @@
+package com.bottlerocket.webdriverwrapper;
+
+import org.openqa.selenium.Rectangle;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only element from a {@link PageSnapshot}.
+ * <br>
+ * Everything here is read from the parsed page source, so no calls are made to the driver. The values are as of the moment the snapshot was taken.
+ * To interact with the element, get the live element with {@link PageSnapshot#getLiveElement(org.openqa.selenium.By)}.
+ */
+public class SnapshotElement {
+    private final Element element;
+
+    SnapshotElement(Element element) {
+        this.element = element;
+    }
+
+    /**
+     * @return the node name, e.g. "android.widget.TextView" or "XCUIElementTypeButton"
+     */
+    public String getTagName() {
+        return element.getTagName();
+    }
+
+    /**
+     * @return the attribute value, or null if the element doesn't have the attribute
+     */
+    public String getAttribute(String name) {
+        return element.hasAttribute(name) ? element.getAttribute(name) : null;
+    }
+
+    public Map<String, String> getAttributes() {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        NamedNodeMap nodeMap = element.getAttributes();
+        for (int i = 0; i < nodeMap.getLength(); i++) {
+            attributes.put(nodeMap.item(i).getNodeName(), nodeMap.item(i).getNodeValue());
+        }
+        return attributes;
+    }
+
+    /**
+     * @return the element's text. Android uses "text", iOS uses "label" or "value". Empty if the element has none of these.
+     */
+    public String getText() {
+        for (String attribute : List.of("text", "label", "value")) {
+            if (element.hasAttribute(attribute)) {
+                return element.getAttribute(attribute);
+            }
+        }
+
+        return "";
+    }
+
+    public boolean isDisplayed() {
+        // UiAutomator2 uses "displayed", XCUITest uses "visible"
+        if (element.hasAttribute("displayed")) {
+            return Boolean.parseBoolean(element.getAttribute("displayed"));
+        } else if (element.hasAttribute("visible")) {
+            return Boolean.parseBoolean(element.getAttribute("visible"));
+        }
+
+        Rectangle rect = getRect();
+        return rect != null && rect.getWidth() > 0 && rect.getHeight() > 0;
+    }
+
+    /**
+     * @return the bounds of the element, or null if the page source doesn't include them
+     */
+    public Rectangle getRect() {
+        // Android: bounds="[x1,y1][x2,y2]"
+        String bounds = element.getAttribute("bounds");
+        if (!bounds.isEmpty()) {
+            String[] coordinates = bounds.replace("][", ",").replace("[", "").replace("]", "").split(",");
+            if (coordinates.length == 4) {
+                try {
+                    int x1 = Integer.parseInt(coordinates[0].trim());
+                    int y1 = Integer.parseInt(coordinates[1].trim());
+                    int x2 = Integer.parseInt(coordinates[2].trim());
+                    int y2 = Integer.parseInt(coordinates[3].trim());
+                    return new Rectangle(x1, y1, y2 - y1, x2 - x1);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+
+        // iOS: x, y, width, height
+        if (element.hasAttribute("x") && element.hasAttribute("width")) {
+            try {
+                return new Rectangle(
+                        Integer.parseInt(element.getAttribute("x")),
+                        Integer.parseInt(element.getAttribute("y")),
+                        Integer.parseInt(element.getAttribute("height")),
+                        Integer.parseInt(element.getAttribute("width"))
+                );
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        return null;
+    }
+
+    public List<SnapshotElement> getChildren() {
+        List<SnapshotElement> children = new ArrayList<>();
+        NodeList nodes = element.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (nodes.item(i).getNodeType() == Node.ELEMENT_NODE) {
+                children.add(new SnapshotElement((Element) nodes.item(i)));
+            }
+        }
+        return children;
+    }
+
+    @Override
+    public String toString() {
+        return getTagName() + getAttributes();
+    }
+}
@@ -0,0 +1,208 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.config.AutomationConfigProperties;
+import com.bottlerocket.config.AutomationConfigPropertiesLoader;
+import com.bottlerocket.reporters.AutomationReporter;
+import com.bottlerocket.reporters.ExtentReporter;
+import com.bottlerocket.utils.ErrorHandler;
+import com.bottlerocket.utils.Logger;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Times each phase of the bootstrap path: loading and binding the config files, building the capabilities,
+ * resolving the driver binary and the session handshake.
+ * <br>
+ * The framework records its own phases in {@link #current()}, which is the global profiler outside of a benchmark.
+ * The config loading phases are recorded by passing the profiler to the {@link AutomationConfigPropertiesLoader}.
+ * The table is logged once the first driver wrapper is up, and each phase is added to the report's system info once, when the report is closed.
+ * "session: create driver" includes "driver: resolve binary" for local browsers, the rest of it is the session handshake.
+ * <p>
+ * Usage Example:
+ * <br>
+ * {@code new AutomationConfigPropertiesLoader(StartupProfiler.getGlobal()::record).loadAutomationConfigurations(capabilities);}
+ * <br>
+ * {@code try (StartupProfiler.Phase phase = StartupProfiler.getGlobal().start("seed test data")) { ... }}
+ * <br>
+ * Benchmark mode creates and quits sessions repeatedly and reports the distribution of each phase:
+ * <br>
+ * {@code StartupProfiler.benchmark(config, 20).log();}
+ * <br>
+ * or from the command line, loading the project's config files: {@code java ... com.bottlerocket.webdriverwrapper.StartupProfiler 20}
+ */
+public class StartupProfiler {
+    public static final String DRIVER_BINARY = "driver: resolve binary";
+    public static final String SESSION_CREATE = "session: create driver";
+    public static final String WRAPPER_SETUP = "session: wrapper setup";
+    public static final String SESSION_QUIT = "session: quit";
+
+    private static final StartupProfiler GLOBAL = new StartupProfiler();
+    private static final ThreadLocal<StartupProfiler> BOUND = new ThreadLocal<>();
+
+    static {
+        ExtentReporter.addRunSummary(GLOBAL::addToReport);
+    }
+
+    private final Map<String, LatencyHistogram> phases = new LinkedHashMap<>();
+    private final AtomicBoolean logged = new AtomicBoolean();
+
+    /**
+     * @return the profiler the framework records its startup phases in
+     */
+    public static StartupProfiler getGlobal() {
+        return GLOBAL;
+    }
+
+    /**
+     * @return the profiler of the benchmark running on this thread, or the global one
+     */
+    public static StartupProfiler current() {
+        StartupProfiler bound = BOUND.get();
+        return bound != null ? bound : GLOBAL;
+    }
+
+    /**
+     * Start timing a phase. The phase is recorded when it is closed, so use it in a try-with-resources block.
+     */
+    public Phase start(String name) {
+        return new Phase(this, name);
+    }
+
+    public void record(String name, long micros) {
+        histogram(name).record(micros);
+    }
+
+    private synchronized LatencyHistogram histogram(String name) {
+        return phases.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    /**
+     * @return the phases in the order they first ran
+     */
+    public synchronized Map<String, LatencyHistogram> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    /**
+     * @return a table of each phase with its count, total, median, 95th percentile and max in milliseconds
+     */
+    public String toTable() {
+        Map<String, LatencyHistogram> snapshot = getPhases();
+        int width = Math.max(5, snapshot.keySet().stream().mapToInt(String::length).max().orElse(0));
+        String row = "%-" + width + "s %6s %10s %10s %10s %10s%n";
+
+        StringBuilder table = new StringBuilder(String.format(row, "Phase", "Count", "Total ms", "p50 ms", "p95 ms", "Max ms"));
+        for (Map.Entry<String, LatencyHistogram> phase : snapshot.entrySet()) {
+            LatencyHistogram histogram = phase.getValue();
+            table.append(String.format(row, phase.getKey(), histogram.getCount(), millis(histogram.getTotal()),
+                    millis(histogram.getPercentile(50)), millis(histogram.getPercentile(95)), millis(histogram.getMax())));
+        }
+        return table.toString();
+    }
+
+    public void log() {
+        Logger.log("Startup phases:\n" + toTable());
+    }
+
+    /**
+     * Log the table the first time this is called, later calls do nothing.
+     */
+    void logOnce() {
+        if (logged.compareAndSet(false, true)) {
+            log();
+        }
+    }
+
+    /**
+     * Add the total time of each phase to the report's system info, e.g. "Startup: session: create driver" = "4210 ms".
+     */
+    public void addToReport(AutomationReporter reporter) {
+        if (reporter == null) {
+            return;
+        }
+
+        for (Map.Entry<String, LatencyHistogram> phase : getPhases().entrySet()) {
+            LatencyHistogram histogram = phase.getValue();
+            String value = histogram.getCount() == 1 ? millis(histogram.getTotal()) + " ms" :
+                    millis(histogram.getPercentile(50)) + " ms median of " + histogram.getCount();
+            reporter.addSystemInfo("Startup: " + phase.getKey(), value);
+        }
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.1f", micros / 1000.0);
+    }
+
+    //===== BENCHMARK =====
+
+    /**
+     * Create and quit a session the given number of times in a row and time each phase.
+     * Failed iterations are logged and counted under "benchmark: failed", the rest of the run carries on.
+     *
+     * @param config     the run configuration to create sessions from
+     * @param iterations the number of sessions to create
+     * @return a new profiler with the phases of every iteration, separate from the global one
+     */
+    public static StartupProfiler benchmark(AutomationConfigProperties config, int iterations) {
+        StartupProfiler profiler = new StartupProfiler();
+        BOUND.set(profiler);
+        try {
+            for (int i = 0; i < iterations; i++) {
+                long startNanos = System.nanoTime();
+                try {
+                    WebDriverWrapper driverWrapper = SessionContext.callWith(new SessionContext(), () -> {
+                        try {
+                            return WebDriverWrapper.createDriverWrapper(config);
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    });
+                    profiler.record("benchmark: create session", (System.nanoTime() - startNanos) / 1000);
+
+                    try (Phase quit = profiler.start(SESSION_QUIT)) {
+                        driverWrapper.quit();
+                    }
+                } catch (RuntimeException e) {
+                    profiler.record("benchmark: failed", (System.nanoTime() - startNanos) / 1000);
+                    ErrorHandler.printErr("Benchmark iteration " + (i + 1) + " of " + iterations + " failed", e);
+                }
+            }
+        } finally {
+            BOUND.remove();
+        }
+        return profiler;
+    }
+
+    /**
+     * Load the project's config files and run the benchmark, the first argument is the number of iterations (default 10).
+     */
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        AutomationConfigProperties config = new AutomationConfigPropertiesLoader(GLOBAL::record).loadAutomationConfigurations(new DesiredCapabilities());
+        GLOBAL.log();
+        StartupProfiler results = benchmark(config, iterations);
+        Logger.log("Startup benchmark, " + iterations + " sessions:\n" + results.toTable());
+    }
+
+    /**
+     * A phase being timed, recorded when it is closed.
+     */
+    public static class Phase implements AutoCloseable {
+        private final StartupProfiler profiler;
+        private final String name;
+        private final long startNanos = System.nanoTime();
+
+        Phase(StartupProfiler profiler, String name) {
+            this.profiler = profiler;
+            this.name = name;
+        }
+
+        @Override
+        public void close() {
+            profiler.record(name, (System.nanoTime() - startNanos) / 1000);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.config.ResourceLocatorBundle;
+import org.openqa.selenium.By;
+import org.openqa.selenium.InvalidArgumentException;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+
+/**
+ * A locator paired with the {@link ExpectedConditionsWrapper.EXPECTED_CONDITION} it should meet.
+ * Used with {@link WebDriverWrapper#waitAny(int, WaitCondition...)} and {@link WebDriverWrapper#waitAll(int, WaitCondition...)}.
+ * <br>
+ * Usage Example:
+ * <br>
+ * {@code WaitCondition errorBanner = WaitCondition.of(By.id(ERROR_BANNER), EXPECTED_CONDITION.VISIBLE);}
+ */
+public class WaitCondition {
+    private final By by;
+    private final ExpectedConditionsWrapper.EXPECTED_CONDITION expectedConditionEnum;
+    private final ExpectedCondition<?> expectedCondition;
+
+    private WaitCondition(By by, ExpectedConditionsWrapper.EXPECTED_CONDITION expectedConditionEnum) {
+        this.by = by;
+        this.expectedConditionEnum = expectedConditionEnum;
+        this.expectedCondition = toExpectedCondition(by, expectedConditionEnum);
+    }
+
+    /**
+     * @throws InvalidArgumentException if the condition can't be built from a locator alone, e.g. NUMBER_OF_ELEMENTS_EQUALS
+     */
+    public static WaitCondition of(By by, ExpectedConditionsWrapper.EXPECTED_CONDITION expectedConditionEnum) {
+        return new WaitCondition(by, expectedConditionEnum);
+    }
+
+    public static WaitCondition of(ResourceLocatorBundle rlb, ExpectedConditionsWrapper.EXPECTED_CONDITION expectedConditionEnum) {
+        return new WaitCondition(rlb.getBy(), expectedConditionEnum);
+    }
+
+    private static ExpectedCondition<?> toExpectedCondition(By by, ExpectedConditionsWrapper.EXPECTED_CONDITION expectedConditionEnum) {
+        switch (expectedConditionEnum) {
+            case IS_INVISIBLE:
+            case INVISIBILITY_OF_ELEMENT_LOCATED:
+            case IS_SELECTED:
+            case ELEMENT_TO_BE_SELECTED:
+                return ExpectedConditionsWrapper.getExpectedConditionBoolean(expectedConditionEnum, by);
+            case PRESENCE_OF_ALL_ELEMENTS_LOCATED:
+            case VISIBILITY_OF_ALL_ELEMENTS_LOCATED:
+                return ExpectedConditionsWrapper.getExpectedConditionWebElements(expectedConditionEnum, by);
+            default:
+                return ExpectedConditionsWrapper.getExpectedConditionWebElement(expectedConditionEnum, by);
+        }
+    }
+
+    public By getBy() {
+        return by;
+    }
+
+    public ExpectedConditionsWrapper.EXPECTED_CONDITION getExpectedCondition() {
+        return expectedConditionEnum;
+    }
+
+    /**
+     * Evaluate the condition once.
+     *
+     * @return the value of the condition (an element, a list of elements or true), or null if it is not met yet
+     */
+    Object evaluate(WebDriver driver) {
+        try {
+            Object value = expectedCondition.apply(driver);
+            return value == null || Boolean.FALSE.equals(value) ? null : value;
+        } catch (NotFoundException | StaleElementReferenceException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return by + " to be " + expectedConditionEnum;
+    }
+}
@@ -0,0 +1,62 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.config.AutomationConfigProperties;
+import com.bottlerocket.utils.Logger;
+import org.openqa.selenium.WebDriver;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * A wait engine decides how often a condition is polled while waiting for it to become true.
+ * <br>
+ * The explicit-wait methods in {@link WebDriverWrapper} (getElement, getElements, isConditionTrueBeforeTimeout) run through a wait engine
+ * instead of creating a {@link org.openqa.selenium.support.ui.WebDriverWait}, so the polling behavior can be changed globally from
+ * {@link AutomationConfigProperties#waitEngine} or per call.
+ */
+public interface WaitEngine {
+
+    /**
+     * Poll the condition until it returns a non-null, non-false value or the timeout elapses.
+     *
+     * @param driver    the driver to pass to the condition
+     * @param condition the condition to evaluate, usually an {@link org.openqa.selenium.support.ui.ExpectedCondition}
+     * @param timeout   the hard deadline for the wait
+     * @return the value returned by the condition
+     * @throws org.openqa.selenium.TimeoutException if the condition is not met before the timeout
+     */
+    <T> T until(WebDriver driver, Function<? super WebDriver, T> condition, Duration timeout);
+
+    /**
+     * @return polling information for the most recent wait on the calling thread, or null if this engine has not been used on it.
+     * Engines are shared by parallel tests, so each thread only sees its own waits.
+     */
+    WaitStatistics getLastWaitStatistics();
+
+    long getTotalWaits();
+
+    long getTotalPolls();
+
+    /**
+     * Create the wait engine described by the configuration.
+     * Unrecognized values fall back to the fixed engine, which polls the same way Selenium's WebDriverWait does.
+     *
+     * @param config the run configuration
+     * @return a new wait engine
+     */
+    static WaitEngine waitEngineFactory(AutomationConfigProperties config) {
+        if (config.waitEngine != null && config.waitEngine.equalsIgnoreCase("adaptive")) {
+            return new AdaptiveWaitEngine(
+                    Duration.ofMillis(config.waitFastPollIntervalMillis),
+                    Duration.ofMillis(config.waitFastPollPeriodMillis),
+                    Duration.ofMillis(config.waitMaxPollIntervalMillis)
+            );
+        }
+
+        if (config.waitEngine != null && !config.waitEngine.equalsIgnoreCase("fixed")) {
+            Logger.log("Wait engine " + config.waitEngine + " not recognized, using the fixed interval wait engine.");
+        }
+
+        return new FixedIntervalWaitEngine(Duration.ofMillis(config.waitPollIntervalMillis));
+    }
+}
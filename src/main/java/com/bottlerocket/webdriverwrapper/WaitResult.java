@@ -0,0 +1,94 @@
+package com.bottlerocket.webdriverwrapper;
+
+import org.openqa.selenium.WebElement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of {@link WebDriverWrapper#waitAny(int, WaitCondition...)} or {@link WebDriverWrapper#waitAll(int, WaitCondition...)}.
+ * <br>
+ * For waitAny the fired condition is the first one (in the order they were passed in) that was met on the poll that ended the wait.
+ * For waitAll every condition is fired on success. On a timeout the result lists the conditions that were met on the final poll,
+ * so the ones still pending are the reason for the timeout.
+ */
+public class WaitResult {
+    private final List<WaitCondition> conditions;
+    private final List<WaitCondition> metConditions;
+    private final List<Object> values;
+    private final boolean satisfied;
+    private final WaitStatistics statistics;
+
+    WaitResult(List<WaitCondition> conditions, List<WaitCondition> metConditions, List<Object> values, boolean satisfied, WaitStatistics statistics) {
+        this.conditions = conditions;
+        this.metConditions = metConditions;
+        this.values = values;
+        this.satisfied = satisfied;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return true if the wait ended because its conditions were met, false if it timed out
+     */
+    public boolean isSatisfied() {
+        return satisfied;
+    }
+
+    /**
+     * @return the condition that ended a waitAny, or null if the wait timed out
+     */
+    public WaitCondition getFiredCondition() {
+        return satisfied && !metConditions.isEmpty() ? metConditions.get(0) : null;
+    }
+
+    /**
+     * @return the position of {@link #getFiredCondition()} in the arguments, or -1 if the wait timed out
+     */
+    public int getFiredIndex() {
+        return conditions.indexOf(getFiredCondition());
+    }
+
+    public boolean isFired(WaitCondition condition) {
+        return metConditions.contains(condition);
+    }
+
+    public List<WaitCondition> getMetConditions() {
+        return Collections.unmodifiableList(metConditions);
+    }
+
+    public List<WaitCondition> getPendingConditions() {
+        List<WaitCondition> pending = new ArrayList<>(conditions);
+        pending.removeAll(metConditions);
+        return pending;
+    }
+
+    /**
+     * @return the element found for the condition, or null if the condition was not met or doesn't produce an element (e.g. IS_INVISIBLE)
+     */
+    public WebElement getElement(WaitCondition condition) {
+        int index = metConditions.indexOf(condition);
+        return index >= 0 && values.get(index) instanceof WebElement ? (WebElement) values.get(index) : null;
+    }
+
+    /**
+     * @return the element found for the fired condition of a waitAny, or null if there isn't one
+     */
+    public WebElement getElement() {
+        WaitCondition fired = getFiredCondition();
+        return fired == null ? null : getElement(fired);
+    }
+
+    /**
+     * @return polling information for the wait, or null if the engine doesn't record it
+     */
+    public WaitStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public String toString() {
+        return (satisfied ? "Met " + metConditions : "Timed out waiting for " + getPendingConditions()) +
+                (statistics == null ? "" : " (" + statistics + ")");
+    }
+}
@@ -0,0 +1,42 @@
+package com.bottlerocket.webdriverwrapper;
+
+import java.time.Duration;
+
+/**
+ * Polling information for a single wait performed by a {@link WaitEngine}.
+ * Each poll is at least one command sent to the driver, so comparing poll counts between engines shows the command savings.
+ */
+public class WaitStatistics {
+    private final String engineName;
+    private final int polls;
+    private final Duration elapsed;
+    private final boolean timedOut;
+
+    public WaitStatistics(String engineName, int polls, Duration elapsed, boolean timedOut) {
+        this.engineName = engineName;
+        this.polls = polls;
+        this.elapsed = elapsed;
+        this.timedOut = timedOut;
+    }
+
+    public String getEngineName() {
+        return engineName;
+    }
+
+    public int getPolls() {
+        return polls;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    @Override
+    public String toString() {
+        return engineName + ": " + polls + " polls in " + elapsed.toMillis() + " ms" + (timedOut ? " (timed out)" : "");
+    }
+}
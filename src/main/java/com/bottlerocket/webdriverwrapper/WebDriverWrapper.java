@@ -10,8 +10,13 @@ import com.bottlerocket.errorhandling.WebDriverWrapperException;
 import com.bottlerocket.reporters.AutomationReporter;
 import com.bottlerocket.utils.ErrorHandler;
 import com.bottlerocket.utils.Logger;
+import com.bottlerocket.visual.BaselineIndex;
+import com.bottlerocket.visual.ImageDiff;
+import com.bottlerocket.visual.VisualCheck;
 import com.bottlerocket.webdriverwrapper.uiElementLocator.LocatorUtils;
 import com.bottlerocket.webdriverwrapper.uiElementLocator.TestPlatform;
+import com.bottlerocket.webdriverwrapper.uiElementLocator.UIElementLocator;
+import com.bottlerocket.webdriverwrapper.uiElementLocator.UIElementSelector;
 import io.appium.java_client.AppiumBy;
 import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.ios.IOSDriver;
@@ -21,6 +26,7 @@ import org.apache.commons.text.CaseUtils;
 import org.apache.commons.text.StringEscapeUtils;
 import org.openqa.selenium.*;
 import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeDriverService;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.edge.EdgeDriver;
 import org.openqa.selenium.edge.EdgeOptions;
@@ -29,26 +35,32 @@ import org.openqa.selenium.firefox.FirefoxOptions;
 import org.openqa.selenium.ie.InternetExplorerDriver;
 import org.openqa.selenium.ie.InternetExplorerOptions;
 import org.openqa.selenium.interactions.Actions;
+import org.openqa.selenium.remote.HttpCommandExecutor;
 import org.openqa.selenium.remote.RemoteWebDriver;
 import org.openqa.selenium.remote.RemoteWebElement;
 import org.openqa.selenium.safari.SafariDriver;
 import org.openqa.selenium.safari.SafariOptions;
+import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
-
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.List;
 import java.util.Set;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Base level selenium wrapper
@@ -56,11 +68,37 @@ import java.util.concurrent.TimeUnit;
  * Created by ford.arnett on 7/31/18
  */
 public abstract class WebDriverWrapper {
+    //daemon threads so a session that is still starting doesn't keep the JVM alive after the suite ends
+    private static final ExecutorService ASYNC_CREATE_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "driver-wrapper-create");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private WaitUnit previousWait;
     private WaitUnit currentWait;
+    //the implicit wait the session actually has, null when unknown
+    private Duration sessionImplicitWait;
+    private long skippedTimeoutCommands;
     protected AutomationReporter reporter;
     public WebDriverWait driverWait;
+    /**
+     * The platform of the most recently created wrapper, shared by every thread. Use {@link #getTestPlatform()} or {@link #getSessionContext()} instead.
+     */
+    @Deprecated
     public static TestPlatform testPlatform;
+    //the context of the thread that created this wrapper
+    private final SessionContext sessionContext = SessionContext.current();
+    private WaitEngine waitEngine = new FixedIntervalWaitEngine();
+    private final ElementCache elementCache = new ElementCache(this::getDriver);
+    private LocatorMetrics locatorMetrics = LocatorMetrics.getGlobal();
+    private SessionResetPolicy sessionResetPolicy = SessionResetPolicy.NONE;
+    private ScreenshotWriter screenshotWriter;
+    private BaselineIndex baselineIndex;
+    private volatile boolean nativeElementScreenshots = true;
+    private boolean screenshotDedupe;
+    private boolean screenshotNamedLinks = true;
+    private ScreenshotProfile screenshotProfile = ScreenshotProfile.LOSSLESS;
 
     /**
      * This constructor is for when you want to use the framework, so you create a wrapper,
@@ -102,11 +140,96 @@ public abstract class WebDriverWrapper {
         //Is it ok to set wait like this or should we have wait passed into method as well?
         webDriverWrapper.initDriverWait(globalWaitInSeconds);
         webDriverWrapper.setImplicitWait(globalWaitInSeconds, TimeUnit.SECONDS);
-        LocatorUtils.setTestPlatformForCurrentTestRun(testPlatform);
+        webDriverWrapper.bindSession(testPlatform, null);
 
         return webDriverWrapper;
     }
 
+    /**
+     * Create the wrapper for the config's platform, with the framework creating the driver.
+     *
+     * @param config the run configuration
+     * @return an {@link AppiumDriverWrapperAndroid}, {@link AppiumDriverWrapperIos} or {@link WebDriverWrapperGeneric}
+     * @throws WebDriverWrapperException if the platform is not supported or the driver could not be created
+     */
+    public static WebDriverWrapper createDriverWrapper(AutomationConfigProperties config) throws WebDriverWrapperException {
+        TestPlatform platform = config.getTestPlatform();
+        if (platform == TestPlatform.ANDROID) {
+            return new AppiumDriverWrapperAndroid(config);
+        } else if (platform == TestPlatform.IOS) {
+            return new AppiumDriverWrapperIos(config);
+        } else if (platform == TestPlatform.WEB) {
+            return new WebDriverWrapperGeneric(config);
+        } else {
+            throw new WebDriverWrapperException("Unable to create a DriverWrapper for the following platform: " + config.platformName);
+        }
+    }
+
+    /**
+     * Start a {@link LocalBrowserFarm} of headless local browsers for parallel web runs, sized by BROWSER_FARM_SIZE.
+     * Lease a wrapper per test thread with {@link LocalBrowserFarm#lease()} and close the farm when the suite ends.
+     *
+     * @param config the run configuration, BROWSER picks chrome or firefox
+     * @return the started farm, sessions are created in the background
+     */
+    public static LocalBrowserFarm startLocalBrowserFarm(AutomationConfigProperties config) {
+        LocalBrowserFarm farm = new LocalBrowserFarm(config);
+        farm.start();
+        return farm;
+    }
+
+    /**
+     * Start creating the wrapper for the config's platform on a background thread and return immediately.
+     * <br>
+     * The session handshake is the slowest part of test setup. Starting it first lets setup overlap it with data loading,
+     * mock server startup or API seeding, so setup takes as long as the slowest of those instead of their sum.
+     * <br>
+     * The wrapper is created in the caller's {@link SessionContext}. If the future is cancelled before the session is up,
+     * the session is quit as soon as it finishes starting.
+     * <p>
+     * Usage Example:
+     * <br>
+     * {@code CompletableFuture<WebDriverWrapper> pendingDriver = WebDriverWrapper.createAsync(config);}
+     * <br>
+     * {@code seedTestAccounts();}
+     * <br>
+     * {@code driverWrapper = pendingDriver.join();}
+     * <br>
+     *
+     * @param config the run configuration
+     * @return a future that completes with the wrapper, or exceptionally with the {@link WebDriverWrapperException} or {@link WebDriverException}
+     * thrown while creating it
+     */
+    public static CompletableFuture<WebDriverWrapper> createAsync(AutomationConfigProperties config) {
+        return createAsync(config, ASYNC_CREATE_EXECUTOR);
+    }
+
+    /**
+     * Same as {@link #createAsync(AutomationConfigProperties)} but creates the wrapper on the given executor.
+     */
+    public static CompletableFuture<WebDriverWrapper> createAsync(AutomationConfigProperties config, Executor executor) {
+        SessionContext context = SessionContext.current();
+        CompletableFuture<WebDriverWrapper> future = new CompletableFuture<>();
+
+        executor.execute(() -> SessionContext.runWith(context, () -> {
+            if (future.isDone()) {
+                return;
+            }
+
+            try {
+                WebDriverWrapper driverWrapper = createDriverWrapper(config);
+                if (!future.complete(driverWrapper)) {
+                    Logger.log("Driver creation was cancelled, quitting the new session.");
+                    driverWrapper.quit();
+                }
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }));
+
+        return future;
+    }
+
     /**
      * This and the chain of classes which call up on this need to be deprecated
      * in favor of the same functionality from {@link WebDriverWrapper#buildDriverWrapper(RemoteWebDriver, TestPlatform, long)}
@@ -115,6 +238,7 @@ public abstract class WebDriverWrapper {
     WebDriverWrapper(RemoteWebDriver driver, int globalWaitInSeconds) {
         //Pass the drivers to subclasses, there may be a better way to handle this, need to research further
         setDriver(driver);
+        sessionContext.setDriverWrapper(this);
 
         // Set wait for driverWait
         initDriverWait(globalWaitInSeconds);
@@ -123,41 +247,17 @@ public abstract class WebDriverWrapper {
     }
 
     WebDriverWrapper(int globalWaitInSeconds, AutomationConfigProperties configProperties, String driverType) throws Exception {
-        String driverPathKey = "", driverPathValue = "";
-        testPlatform = configProperties.getTestPlatform();
-
-        if (configProperties.remote) {
-            if (configProperties.remoteDriverURL != null && !configProperties.remoteDriverURL.isEmpty()) {
-                setDriver(new RemoteWebDriver(new URL(configProperties.remoteDriverURL), configProperties.capabilities));
-            } else {
-                setDriver(new RemoteWebDriver(configProperties.capabilities));
-            }
-        } else {
-            //TODO should we overhaul path to use the options?? https://sites.google.com/a/chromium.org/chromedriver/capabilities#TOC-Using-a-Chrome-executable-in-a-non-standard-location
-            if (driverType.equalsIgnoreCase("firefox")) {
-                driverPathKey = "webdriver.gecko.driver";
-                driverPathValue = System.getProperty("user.dir") + AutomationConfigPropertiesLoader.PROJECT_RELATIVE_DRIVER_EXECUTABLE_PATH + "geckodriver";
-                setupWebDriverPath(driverPathKey, driverPathValue, configProperties);
-                setDriver(new FirefoxDriver(new FirefoxOptions(configProperties.capabilities)));
-            } else if (driverType.equalsIgnoreCase("chrome")) {
-                driverPathKey = "webdriver.chrome.driver";
-                driverPathValue = System.getProperty("user.dir") + AutomationConfigPropertiesLoader.PROJECT_RELATIVE_DRIVER_EXECUTABLE_PATH + "chromedriver";
-                setupWebDriverPath(driverPathKey, driverPathValue, configProperties);
-                ChromeOptions chromeOptions = ConfigPropertiesBinderWeb.getChromeOptions(configProperties);
-                setDriver(new ChromeDriver(chromeOptions.merge(configProperties.capabilities)));
-            } else if (driverType.equalsIgnoreCase("safari")) {
-                setDriver(new SafariDriver(new SafariOptions(configProperties.capabilities)));
-            } else if (driverType.equalsIgnoreCase("ie") || driverType.equalsIgnoreCase("internet explorer")) {
-                setDriver(new InternetExplorerDriver(new InternetExplorerOptions(configProperties.capabilities)));
-            } else if (driverType.equalsIgnoreCase("edge")) {
-                setDriver(new EdgeDriver(new EdgeOptions().merge(configProperties.capabilities)));
-            } else {
-                throw new WebDriverWrapperException("driver type not recognized, either it was not given correctly or a case for that driver needs to be created");
-            }
-        }
+        bindSession(configProperties.getTestPlatform(), configProperties);
+        setDriver(createDriverForSelenium(configProperties, driverType));
 
         // Set wait time for global WebDriverWait
         initDriverWait(globalWaitInSeconds);
+        waitEngine = WaitEngine.waitEngineFactory(configProperties);
+        sessionResetPolicy = SessionResetPolicy.fromConfig(configProperties);
+        elementCache.setEnabled(configProperties.elementCache);
+        if (configProperties.locatorMetrics) {
+            locatorMetrics.writeReportOnExit(configProperties.reportOutputDirectory);
+        }
 
         // Set the global driver implicit wait (timeout)
         setImplicitWait(globalWaitInSeconds, TimeUnit.SECONDS);
@@ -200,59 +300,204 @@ public abstract class WebDriverWrapper {
      */
     WebDriverWrapper(AutomationConfigProperties config) throws WebDriverWrapperException {
         RemoteWebDriver remoteWebDriver;
-        testPlatform = config.getTestPlatform();
+        bindSession(config.getTestPlatform(), config);
 
-        if (testPlatform == TestPlatform.WEB) {
-            remoteWebDriver = createDriverForSelenium(config);
-        } else {
-            remoteWebDriver = createDriverForAppium(config);
+        try (StartupProfiler.Phase phase = StartupProfiler.current().start(StartupProfiler.SESSION_CREATE)) {
+            if (config.getTestPlatform() == TestPlatform.WEB) {
+                remoteWebDriver = createDriverForSelenium(config);
+            } else {
+                remoteWebDriver = createDriverForAppium(config);
+            }
         }
 
+        try (StartupProfiler.Phase phase = StartupProfiler.current().start(StartupProfiler.WRAPPER_SETUP)) {
+            initFromConfig(config, remoteWebDriver);
+        }
+        StartupProfiler.getGlobal().logOnce();
+    }
+
+    /**
+     * Set up the wrapper from the config around a driver that was already created, e.g. by the {@link LocalBrowserFarm}.
+     */
+    WebDriverWrapper(AutomationConfigProperties config, RemoteWebDriver remoteWebDriver) {
+        bindSession(config.getTestPlatform(), config);
+        initFromConfig(config, remoteWebDriver);
+    }
+
+    private void initFromConfig(AutomationConfigProperties config, RemoteWebDriver remoteWebDriver) {
         setDriver(remoteWebDriver);
+        screenshotWriter = ScreenshotWriter.getShared(config);
+        screenshotDedupe = config.screenshotDedupe;
+        screenshotNamedLinks = config.screenshotNamedLinks;
+        screenshotProfile = ScreenshotProfile.fromConfig(config);
         initDriverWait(config.globalWait);
+        waitEngine = WaitEngine.waitEngineFactory(config);
+        sessionResetPolicy = SessionResetPolicy.fromConfig(config);
+        elementCache.setEnabled(config.elementCache);
+        if (config.locatorMetrics) {
+            locatorMetrics.writeReportOnExit(config.reportOutputDirectory);
+        }
         setImplicitWait(config.globalWait, TimeUnit.SECONDS);
-        LocatorUtils.setTestPlatformForCurrentTestRun(testPlatform);
+    }
+
+    /**
+     * Record this wrapper, its platform and config in the session context of the creating thread.
+     * The deprecated static {@link #testPlatform} is still set so existing code that reads it keeps working in single-driver runs.
+     */
+    private void bindSession(TestPlatform platform, AutomationConfigProperties config) {
+        sessionContext.setTestPlatform(platform);
+        sessionContext.setDriverWrapper(this);
+        if (config != null) {
+            sessionContext.setConfig(config);
+        }
+        testPlatform = platform;
+    }
+
+    /**
+     * Return the session to a clean state for the next test instead of starting a new session, then check that it still responds.
+     * The strategy comes from the SESSION_RESET config value, see {@link SessionResetPolicy#fromConfig(AutomationConfigProperties)}.
+     * <br>
+     * If this throws, quit the wrapper and create a new one.
+     *
+     * @throws WebDriverWrapperException if the reset fails or the session fails the health check afterwards
+     */
+    public void resetSession() throws WebDriverWrapperException {
+        try {
+            sessionResetPolicy.reset(this);
+        } catch (Exception e) {
+            throw new WebDriverWrapperException("Unable to reset the session", e);
+        } finally {
+            elementCache.invalidate();
+        }
+
+        if (!isSessionHealthy()) {
+            throw new WebDriverWrapperException("The session failed its health check after being reset");
+        }
+    }
+
+    /**
+     * Send one cheap command to check that the session is still alive and responding.
+     *
+     * @return false if the command fails, e.g. the session was closed on the server or the device disconnected
+     */
+    public boolean isSessionHealthy() {
+        try {
+            getDriver().getWindowHandle();
+            return true;
+        } catch (WebDriverException e) {
+            Logger.log("Session failed its health check: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public SessionResetPolicy getSessionResetPolicy() {
+        return sessionResetPolicy;
+    }
+
+    public void setSessionResetPolicy(SessionResetPolicy sessionResetPolicy) {
+        this.sessionResetPolicy = sessionResetPolicy;
+    }
+
+    /**
+     * @return the {@link SessionContext} this wrapper was created in
+     */
+    public SessionContext getSessionContext() {
+        return sessionContext;
     }
 
     private RemoteWebDriver createDriverForSelenium(AutomationConfigProperties config) throws WebDriverWrapperException {
-        String driverPathKey = "";
-        String driverPathValue = "";
+        return createDriverForSelenium(config, config.browserName);
+    }
 
+    /**
+     * Create a session on the remote server when the config is remote, otherwise start the local browser.
+     * With COMMAND_TRACE on, local sessions send their commands through the {@link CommandTraceHttpClientFactory}.
+     *
+     * @param browserName the local browser to start, e.g. "chrome"
+     */
+    private RemoteWebDriver createDriverForSelenium(AutomationConfigProperties config, String browserName) throws WebDriverWrapperException {
         if (config.remote) {
             // use remote browser
             if (config.remoteDriverURL != null && !config.remoteDriverURL.isEmpty()) {
                 URL remoteWebDriverUrl = initRemoteWebDriverUrl(config);
-                return new RemoteWebDriver(remoteWebDriverUrl, config.capabilities);
+                return newRemoteWebDriver(remoteWebDriverUrl, config);
             } else {
-                return new RemoteWebDriver(config.capabilities);
+                return newRemoteWebDriver(defaultRemoteWebDriverUrl(), config);
             }
-        } else {
-            // use local browser
-            switch (config.browserName.toLowerCase()) {
-                case "chrome":
-                    driverPathKey = "webdriver.chrome.driver";
-                    driverPathValue = System.getProperty("user.dir") + AutomationConfigPropertiesLoader.PROJECT_RELATIVE_DRIVER_EXECUTABLE_PATH + "chromedriver";
+        }
+
+        // use local browser
+        if (config.commandTrace) {
+            CommandTraceHttpClientFactory.install();
+        }
+        long tracedClients = CommandTraceHttpClientFactory.getClientsCreated();
+        RemoteWebDriver driver = createLocalDriver(config, browserName);
+        if (config.commandTrace && CommandTraceHttpClientFactory.getClientsCreated() == tracedClients) {
+            Logger.log("COMMAND_TRACE is on but this local session isn't traced, Selenium chose its HTTP client before tracing was turned on. " +
+                    "Start the JVM with -D" + CommandTraceHttpClientFactory.FACTORY_PROPERTY + "=" + CommandTraceHttpClientFactory.NAME + " to trace every local session.");
+        }
+        return driver;
+    }
+
+    private RemoteWebDriver createLocalDriver(AutomationConfigProperties config, String browserName) throws WebDriverWrapperException {
+        String driverPathKey = "";
+        String driverPathValue = "";
+
+        //TODO should we overhaul path to use the options?? https://sites.google.com/a/chromium.org/chromedriver/capabilities#TOC-Using-a-Chrome-executable-in-a-non-standard-location
+        switch (browserName.toLowerCase()) {
+            case "chrome":
+                driverPathKey = "webdriver.chrome.driver";
+                driverPathValue = System.getProperty("user.dir") + AutomationConfigPropertiesLoader.PROJECT_RELATIVE_DRIVER_EXECUTABLE_PATH + "chromedriver";
+                ChromeDriverService chromeDriverService;
+                try (StartupProfiler.Phase phase = StartupProfiler.current().start(StartupProfiler.DRIVER_BINARY)) {
                     setupWebDriverPath(driverPathKey, driverPathValue, config);
-                    ChromeOptions chromeOptions = ConfigPropertiesBinderWeb.getChromeOptions(config);
-                    return new ChromeDriver(chromeOptions.merge(config.capabilities));
-                case "edge":
-                    return new EdgeDriver(new EdgeOptions().merge(config.capabilities));
-                case "safari":
-                    return new SafariDriver(new SafariOptions(config.capabilities));
-                case "firefox":
-                    driverPathKey = "webdriver.gecko.driver";
-                    driverPathValue = System.getProperty("user.dir") + AutomationConfigPropertiesLoader.PROJECT_RELATIVE_DRIVER_EXECUTABLE_PATH + "geckodriver";
+                    //finds and checks the executable, the same service ChromeDriver(options) would create
+                    chromeDriverService = ChromeDriverService.createDefaultService();
+                }
+                ChromeOptions chromeOptions = ConfigPropertiesBinderWeb.getChromeOptions(config);
+                return new ChromeDriver(chromeDriverService, chromeOptions.merge(config.capabilities));
+            case "edge":
+                return new EdgeDriver(new EdgeOptions().merge(config.capabilities));
+            case "safari":
+                return new SafariDriver(new SafariOptions(config.capabilities));
+            case "firefox":
+                driverPathKey = "webdriver.gecko.driver";
+                driverPathValue = System.getProperty("user.dir") + AutomationConfigPropertiesLoader.PROJECT_RELATIVE_DRIVER_EXECUTABLE_PATH + "geckodriver";
+                try (StartupProfiler.Phase phase = StartupProfiler.current().start(StartupProfiler.DRIVER_BINARY)) {
                     setupWebDriverPath(driverPathKey, driverPathValue, config);
-                    return new FirefoxDriver(new FirefoxOptions(config.capabilities));
-                case "ie":
-                case "internet explorer":
-                    return new InternetExplorerDriver(new InternetExplorerOptions(config.capabilities));
-                default:
-                    throw new WebDriverWrapperException("driver type not recognized, either it was not given correctly or a case for that driver needs to be created");
-            }
+                }
+                return new FirefoxDriver(new FirefoxOptions(config.capabilities));
+            case "ie":
+            case "internet explorer":
+                return new InternetExplorerDriver(new InternetExplorerOptions(config.capabilities));
+            default:
+                throw new WebDriverWrapperException("driver type not recognized, either it was not given correctly or a case for that driver needs to be created");
         }
     }
 
+    /**
+     * @return the server {@link RemoteWebDriver#RemoteWebDriver(Capabilities)} connects to when no remote URL is configured
+     */
+    private static URL defaultRemoteWebDriverUrl() throws WebDriverWrapperException {
+        String url = System.getProperty("webdriver.remote.server", "http://localhost:4444/");
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            throw new WebDriverWrapperException("Unable to form a URL from the 'webdriver.remote.server' property value: \n" + url);
+        }
+    }
+
+    /**
+     * Create a remote session that talks to the server through the shared HTTP client factory for this config.
+     */
+    private static RemoteWebDriver newRemoteWebDriver(URL url, AutomationConfigProperties config) {
+        return newRemoteWebDriver(url, config, config.capabilities);
+    }
+
+    static RemoteWebDriver newRemoteWebDriver(URL url, AutomationConfigProperties config, Capabilities capabilities) {
+        return new RemoteWebDriver(new HttpCommandExecutor(Collections.emptyMap(), url, SharedHttpClientFactory.getShared(config)), capabilities);
+    }
+
     private RemoteWebDriver createDriverForAppium(AutomationConfigProperties config) throws WebDriverWrapperException {
         RemoteWebDriver remoteWebDriver = null;
         URL webDriverUrl = null;
@@ -264,10 +509,10 @@ public abstract class WebDriverWrapper {
         }
 
         if (config.isAndroid()) {
-            remoteWebDriver = new AndroidDriver(webDriverUrl, config.capabilities);
+            remoteWebDriver = new AndroidDriver(webDriverUrl, SharedHttpClientFactory.getShared(config), config.capabilities);
             return remoteWebDriver;
         } else if (config.isIos()) {
-            remoteWebDriver = new IOSDriver(webDriverUrl, config.capabilities);
+            remoteWebDriver = new IOSDriver(webDriverUrl, SharedHttpClientFactory.getShared(config), config.capabilities);
             return remoteWebDriver;
         } else if (config.isWindows()) {
             throw new NotImplementedException("Windows driver not implemented yet.");
@@ -278,15 +523,21 @@ public abstract class WebDriverWrapper {
         }
     }
 
+    /**
+     * @return the platform of the current thread's {@link SessionContext}, or of the most recently created wrapper if the context doesn't have one
+     */
     public static TestPlatform getTestPlatform() throws WebDriverWrapperException {
-        if (testPlatform != null) {
+        TestPlatform platform = SessionContext.current().getTestPlatform();
+        if (platform != null) {
+            return platform;
+        } else if (testPlatform != null) {
             return testPlatform;
         } else {
             throw new WebDriverWrapperException("WebDriverWrapper.testPlatform value is not set.");
         }
     }
 
-    private void setupWebDriverPath(String driverPathKey, String driverPathValue, AutomationConfigProperties configProperties) {
+    static void setupWebDriverPath(String driverPathKey, String driverPathValue, AutomationConfigProperties configProperties) {
         //Set the driver path if it is set in the config file, if not set in config file set it to framework default, then finally if neither apply assume we don't need path.
         if (configProperties.driverPath != null && !configProperties.driverPath.isEmpty()) {
             driverPathValue = configProperties.driverPath;
@@ -348,7 +599,7 @@ public abstract class WebDriverWrapper {
      * so we keep track of the current wait when using this method to set it. Because of this, any time a wait is to be set it must go through here.
      */
     public void setImplicitWait(long l, TimeUnit timeUnit) {
-        getDriver().manage().timeouts().implicitlyWait(l, timeUnit);
+        applyImplicitWait(Duration.of(l, timeUnit.toChronoUnit()));
         //if current wait has never been set
         if (currentWait == null) {
             previousWait = new WaitUnit(l, timeUnit);
@@ -362,7 +613,7 @@ public abstract class WebDriverWrapper {
      * Restore the implicit wait to the most recent wait that has been used. This should be used to set a wait temporarily and then restore it after using the temporary wait.
      */
     public void restoreImplicitWait() {
-        getDriver().manage().timeouts().implicitlyWait(previousWait.time, previousWait.timeUnit);
+        applyImplicitWait(previousWait.getDuration());
         //Restore the old previous to current. Now the old current is also previous
         WaitUnit temp = currentWait;
         currentWait = previousWait;
@@ -370,11 +621,61 @@ public abstract class WebDriverWrapper {
     }
 
     public void turnOffImplicitWaits() {
-        getDriver().manage().timeouts().implicitlyWait(0, TimeUnit.SECONDS);
+        applyImplicitWait(Duration.ZERO);
     }
 
     public void turnOnImplicitWaits() {
-        manage().timeouts().implicitlyWait(currentWait.time, currentWait.timeUnit);
+        applyImplicitWait(currentWait.getDuration());
+    }
+
+    /**
+     * Run an action with a temporary implicit wait, then put the session's wait back to what it was.
+     * This does not change {@link #getImplicitWait()}, and no command is sent if the session already has the requested wait.
+     * <p>
+     * Usage Example:
+     * <br>
+     * {@code boolean bannerShown = withImplicitWait(Duration.ZERO, () -> !elements(BANNER).isEmpty());}
+     * <br>
+     *
+     * @param implicitWait the implicit wait to use while the action runs
+     * @param action       the action to run
+     * @return the value returned by the action
+     */
+    public <T> T withImplicitWait(Duration implicitWait, Supplier<T> action) {
+        Duration outer = sessionImplicitWait != null ? sessionImplicitWait : currentWait.getDuration();
+        applyImplicitWait(implicitWait);
+        try {
+            return action.get();
+        } finally {
+            applyImplicitWait(outer);
+        }
+    }
+
+    /**
+     * Every implicit wait change goes through here. The driver has no getter for the implicit wait, so the value last sent is tracked
+     * and a timeouts command is only sent when the value actually changes.
+     */
+    private void applyImplicitWait(Duration implicitWait) {
+        if (implicitWait.equals(sessionImplicitWait)) {
+            skippedTimeoutCommands++;
+            return;
+        }
+
+        try {
+            getDriver().manage().timeouts().implicitlyWait(implicitWait);
+            sessionImplicitWait = implicitWait;
+        } catch (WebDriverException e) {
+            //the session state is unknown now, so the next change must be sent
+            sessionImplicitWait = null;
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of implicit wait changes that were skipped because the session already had that value
+     */
+    public long getSkippedTimeoutCommands() {
+        return skippedTimeoutCommands;
     }
 
     /**
@@ -387,6 +688,59 @@ public abstract class WebDriverWrapper {
         return new WebDriverWait(getDriver(), Duration.ofSeconds(timeOutInSeconds));
     }
 
+    /**
+     * @return the {@link WaitEngine} used by the explicit-wait methods when no engine is passed in
+     */
+    public WaitEngine getWaitEngine() {
+        return waitEngine;
+    }
+
+    public void setWaitEngine(WaitEngine waitEngine) {
+        this.waitEngine = waitEngine;
+    }
+
+    /**
+     * @return polling information for the most recent wait this thread ran through the global wait engine, or null if there hasn't been one
+     */
+    public WaitStatistics getLastWaitStatistics() {
+        return waitEngine.getLastWaitStatistics();
+    }
+
+    /**
+     * The element cache is off by default. Turn it on with {@link ElementCache#setEnabled(boolean)} or the ELEMENT_CACHE config value,
+     * and read the hit/miss counters from here to see how many lookups it saved.
+     *
+     * @return the {@link ElementCache} used by {@link #element(By)} and the getElement methods
+     */
+    public ElementCache getElementCache() {
+        return elementCache;
+    }
+
+    /**
+     * @return the {@link LocatorMetrics} element lookups are recorded in, shared by all wrappers unless replaced
+     */
+    public LocatorMetrics getLocatorMetrics() {
+        return locatorMetrics;
+    }
+
+    public void setLocatorMetrics(LocatorMetrics locatorMetrics) {
+        this.locatorMetrics = locatorMetrics;
+    }
+
+    private void recordLookup(String operation, By by, long startNanos, int polls, LocatorMetrics.Outcome outcome) {
+        if (locatorMetrics != null) {
+            locatorMetrics.record(operation, by, System.nanoTime() - startNanos, polls, outcome);
+        }
+    }
+
+    /**
+     * @return the poll count of the engine's latest wait, or 0 if the engine has not run a wait since waitsBefore was read
+     */
+    private static int pollsSince(WaitEngine engine, long waitsBefore) {
+        WaitStatistics statistics = engine.getLastWaitStatistics();
+        return engine.getTotalWaits() > waitsBefore && statistics != null ? statistics.getPolls() : 0;
+    }
+
     /**
      * Wait a given amount of time, and log any error that occurs.
      * <br><br>
@@ -414,6 +768,7 @@ public abstract class WebDriverWrapper {
      */
     public void setAutomationReporter(AutomationReporter reporter) {
         this.reporter = reporter;
+        sessionContext.setReporter(reporter);
     }
 
     /**
@@ -436,26 +791,32 @@ public abstract class WebDriverWrapper {
      * Navigate back
      */
     public void back() {
+        elementCache.invalidate();
         getDriver().navigate().back();
     }
 
     public void close() {
+        elementCache.invalidate();
         getDriver().close();
     }
 
     public void forward() {
+        elementCache.invalidate();
         getDriver().navigate().forward();
     }
 
     public void refresh() {
+        elementCache.invalidate();
         getDriver().navigate().refresh();
     }
 
     public void navigateTo(String url) {
+        elementCache.invalidate();
         getDriver().navigate().to(url);
     }
 
     public void navigateTo(URL url) {
+        elementCache.invalidate();
         getDriver().navigate().to(url);
     }
 
@@ -505,6 +866,7 @@ public abstract class WebDriverWrapper {
      */
     public void switchToWindow(String windowHandle) {
         getDriver().switchTo().window(windowHandle);
+        elementCache.switchedToWindow(windowHandle);
     }
 
     public void switchTo() {
@@ -517,18 +879,22 @@ public abstract class WebDriverWrapper {
 
     public void switchToFrame(int index) {
         getDriver().switchTo().frame(index);
+        elementCache.switchedToFrame(String.valueOf(index));
     }
 
     public void switchToFrame(String nameOrId) {
         getDriver().switchTo().frame(nameOrId);
+        elementCache.switchedToFrame(nameOrId);
     }
 
     public void switchToFrame(WebElement element) {
         getDriver().switchTo().frame(element);
+        elementCache.switchedToFrame(String.valueOf(element));
     }
 
     public void switchToDefaultContent() {
         getDriver().switchTo().defaultContent();
+        elementCache.switchedToDefaultContent();
     }
 
     public boolean notNull() {
@@ -554,12 +920,23 @@ public abstract class WebDriverWrapper {
      * Return an element by locator using the implicit wait as the timeout condition
      */
     public WebElement element(By locator) throws WebDriverWrapperException {
+        long start = System.nanoTime();
+        LocatorMetrics.Outcome outcome = LocatorMetrics.Outcome.ERROR;
         try {
-            WebElement element = getDriver().findElement(locator);
+            WebElement element = elementCache.get(locator);
+            if (element == null) {
+                element = elementCache.put(locator, getDriver().findElement(locator));
+            }
+            outcome = LocatorMetrics.Outcome.FOUND;
             reporter.addElementFound(locator);
             return element;
         } catch (Exception ex) {
+            if (ex instanceof NotFoundException) {
+                outcome = LocatorMetrics.Outcome.TIMEOUT;
+            }
             throw new WebDriverWrapperException("No element found using " + locator);
+        } finally {
+            recordLookup("element", locator, start, 1, outcome);
         }
     }
 
@@ -723,18 +1100,41 @@ public abstract class WebDriverWrapper {
      * @return {@link WebElement}
      */
     public WebElement getElement(By by, ExpectedConditionsWrapper.EXPECTED_CONDITION expectedConditionEnum, int timeOutInSeconds) {
+        return getElement(by, expectedConditionEnum, timeOutInSeconds, waitEngine);
+    }
+
+    /**
+     * Same as {@link #getElement(By, ExpectedConditionsWrapper.EXPECTED_CONDITION, int)} but polls with the given {@link WaitEngine}
+     * instead of the global one.
+     */
+    public WebElement getElement(By by, ExpectedConditionsWrapper.EXPECTED_CONDITION expectedConditionEnum, int timeOutInSeconds, WaitEngine engine) {
+        long start = System.nanoTime();
+        WebElement cached = elementCache.get(by);
+        if (cached != null && isCachedElementUsable(by, cached, expectedConditionEnum)) {
+            if (reporter != null) {
+                reporter.addElementFound(by);
+            }
+            recordLookup("getElement", by, start, 0, LocatorMetrics.Outcome.FOUND);
+            return cached;
+        }
+
+        long waitsBefore = engine.getTotalWaits();
+        LocatorMetrics.Outcome outcome = LocatorMetrics.Outcome.ERROR;
         try {
             turnOffImplicitWaits();
-            WebDriverWait webDriverWait = newWait(timeOutInSeconds);
-            WebElement element = webDriverWait.until(ExpectedConditionsWrapper.getExpectedConditionWebElement(expectedConditionEnum, by));
+            WebElement element = engine.until(getDriver(), ExpectedConditionsWrapper.getExpectedConditionWebElement(expectedConditionEnum, by), Duration.ofSeconds(timeOutInSeconds));
+            element = elementCache.put(by, element);
+            outcome = LocatorMetrics.Outcome.FOUND;
             if (reporter != null) {
                 reporter.addElementFound(by);
             }
             return element;
         } catch (TimeoutException | NotFoundException e) {
+            outcome = LocatorMetrics.Outcome.TIMEOUT;
             throw new TimeoutException("Element not found within " + timeOutInSeconds + " seconds under ExpectedCondition " + expectedConditionEnum.toString(), e);
         } finally {
             turnOnImplicitWaits();
+            recordLookup("getElement", by, start, pollsSince(engine, waitsBefore), outcome);
         }
     }
 
@@ -742,6 +1142,134 @@ public abstract class WebDriverWrapper {
         return getElement(rlb.getBy(), expectedConditionEnum, timeOutInSeconds);
     }
 
+    //===== GET ELEMENT USING RANKED SELECTORS =====
+
+    /**
+     * Get an element using every selector the {@link UIElementLocator} has for the current {@link TestPlatform}.
+     * Assumes the element is clickable. Uses the global wait as the timeout.
+     *
+     * @param uiElementLocator a {@link UIElementLocator} with one or more selectors for the current platform
+     * @return the first matching {@link WebElement}
+     * @see #getElement(UIElementLocator, ExpectedConditionsWrapper.EXPECTED_CONDITION, int)
+     */
+    public WebElement getElement(UIElementLocator uiElementLocator) {
+        return getElement(uiElementLocator, ExpectedConditionsWrapper.EXPECTED_CONDITION.CLICKABLE, getImplicitWaitTimeInSeconds());
+    }
+
+    /**
+     * Get an element using every selector the {@link UIElementLocator} has for the current {@link TestPlatform}.
+     * <br>
+     * All selectors are tried on every poll of a single wait, best rank first, so a broken best selector no longer costs a full timeout
+     * before the fallbacks are tried. If several selectors match on the same poll, the best ranked one wins.
+     * The winning selector is recorded on the locator, see {@link UIElementLocator#getMatchedSelector()}.
+     * <p>
+     * Usage Example:
+     * <br>
+     * {@code WebElement loginButton = getElement(LOGIN_BUTTON_LOCATOR, EXPECTED_CONDITION.VISIBLE, 15);}
+     * <br>
+     *
+     * @param uiElementLocator      a {@link UIElementLocator} with one or more selectors for the current platform
+     * @param expectedConditionEnum an {@link com.bottlerocket.webdriverwrapper.ExpectedConditionsWrapper.EXPECTED_CONDITION}
+     * @param timeOutInSeconds      the maximum time in seconds
+     * @return the first matching {@link WebElement}
+     */
+    public WebElement getElement(UIElementLocator uiElementLocator, ExpectedConditionsWrapper.EXPECTED_CONDITION expectedConditionEnum, int timeOutInSeconds) {
+        TestPlatform platform = sessionContext.getTestPlatform() != null ? sessionContext.getTestPlatform() : LocatorUtils.getTestPlatformForCurrentTestRun();
+        List<UIElementSelector> selectors = uiElementLocator.getRankedSelectors(platform);
+        if (selectors.isEmpty()) {
+            throw new InvalidArgumentException("The UIElementLocator has no selectors for " + platform);
+        }
+
+        List<By> locators = new ArrayList<>();
+        for (UIElementSelector selector : selectors) {
+            locators.add(selector.getLocator());
+        }
+
+        UIElementSelector[] winner = new UIElementSelector[1];
+        ExpectedCondition<WebElement> anySelector = new ExpectedCondition<WebElement>() {
+            @Override
+            public WebElement apply(WebDriver driver) {
+                for (int i = 0; i < locators.size(); i++) {
+                    try {
+                        WebElement element = ExpectedConditionsWrapper.getExpectedConditionWebElement(expectedConditionEnum, locators.get(i)).apply(driver);
+                        if (element != null) {
+                            winner[0] = selectors.get(i);
+                            return element;
+                        }
+                    } catch (NotFoundException | StaleElementReferenceException e) {
+                        //try the next selector
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public String toString() {
+                return "any of " + locators + " to be " + expectedConditionEnum;
+            }
+        };
+
+        long start = System.nanoTime();
+        WaitEngine engine = waitEngine;
+        long waitsBefore = engine.getTotalWaits();
+        LocatorMetrics.Outcome outcome = LocatorMetrics.Outcome.ERROR;
+        try {
+            turnOffImplicitWaits();
+            WebElement element = engine.until(getDriver(), anySelector, Duration.ofSeconds(timeOutInSeconds));
+            outcome = LocatorMetrics.Outcome.FOUND;
+            uiElementLocator.setMatchedSelector(platform, winner[0]);
+            if (winner[0] != selectors.get(0)) {
+                Logger.log("Best selector " + locators.get(0) + " did not match, found the element with fallback " + winner[0].getLocator());
+            }
+            if (reporter != null) {
+                reporter.addElementFound(winner[0].getLocator());
+            }
+            return element;
+        } catch (TimeoutException | NotFoundException e) {
+            outcome = LocatorMetrics.Outcome.TIMEOUT;
+            throw new TimeoutException("Element not found with any of " + locators + " within " + timeOutInSeconds + " seconds under ExpectedCondition " + expectedConditionEnum.toString(), e);
+        } finally {
+            turnOnImplicitWaits();
+            //a fallback win is recorded against the selector that found it, a timeout against the best selector
+            recordLookup("getElement", winner[0] != null ? winner[0].getLocator() : locators.get(0), start, pollsSince(engine, waitsBefore), outcome);
+        }
+    }
+
+    /**
+     * Check a cached element against the expected condition without finding it again.
+     * A cached element that no longer meets the condition is dropped so the caller falls back to a normal wait.
+     */
+    private boolean isCachedElementUsable(By by, WebElement cached, ExpectedConditionsWrapper.EXPECTED_CONDITION expectedConditionEnum) {
+        //check the raw element so a stale reference fails fast instead of being found again under the implicit wait
+        WebElement element = cached instanceof WrapsElement ? ((WrapsElement) cached).getWrappedElement() : cached;
+        try {
+            switch (expectedConditionEnum) {
+                case PRESENT:
+                case PRESENCE_OF_ELEMENT_LOCATED:
+                    return true;
+                case VISIBLE:
+                case VISIBILITY_OF_ELEMENT_LOCATED:
+                    if (element.isDisplayed()) {
+                        return true;
+                    }
+                    break;
+                case CLICKABLE:
+                case ELEMENT_TO_BE_CLICKABLE:
+                    if (element.isDisplayed() && element.isEnabled()) {
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (WebDriverException e) {
+            //element is gone, fall through and find it again
+        }
+
+        elementCache.remove(by);
+        return false;
+    }
+
     /**
      * Get a list of elements before the maximum time (timeout) elapses.
      * Assumes the elements are visible.
@@ -781,19 +1309,25 @@ public abstract class WebDriverWrapper {
      * @throws {@link TimeoutException}
      */
     public List<WebElement> getElements(By by, ExpectedConditionsWrapper.EXPECTED_CONDITION expectedConditionEnum, int timeoutInSeconds) {
+        long start = System.nanoTime();
+        WaitEngine engine = waitEngine;
+        long waitsBefore = engine.getTotalWaits();
+        LocatorMetrics.Outcome outcome = LocatorMetrics.Outcome.ERROR;
         try {
             turnOffImplicitWaits();
 
-            WebDriverWait webDriverWait = newWait(timeoutInSeconds);
-            List<WebElement> elements = webDriverWait.until(ExpectedConditionsWrapper.getExpectedConditionWebElements(expectedConditionEnum, by));
+            List<WebElement> elements = engine.until(getDriver(), ExpectedConditionsWrapper.getExpectedConditionWebElements(expectedConditionEnum, by), Duration.ofSeconds(timeoutInSeconds));
+            outcome = LocatorMetrics.Outcome.FOUND;
             if (reporter != null) {
                 reporter.addElementFound(by);
             }
             return elements;
         } catch (TimeoutException | NotFoundException e) {
+            outcome = LocatorMetrics.Outcome.TIMEOUT;
             throw new TimeoutException("Elements not found within " + timeoutInSeconds + " seconds under ExpectedCondition " + expectedConditionEnum.toString(), e);
         } finally {
             turnOnImplicitWaits();
+            recordLookup("getElements", by, start, pollsSince(engine, waitsBefore), outcome);
         }
     }
 
@@ -815,10 +1349,17 @@ public abstract class WebDriverWrapper {
      * @return {@link Boolean}
      */
     public Boolean isConditionTrueBeforeTimeout(By by, ExpectedConditionsWrapper.EXPECTED_CONDITION expectedConditionEnum, int timeOutInSeconds) {
+        return isConditionTrueBeforeTimeout(by, expectedConditionEnum, timeOutInSeconds, waitEngine);
+    }
+
+    /**
+     * Same as {@link #isConditionTrueBeforeTimeout(By, ExpectedConditionsWrapper.EXPECTED_CONDITION, int)} but polls with the given
+     * {@link WaitEngine} instead of the global one.
+     */
+    public Boolean isConditionTrueBeforeTimeout(By by, ExpectedConditionsWrapper.EXPECTED_CONDITION expectedConditionEnum, int timeOutInSeconds, WaitEngine engine) {
         try {
             turnOffImplicitWaits();
-            WebDriverWait webDriverWait = newWait(timeOutInSeconds);
-            return webDriverWait.until(ExpectedConditionsWrapper.getExpectedConditionBoolean(expectedConditionEnum, by));
+            return engine.until(getDriver(), ExpectedConditionsWrapper.getExpectedConditionBoolean(expectedConditionEnum, by), Duration.ofSeconds(timeOutInSeconds));
         } catch (TimeoutException e) {
             return false;
         } finally {
@@ -930,17 +1471,25 @@ public abstract class WebDriverWrapper {
      * @return a {@link Boolean} containing true if the element is displayed, or false otherwise
      */
     public boolean isElementDisplayed(By by, int timeoutInSeconds) {
+        long start = System.nanoTime();
+        WaitEngine engine = waitEngine;
+        long waitsBefore = engine.getTotalWaits();
+        LocatorMetrics.Outcome outcome = LocatorMetrics.Outcome.ERROR;
         try {
             turnOffImplicitWaits();
-            return getElement(
+            boolean displayed = getElement(
                     by,
                     ExpectedConditionsWrapper.EXPECTED_CONDITION.VISIBLE,
                     timeoutInSeconds
             ).isDisplayed();
+            outcome = LocatorMetrics.Outcome.FOUND;
+            return displayed;
         } catch (TimeoutException e) {
+            outcome = LocatorMetrics.Outcome.TIMEOUT;
             return false;
         } finally {
             turnOnImplicitWaits();
+            recordLookup("isElementDisplayed", by, start, pollsSince(engine, waitsBefore), outcome);
         }
     }
 
@@ -974,6 +1523,332 @@ public abstract class WebDriverWrapper {
         return elementDisplayed(rlb.getBy());
     }
 
+    //===== MULTI-CONDITION WAITS =====
+
+    /**
+     * Wait until any one of the conditions is met. Every condition is checked on each poll under a single deadline,
+     * so waiting for "the error banner or the next screen" costs one timeout instead of one per condition.
+     * <br>
+     * Conditions are checked in the order given and the poll stops at the first one that is met.
+     * Put the most likely outcome first to save driver commands.
+     * <p>
+     * Usage Example:
+     * <br>
+     * {@code WaitCondition nextScreen = WaitCondition.of(By.id(HOME_TITLE), EXPECTED_CONDITION.VISIBLE);}
+     * <br>
+     * {@code WaitCondition errorBanner = WaitCondition.of(By.id(ERROR_BANNER), EXPECTED_CONDITION.VISIBLE);}
+     * <br>
+     * {@code WaitResult result = waitAny(20, nextScreen, errorBanner);}
+     * <br>
+     * {@code verifyTrue(result.isFired(nextScreen), "Login failed: " + result);}
+     * <br>
+     *
+     * @param timeOutInSeconds the maximum time in seconds
+     * @param conditions       the conditions to wait for
+     * @return a {@link WaitResult} reporting which condition fired, or that the wait timed out
+     */
+    public WaitResult waitAny(int timeOutInSeconds, WaitCondition... conditions) {
+        return waitForConditions(false, timeOutInSeconds, waitEngine, conditions);
+    }
+
+    /**
+     * Same as {@link #waitAny(int, WaitCondition...)} but polls with the given {@link WaitEngine} instead of the global one.
+     */
+    public WaitResult waitAny(int timeOutInSeconds, WaitEngine engine, WaitCondition... conditions) {
+        return waitForConditions(false, timeOutInSeconds, engine, conditions);
+    }
+
+    /**
+     * Wait until every condition is met on the same poll, under a single deadline.
+     * <br>
+     * Every condition is checked on each poll. If the wait times out the result lists the conditions that were still pending.
+     * <p>
+     * Usage Example:
+     * <br>
+     * {@code WaitResult result = waitAll(10, WaitCondition.of(By.id(SPINNER), EXPECTED_CONDITION.IS_INVISIBLE), WaitCondition.of(By.id(LIST), EXPECTED_CONDITION.VISIBLE));}
+     * <br>
+     *
+     * @param timeOutInSeconds the maximum time in seconds
+     * @param conditions       the conditions to wait for
+     * @return a {@link WaitResult} reporting whether every condition was met
+     */
+    public WaitResult waitAll(int timeOutInSeconds, WaitCondition... conditions) {
+        return waitForConditions(true, timeOutInSeconds, waitEngine, conditions);
+    }
+
+    /**
+     * Same as {@link #waitAll(int, WaitCondition...)} but polls with the given {@link WaitEngine} instead of the global one.
+     */
+    public WaitResult waitAll(int timeOutInSeconds, WaitEngine engine, WaitCondition... conditions) {
+        return waitForConditions(true, timeOutInSeconds, engine, conditions);
+    }
+
+    private WaitResult waitForConditions(boolean all, int timeOutInSeconds, WaitEngine engine, WaitCondition... conditions) {
+        if (conditions.length == 0) {
+            throw new InvalidArgumentException("At least one WaitCondition is required");
+        }
+
+        List<WaitCondition> conditionList = Arrays.asList(conditions);
+        List<WaitCondition> met = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        ExpectedCondition<Boolean> poll = new ExpectedCondition<Boolean>() {
+            @Override
+            public Boolean apply(WebDriver driver) {
+                met.clear();
+                values.clear();
+                for (WaitCondition condition : conditionList) {
+                    Object value = condition.evaluate(driver);
+                    if (value != null) {
+                        met.add(condition);
+                        values.add(value);
+                        if (!all) {
+                            return true;
+                        }
+                    }
+                }
+                return all && met.size() == conditionList.size();
+            }
+
+            @Override
+            public String toString() {
+                return (all ? "all of " : "any of ") + conditionList;
+            }
+        };
+
+        long waitsBefore = engine.getTotalWaits();
+        boolean satisfied;
+        try {
+            turnOffImplicitWaits();
+            engine.until(getDriver(), poll, Duration.ofSeconds(timeOutInSeconds));
+            satisfied = true;
+        } catch (TimeoutException e) {
+            satisfied = false;
+        } finally {
+            turnOnImplicitWaits();
+        }
+
+        WaitStatistics statistics = engine.getTotalWaits() > waitsBefore ? engine.getLastWaitStatistics() : null;
+        return new WaitResult(conditionList, new ArrayList<>(met), new ArrayList<>(values), satisfied, statistics);
+    }
+
+    //===== FAST PROBES =====
+
+    /**
+     * Check whether an element is on the screen right now, without waiting for it to appear.
+     * The lookup runs with a zero implicit wait, so an absent element returns false immediately instead of after the global wait.
+     * <br>
+     * Use this for conditional flows ("is the promo banner showing?"). To wait for an element to appear use {@link #isElementDisplayed(By, int)}
+     * or {@link #isConditionTrueBeforeTimeout(By, ExpectedConditionsWrapper.EXPECTED_CONDITION, int)}.
+     * <p>
+     * Usage Example:
+     * <br>
+     * {@code if (isElementPresentNow(By.id(PROMO_BANNER_ID))) { dismissPromo(); }}
+     * <br>
+     *
+     * @param by a {@link By} locator
+     * @return true if at least one element matches the locator right now
+     */
+    public boolean isElementPresentNow(By by) {
+        return isElementPresentNow(by, false);
+    }
+
+    public boolean isElementPresentNow(ResourceLocatorBundle rlb) {
+        return isElementPresentNow(rlb.getBy());
+    }
+
+    /**
+     * Same as {@link #isElementPresentNow(By)}, optionally answered from a cached page source.
+     * <br>
+     * With useCachedPageSource the page source is downloaded once and reused by every probe until the next navigation, window/frame/context switch
+     * or {@link #clearCachedPageSource()}, so a series of probes on one screen costs a single round-trip. Clear it after any action that changes the screen.
+     * Locators that can't be evaluated against the page source fall back to a zero-wait lookup.
+     * Web pages are HTML rather than XML, so on web the cache isn't used and every probe is a zero-wait lookup.
+     *
+     * @param by                  a {@link By} locator
+     * @param useCachedPageSource answer from the cached page source where possible
+     * @return true if at least one element matches the locator right now
+     */
+    public boolean isElementPresentNow(By by, boolean useCachedPageSource) {
+        return probe(by, useCachedPageSource, false).isPresent();
+    }
+
+    public boolean isElementPresentNow(ResourceLocatorBundle rlb, boolean useCachedPageSource) {
+        return isElementPresentNow(rlb.getBy(), useCachedPageSource);
+    }
+
+    /**
+     * Check whether an element is displayed right now, without waiting for it to appear.
+     * See {@link #isElementPresentNow(By)}.
+     *
+     * @param by a {@link By} locator
+     * @return true if the first element matching the locator is displayed right now
+     */
+    public boolean isElementDisplayedNow(By by) {
+        return isElementDisplayedNow(by, false);
+    }
+
+    public boolean isElementDisplayedNow(ResourceLocatorBundle rlb) {
+        return isElementDisplayedNow(rlb.getBy());
+    }
+
+    /**
+     * Same as {@link #isElementDisplayedNow(By)}, optionally answered from a cached page source.
+     * See {@link #isElementPresentNow(By, boolean)}.
+     */
+    public boolean isElementDisplayedNow(By by, boolean useCachedPageSource) {
+        return probe(by, useCachedPageSource, true).isDisplayed();
+    }
+
+    public boolean isElementDisplayedNow(ResourceLocatorBundle rlb, boolean useCachedPageSource) {
+        return isElementDisplayedNow(rlb.getBy(), useCachedPageSource);
+    }
+
+    /**
+     * Drop the page source cached by the fast probes. Call this after an action that changes the screen without navigating.
+     */
+    public void clearCachedPageSource() {
+        elementCache.setPageSnapshot(null);
+    }
+
+    //===== PAGE SNAPSHOT =====
+
+    /**
+     * Download the page source once and parse it into a {@link PageSnapshot} that answers id, accessibility id, class name, name,
+     * XPath and text queries locally.
+     * <br>
+     * Use this for verification steps that check many elements on the same screen. On native apps each findElement can take seconds,
+     * a snapshot costs one page source download no matter how many queries are made against it.
+     * Use {@link PageSnapshot#getLiveElement(By)} when an element needs to be interacted with.
+     * <br>
+     * Only native app page sources are indexed. On web the page source is HTML, so the snapshot keeps it but answers
+     * {@link PageSnapshot#count(By)}, {@link PageSnapshot#getText(By)} and {@link PageSnapshot#getAttribute(By, String)} on the driver.
+     * <p>
+     * Usage Example:
+     * <br>
+     * {@code PageSnapshot screen = snapshot();}
+     * <br>
+     * {@code verifyEquals(screen.getText(By.id(TITLE_ID)), "Settings");}
+     * <br>
+     *
+     * @return a new snapshot of the current screen
+     */
+    public PageSnapshot snapshot() {
+        return new PageSnapshot(getPageSource(), this, isPageSourceXml());
+    }
+
+    /**
+     * @return true if the page source is XML a {@link PageSnapshot} can index. Web pages are HTML, native app hierarchies are XML.
+     */
+    protected boolean isPageSourceXml() {
+        return false;
+    }
+
+    private ElementState probe(By by, boolean useCachedPageSource, boolean checkDisplayed) {
+        if (reporter != null) {
+            reporter.addCheckForExistence(by);
+        }
+
+        if (useCachedPageSource && isPageSourceXml()) {
+            PageSnapshot snapshot = elementCache.getPageSnapshot();
+            if (snapshot == null) {
+                snapshot = snapshot();
+                elementCache.setPageSnapshot(snapshot);
+            }
+
+            if (snapshot.canResolve(by)) {
+                return snapshot.getState(by);
+            }
+        }
+
+        return withImplicitWait(Duration.ZERO, () -> {
+            try {
+                List<WebElement> elements = getDriver().findElements(by);
+                if (elements.isEmpty()) {
+                    return ElementState.absent(by);
+                }
+
+                boolean displayed = checkDisplayed && elements.get(0).isDisplayed();
+                return new ElementState(by, elements.size(), displayed, null, null);
+            } catch (StaleElementReferenceException e) {
+                return ElementState.absent(by);
+            }
+        });
+    }
+
+    //===== BATCH LOCATOR RESOLUTION =====
+
+    /**
+     * Resolve the presence, displayed state, rect and text of many locators at once.
+     * On web this is a single executeScript call, on Appium it is a single page source download.
+     * Locators that cannot be resolved that way (relative locators, UiAutomator, etc.) fall back to an individual lookup with implicit waits off.
+     * <br>
+     * Nothing is waited on, this reports the state of the screen right now.
+     * <p>
+     * Usage Example:
+     * <br>
+     * {@code Map<By, ElementState> screen = resolveAll(List.of(TITLE, ERROR_BANNER, SUBMIT_BUTTON));}
+     * <br>
+     *
+     * @param locators the locators to resolve
+     * @return an {@link ElementState} for every locator, in the order given
+     */
+    public Map<By, ElementState> resolveAll(List<By> locators) {
+        Map<By, ElementState> resolved = resolveAllInOnePass(locators);
+        Map<By, ElementState> states = new LinkedHashMap<>();
+
+        for (By locator : locators) {
+            ElementState state = resolved.get(locator);
+            states.put(locator, state != null ? state : resolveIndividually(locator));
+        }
+
+        return states;
+    }
+
+    /**
+     * {@link ResourceLocatorBundle} version of {@link #resolveAll(List)}
+     *
+     * @param rlbs the bundles to resolve
+     * @return an {@link ElementState} for every bundle, in the order given
+     */
+    public Map<ResourceLocatorBundle, ElementState> resolveAllBundles(List<ResourceLocatorBundle> rlbs) {
+        List<By> locators = new ArrayList<>();
+        for (ResourceLocatorBundle rlb : rlbs) {
+            locators.add(rlb.getBy());
+        }
+
+        Map<By, ElementState> resolved = resolveAll(locators);
+        Map<ResourceLocatorBundle, ElementState> states = new LinkedHashMap<>();
+        for (ResourceLocatorBundle rlb : rlbs) {
+            states.put(rlb, resolved.get(rlb.getBy()));
+        }
+
+        return states;
+    }
+
+    /**
+     * Resolve as many of the locators as possible in one round-trip. Locators left out of the result are resolved individually.
+     */
+    protected Map<By, ElementState> resolveAllInOnePass(List<By> locators) {
+        return ElementStateResolver.resolveWithScript(getDriver(), locators);
+    }
+
+    private ElementState resolveIndividually(By locator) {
+        try {
+            turnOffImplicitWaits();
+            List<WebElement> elements = getDriver().findElements(locator);
+            if (elements.isEmpty()) {
+                return ElementState.absent(locator);
+            }
+
+            WebElement first = elements.get(0);
+            return new ElementState(locator, elements.size(), first.isDisplayed(), first.getRect(), first.getText());
+        } catch (WebDriverException e) {
+            return ElementState.absent(locator);
+        } finally {
+            turnOnImplicitWaits();
+        }
+    }
+
     /**
      * Return a list of elements by tag name *
      */
@@ -1042,9 +1917,22 @@ public abstract class WebDriverWrapper {
 
     /**
      * Wait for locator to not find a visible element *
+     * <br>
+     * This uses {@link #driverWait}, so the poll count is not known and is recorded as 0 in {@link LocatorMetrics}.
      */
     public boolean waitInvisible(By locator) {
-        return driverWait.until(ExpectedConditions.invisibilityOfElementLocated(locator));
+        long start = System.nanoTime();
+        LocatorMetrics.Outcome outcome = LocatorMetrics.Outcome.ERROR;
+        try {
+            boolean invisible = driverWait.until(ExpectedConditions.invisibilityOfElementLocated(locator));
+            outcome = LocatorMetrics.Outcome.FOUND;
+            return invisible;
+        } catch (TimeoutException e) {
+            outcome = LocatorMetrics.Outcome.TIMEOUT;
+            throw e;
+        } finally {
+            recordLookup("waitInvisible", locator, start, 0, outcome);
+        }
     }
 
     public boolean waitInvisible(ResourceLocatorBundle rlb) {
@@ -1077,30 +1965,52 @@ public abstract class WebDriverWrapper {
         element.setParent(getDriver());
     }
 
+    /**
+     * @return the screenshot as PNG bytes, without writing a temp file
+     */
+    public byte[] getScreenshotBytes() {
+        return getDriver().getScreenshotAs(OutputType.BYTES);
+    }
+
+    /**
+     * @return the writer this wrapper's screenshots are saved with, flush it to wait for them to be on disk
+     */
+    public ScreenshotWriter getScreenshotWriter() {
+        return screenshotWriter != null ? screenshotWriter : ScreenshotWriter.getShared();
+    }
+
+    public void setScreenshotWriter(ScreenshotWriter screenshotWriter) {
+        this.screenshotWriter = screenshotWriter;
+    }
+
     /**
      * This seems to have come from http://stackoverflow.com/questions/13832322/how-to-capture-the-screenshot-of-a-specific-element-rather-than-entire-page-usin
      * <p>
      * It will give the particular object screenshot
+     * <br>
+     * The element is captured with the driver's element screenshot command, which only transfers the element and already matches its pixels.
+     * If the driver doesn't support it, the full screenshot is cropped to the element's rect on the {@link ScreenshotWriter},
+     * decoding only that region. This waits for the file to be written before returning its path.
      *
      * @param element,        particular object id
      * @param outputLocation, the path
      * @param fileName,       the file name
-     * @return the file path
+     * @return the file path, or an empty string if the screenshot couldn't be taken or written
      */
     public String takeObjectScreenshot(WebElement element, String outputLocation, String fileName) {
         Logger.log("Saving snapshot to " + outputLocation + fileName);
         try {
-            File screenshot = getScreenshot();
-            BufferedImage fullImg = ImageIO.read(screenshot);
-            Point point = element.getLocation();
-            int eleWidth = element.getSize().getWidth();
-            int eleHeight = element.getSize().getHeight();
-
-            BufferedImage eleScreenshot = fullImg.getSubimage(point.getX(), point.getY(), eleWidth, eleHeight);
-            ImageIO.write(eleScreenshot, "png", screenshot);
-            String fileLocation = outputLocation + fileName + ".png";
-            FileUtils.copyFile(screenshot, new File(fileLocation));
+            ScreenshotStore.Stored saved;
+            byte[] elementScreenshot = getElementScreenshotBytes(element);
+            if (elementScreenshot != null) {
+                saved = saveScreenshot(elementScreenshot, outputLocation, fileName + ".png", null, screenshotProfile);
+            } else {
+                Rectangle rect = element.getRect();
+                saved = saveScreenshot(getScreenshotBytes(), outputLocation, fileName + ".png", rect, screenshotProfile);
+            }
+            saved.getWritten().join();
 
+            String fileLocation = outputLocation + saved.getRelativePath();
             reporter.addScreenshot(fileLocation, fileName);
 
 
@@ -1111,6 +2021,27 @@ public abstract class WebDriverWrapper {
         return "";
     }
 
+    /**
+     * @return the element's screenshot as PNG bytes, or null if the driver couldn't take it.
+     * Once a driver has answered that it doesn't support the command, the wrapper stops asking it.
+     */
+    private byte[] getElementScreenshotBytes(WebElement element) {
+        if (!nativeElementScreenshots) {
+            return null;
+        }
+
+        try {
+            return element.getScreenshotAs(OutputType.BYTES);
+        } catch (UnsupportedCommandException | UnsupportedOperationException e) {
+            Logger.log("The driver doesn't support element screenshots, cropping full screenshots instead.");
+            nativeElementScreenshots = false;
+            return null;
+        } catch (WebDriverException e) {
+            Logger.log("Element screenshot failed, cropping a full screenshot instead: " + String.valueOf(e.getMessage()).split("\n")[0]);
+            return null;
+        }
+    }
+
     public void takeScreenshotSuppressError(String outputLocation, String fileName, String reportOffset) {
         try {
             takeScreenshot(outputLocation, fileName, reportOffset);
@@ -1119,18 +2050,73 @@ public abstract class WebDriverWrapper {
         }
     }
 
-    public void takeScreenshot(String outputLocation, String fileName, String reportOffset) throws IOException {
+    /**
+     * Capture a screenshot and queue it on the {@link ScreenshotWriter}. Errors writing the file are logged by the writer.
+     * <br>
+     * The file is written in the background and may not exist yet when this returns, join the returned future before reading it.
+     * It is encoded with the configured {@link ScreenshotProfile}, so its extension can differ from the file name's.
+     *
+     * @return a future that completes with the file once it is written
+     */
+    public CompletableFuture<Path> takeScreenshot(String outputLocation, String fileName, String reportOffset) throws IOException {
         Logger.log("Saving snapshot to " + outputLocation + fileName);
-        File srcFiler = getDriver().getScreenshotAs(OutputType.FILE);
-        FileUtils.copyFile(srcFiler, new File(outputLocation + fileName));
-        reporter.addScreenshot(reportOffset + fileName, fileName);
+        ScreenshotStore.Stored saved = saveScreenshot(getScreenshotBytes(), outputLocation, fileName, null, screenshotProfile);
+        reporter.addScreenshot(reportOffset + saved.getRelativePath(), fileName);
+        return saved.getWritten();
+    }
+
+    /**
+     * Capture a screenshot and queue it on the {@link ScreenshotWriter}. Errors writing the file are logged by the writer.
+     * <br>
+     * The file is written in the background and may not exist yet when this returns, join the returned future before reading it.
+     * It is encoded with the configured {@link ScreenshotProfile}, so its extension can differ from the file name's.
+     *
+     * @return a future that completes with the file once it is written
+     */
+    public CompletableFuture<Path> takeScreenshot(String outputLocation, String fileName) throws IOException {
+        return takeScreenshot(outputLocation, fileName, screenshotProfile);
     }
 
-    public void takeScreenshot(String outputLocation, String fileName) throws IOException {
+    /**
+     * Capture a screenshot and queue it on the {@link ScreenshotWriter} to be encoded with the given profile instead of the configured one,
+     * e.g. {@link ScreenshotProfile#LOSSLESS} for a screenshot that will be pixel diffed.
+     * Unless the profile is lossless, a .png, .jpg, .jpeg or .webp extension on the file name is replaced with the profile's.
+     *
+     * @return a future that completes with the file once it is written, which has the profile's extension
+     */
+    public CompletableFuture<Path> takeScreenshot(String outputLocation, String fileName, ScreenshotProfile profile) throws IOException {
         Logger.log("Saving snapshot to " + outputLocation + fileName);
-        File srcFiler = getDriver().getScreenshotAs(OutputType.FILE);
-        FileUtils.copyFile(srcFiler, new File(outputLocation + fileName));
-        reporter.addScreenshot(outputLocation + fileName, fileName);
+        ScreenshotStore.Stored saved = saveScreenshot(getScreenshotBytes(), outputLocation, fileName, null, profile);
+        reporter.addScreenshot(outputLocation + saved.getRelativePath(), fileName);
+        return saved.getWritten();
+    }
+
+    /**
+     * Queue a screenshot to be saved as outputLocation + fileName, or in the {@link ScreenshotStore} for outputLocation when
+     * SCREENSHOT_DEDUPE is on, hard linked to outputLocation + fileName unless SCREENSHOT_NAMED_LINKS is off.
+     * The file name's image extension is replaced with the profile's, see {@link ScreenshotProfile#fileName(String)}.
+     *
+     * @return the saved file relative to outputLocation, which is the file the report should reference, and a future for its write
+     */
+    private ScreenshotStore.Stored saveScreenshot(byte[] png, String outputLocation, String fileName, Rectangle crop, ScreenshotProfile profile) {
+        fileName = profile.fileName(fileName);
+        if (!screenshotDedupe) {
+            return new ScreenshotStore.Stored(fileName, getScreenshotWriter().write(png, Paths.get(outputLocation + fileName), crop, profile));
+        }
+
+        Path namedLink = screenshotNamedLinks ? Paths.get(outputLocation + fileName) : null;
+        return ScreenshotStore.forDirectory(Paths.get(outputLocation)).store(getScreenshotWriter(), png, crop, profile, namedLink);
+    }
+
+    /**
+     * @return the profile screenshots saved for the report are encoded with, from the SCREENSHOT_FORMAT settings
+     */
+    public ScreenshotProfile getScreenshotProfile() {
+        return screenshotProfile;
+    }
+
+    public void setScreenshotProfile(ScreenshotProfile screenshotProfile) {
+        this.screenshotProfile = screenshotProfile;
     }
 
     public void takeScreenshotSuppressError(String outputLocation, String fileName) {
@@ -1146,63 +2132,62 @@ public abstract class WebDriverWrapper {
     }
 
     /**
-     * Calculates the percentage of pixels that are similar in the two images.
+     * Capture a screenshot and check it against the baseline for this test, step and platform, see {@link BaselineIndex}.
+     * Most checks are a comparison of perceptual hashes; the pixel diff only runs when the hashes are too far apart.
+     * <p>
+     * Usage Example:
+     * <br>
+     * {@code Assert.assertTrue(driverWrapper.checkVisual("LoginTest", "empty form").isMatch());}
+     *
+     * @param testName the test the screenshot belongs to
+     * @param step     the step of the test, unique within it
+     * @return the outcome of the check, a screenshot without a baseline becomes the baseline
+     * @throws IOException if the screenshot or the baseline can't be read or written
+     */
+    public VisualCheck checkVisual(String testName, String step) throws IOException {
+        TestPlatform platform = sessionContext.getTestPlatform() != null ? sessionContext.getTestPlatform() : testPlatform;
+        return getBaselineIndex().check(testName, step, String.valueOf(platform), getScreenshotBytes());
+    }
+
+    /**
+     * @return the index {@link #checkVisual(String, String)} uses, the shared one for the session's config unless one was set
+     */
+    public BaselineIndex getBaselineIndex() {
+        if (baselineIndex != null) {
+            return baselineIndex;
+        }
+        AutomationConfigProperties config = sessionContext.getConfig();
+        return config != null ? BaselineIndex.getShared(config) : BaselineIndex.getShared(Paths.get(BaselineIndex.DEFAULT_DIRECTORY));
+    }
+
+    public void setBaselineIndex(BaselineIndex baselineIndex) {
+        this.baselineIndex = baselineIndex;
+    }
+
+    /**
+     * Calculates the share of pixels that are identical in the two images. Pixels outside the overlap of differently sized images count as different.
+     * Use {@link ImageDiff} directly for tolerances, ignore regions or a diff mask.
      *
      * @param imageFileOne first image for comparison
      * @param imageFileTwo second image for comparison
-     * @return the percentage of pixels that are identical
+     * @return the share of pixels that are identical, from 0 to 1
      * @throws IOException if an error occurs reading the image files
      */
     public float imageSimilarity(File imageFileOne, File imageFileTwo) throws IOException {
-        BufferedImage imageOne = ImageIO.read(imageFileOne);
-        BufferedImage imageTwo = ImageIO.read(imageFileTwo);
-
-        int minWidth = Math.min(imageOne.getWidth(), imageTwo.getWidth());
-        int minHeight = Math.min(imageOne.getHeight(), imageTwo.getHeight());
-
-        int samePixelCount = 0;
-        int differentPixelCount = 0;
-        for (int x = 0; x < minWidth; x++) {
-            for (int y = 0; y < minHeight; y++) {
-                if (imageOne.getRGB(x, y) == imageTwo.getRGB(x, y)) {
-                    samePixelCount++;
-                } else {
-                    differentPixelCount++;
-                }
-            }
-        }
-
-        int totalPixels = samePixelCount + differentPixelCount;
-        return (float) ((totalPixels - samePixelCount) / totalPixels);
-
+        return (float) new ImageDiff().compare(imageFileOne, imageFileTwo).getSimilarity();
     }
 
     /**
      * Compares two images and returns true if the images are exactly the same.
+     * The comparison stops at the first differing pixel.
      *
      * @param imageFileOne first image for comparison
      * @param imageFileTwo second image for comparison
-     * @return true iff the images have exactly the same pixels
+     * @return true iff the images are the same size and have exactly the same pixels
      * @throws IOException if an error occurs reading the image files
      */
     public boolean areImagesIdentical(String imageFileOne, String imageFileTwo) throws IOException {
-
-        BufferedImage imageOne = ImageIO.read(new File(imageFileOne));
-        BufferedImage imageTwo = ImageIO.read(new File(imageFileTwo));
-
-        int minWidth = Math.min(imageOne.getWidth(), imageTwo.getWidth());
-        int minHeight = Math.min(imageOne.getHeight(), imageTwo.getHeight());
-
-        for (int x = 0; x < minWidth; x++) {
-            for (int y = 0; y < minHeight; y++) {
-                if (imageOne.getRGB(x, y) != imageTwo.getRGB(x, y)) {
-                    return false;
-                }
-            }
-        }
-
-        return true;
-
+        return new ImageDiff().stopAfter(1).compare(new File(imageFileOne), new File(imageFileTwo)).isIdentical();
     }
 
     public Actions actions() {
@@ -26,6 +26,10 @@ public class WebDriverWrapperGeneric extends WebDriverWrapper {
         super(configProperties);
     }
 
+    WebDriverWrapperGeneric(AutomationConfigProperties configProperties, RemoteWebDriver driver) {
+        super(configProperties, driver);
+    }
+
     public WebDriverWrapperGeneric() {}
 
     @Override
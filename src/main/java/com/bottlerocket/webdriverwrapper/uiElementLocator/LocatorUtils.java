@@ -1,19 +1,21 @@
 package com.bottlerocket.webdriverwrapper.uiElementLocator;
 
+import com.bottlerocket.webdriverwrapper.SessionContext;
 import io.appium.java_client.AppiumBy;
 import org.apache.commons.lang3.NotImplementedException;
 import org.openqa.selenium.*;
 
 public class LocatorUtils {
 
-    private static TestPlatform testPlatformForCurrentTestRun;
-
+    /**
+     * @return the platform of the {@link SessionContext} bound to this thread, or of the global context if none is bound
+     */
     public static TestPlatform getTestPlatformForCurrentTestRun() {
-        return testPlatformForCurrentTestRun;
+        return SessionContext.current().getTestPlatform();
     }
 
     public static void setTestPlatformForCurrentTestRun(TestPlatform testPlatform) {
-        testPlatformForCurrentTestRun = testPlatform;
+        SessionContext.current().setTestPlatform(testPlatform);
     }
 
     /**
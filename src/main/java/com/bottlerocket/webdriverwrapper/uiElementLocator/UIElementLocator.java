@@ -4,6 +4,7 @@ import org.apache.commons.lang3.NotImplementedException;
 import org.openqa.selenium.By;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 
@@ -14,6 +15,7 @@ import java.util.List;
 public class UIElementLocator {
 
     HashMap<TestPlatform, PlatformElementSelector> platformElementSelectors;
+    HashMap<TestPlatform, UIElementSelector> matchedElementSelectors = new HashMap<>();
 
     public UIElementLocator() {
         this.platformElementSelectors = new HashMap<>();
@@ -406,4 +408,47 @@ public class UIElementLocator {
 
         return uiElementSelectors;
     }
+
+    /** Use this method to get the UIElementSelectors for the {@link TestPlatform} used by a test run, best rank first
+     * @return a {@link List} of {@link UIElementSelector} objects sorted by rank (list may be empty)
+     */
+    public List<UIElementSelector> getRankedSelectors() {
+        return getRankedSelectors(getTestPlatformForCurrentTestRun());
+    }
+
+    /** Use this method to get the UIElementSelectors for a given {@link TestPlatform}, best rank first
+     * <br>
+     * Selectors with the same rank keep the order they were added in.
+     * @param testPlatform - a {@link TestPlatform}
+     * @return a {@link List} of {@link UIElementSelector} objects sorted by rank (list may be empty)
+     */
+    public List<UIElementSelector> getRankedSelectors(TestPlatform testPlatform) {
+        PlatformElementSelector platformElementSelector = platformElementSelectors.get(testPlatform);
+        if (platformElementSelector == null) {
+            return new ArrayList<>();
+        }
+
+        List<UIElementSelector> rankedSelectors = new ArrayList<>(platformElementSelector.uiElementSelectors);
+        rankedSelectors.sort(Comparator.comparingInt(UIElementSelector::getRank));
+        return rankedSelectors;
+    }
+
+    /** Use this method to record which selector found the element, so fallbacks can be spotted and selectors re-ranked
+     * @param testPlatform - the {@link TestPlatform} the element was found on
+     * @param uiElementSelector - the {@link UIElementSelector} that found the element
+     */
+    public void setMatchedSelector(TestPlatform testPlatform, UIElementSelector uiElementSelector) {
+        this.matchedElementSelectors.put(testPlatform, uiElementSelector);
+    }
+
+    /** Use this method to get the selector that most recently found the element for the {@link TestPlatform} used by a test run
+     * @return the {@link UIElementSelector} that matched, or null if the element has not been found yet
+     */
+    public UIElementSelector getMatchedSelector() {
+        return getMatchedSelector(getTestPlatformForCurrentTestRun());
+    }
+
+    public UIElementSelector getMatchedSelector(TestPlatform testPlatform) {
+        return this.matchedElementSelectors.get(testPlatform);
+    }
 }
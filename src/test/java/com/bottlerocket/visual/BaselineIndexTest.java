@@ -0,0 +1,115 @@
+package com.bottlerocket.visual;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.bottlerocket.visual.ImageDiffTest.image;
+import static com.bottlerocket.visual.ImageDiffTest.paint;
+
+public class BaselineIndexTest {
+    private Path directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("baselines");
+    }
+
+    @AfterMethod
+    public void deleteDirectory() {
+        FileUtils.deleteQuietly(directory.toFile());
+    }
+
+    @Test
+    public void similarImagesHaveCloseHashes() {
+        BufferedImage one = screen(BufferedImage.TYPE_INT_RGB);
+        BufferedImage two = screen(BufferedImage.TYPE_3BYTE_BGR);
+        paint(two, 0, 0, 1, 1, 0x000000);
+        BufferedImage inverted = image(BufferedImage.TYPE_INT_RGB, 400, 800, 0x202020);
+        paint(inverted, 0, 400, 400, 400, 0xF0F0F0);
+
+        Assert.assertEquals(PerceptualHash.hammingDistance(PerceptualHash.dHash(one), PerceptualHash.dHash(two)), 0);
+        Assert.assertTrue(PerceptualHash.hammingDistance(PerceptualHash.pHash(one), PerceptualHash.pHash(two)) <= 2);
+        Assert.assertTrue(PerceptualHash.hammingDistance(PerceptualHash.pHash(one), PerceptualHash.pHash(inverted)) > 10);
+    }
+
+    @Test
+    public void onlyScreenshotsOverTheHashThresholdAreDiffed() throws IOException {
+        BaselineIndex index = BaselineIndex.load(directory);
+
+        Assert.assertEquals(index.check("LoginTest", "empty form", "WEB", screen(BufferedImage.TYPE_INT_RGB)).getStatus(), VisualCheck.Status.NEW_BASELINE);
+        VisualCheck same = index.check("LoginTest", "empty form", "WEB", screen(BufferedImage.TYPE_INT_RGB));
+        Assert.assertEquals(same.getStatus(), VisualCheck.Status.MATCH_BY_HASH);
+        Assert.assertNull(same.getDiff());
+
+        BufferedImage changed = screen(BufferedImage.TYPE_INT_RGB);
+        paint(changed, 0, 0, 400, 400, 0x202020);
+        VisualCheck different = index.check("LoginTest", "empty form", "WEB", changed);
+        Assert.assertEquals(different.getStatus(), VisualCheck.Status.DIFFERENT);
+        Assert.assertTrue(Files.exists(different.getFailureImage()));
+
+        index.save();
+        BaselineIndex reloaded = BaselineIndex.load(directory);
+        Assert.assertEquals(reloaded.size(), 1);
+        Assert.assertEquals(reloaded.get("LoginTest", "empty form", "WEB").getDHash(), index.get("LoginTest", "empty form", "WEB").getDHash());
+        Assert.assertEquals(reloaded.findSimilar(screen(BufferedImage.TYPE_INT_RGB), 0).size(), 1);
+    }
+
+    @Test
+    public void stepsWithTheSameFileNameKeepSeparateImages() throws IOException {
+        BaselineIndex index = BaselineIndex.load(directory);
+        BufferedImage changed = screen(BufferedImage.TYPE_INT_RGB);
+        paint(changed, 0, 0, 400, 400, 0x202020);
+
+        index.check("LoginTest", "empty form", "WEB", screen(BufferedImage.TYPE_INT_RGB));
+        index.check("LoginTest", "empty_form", "WEB", changed);
+
+        BufferedImage first = ImageIO.read(directory.resolve(index.get("LoginTest", "empty form", "WEB").getImage()).toFile());
+        Assert.assertEquals(first.getRGB(0, 0) & 0xFFFFFF, 0x336699, "Verify the second step didn't overwrite the first step's image.");
+    }
+
+    @Test
+    public void concurrentChecksOfANewStepCreateOneBaseline() throws Exception {
+        BaselineIndex index = BaselineIndex.load(directory);
+        ExecutorService tests = Executors.newFixedThreadPool(8);
+        List<Future<VisualCheck>> checks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            checks.add(tests.submit(() -> index.check("LoginTest", "empty form", "WEB", screen(BufferedImage.TYPE_INT_RGB))));
+        }
+
+        int newBaselines = 0;
+        for (Future<VisualCheck> check : checks) {
+            VisualCheck.Status status = check.get().getStatus();
+            if (status == VisualCheck.Status.NEW_BASELINE) {
+                newBaselines++;
+            } else {
+                Assert.assertEquals(status, VisualCheck.Status.MATCH_BY_HASH);
+            }
+        }
+        tests.shutdown();
+
+        Assert.assertEquals(newBaselines, 1, "Verify only the first check of a step writes its baseline.");
+        Assert.assertEquals(index.size(), 1);
+    }
+
+    private static BufferedImage screen(int type) {
+        BufferedImage image = image(type, 400, 800, 0xF0F0F0);
+        paint(image, 0, 0, 400, 80, 0x336699);
+        paint(image, 40, 300, 320, 60, 0xCCCCCC);
+        paint(image, 40, 600, 320, 80, 0x202020);
+        return image;
+    }
+}
@@ -0,0 +1,97 @@
+package com.bottlerocket.visual;
+
+import freemarker.template.TemplateException;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.bottlerocket.visual.ImageDiffTest.image;
+import static com.bottlerocket.visual.ImageDiffTest.paint;
+
+public class BatchVisualDiffTest {
+    private Path directory;
+    private Path baseline;
+    private Path candidate;
+    private Path output;
+
+    @BeforeMethod
+    public void createDirectories() throws IOException {
+        directory = Files.createTempDirectory("visual-diff");
+        baseline = Files.createDirectories(directory.resolve("baseline"));
+        candidate = Files.createDirectories(directory.resolve("candidate"));
+        output = Files.createDirectories(directory.resolve("output"));
+    }
+
+    @AfterMethod
+    public void deleteDirectories() {
+        FileUtils.deleteQuietly(directory.toFile());
+    }
+
+    @Test
+    public void pairsScreenshotsByNameAndSummarizesTheChanges() throws IOException, TemplateException {
+        BufferedImage home = image(BufferedImage.TYPE_INT_RGB, 200, 300, 0x336699);
+        write(home, baseline.resolve("home.png"));
+        write(home, candidate.resolve("home.png"));
+
+        write(home, baseline.resolve("login/form.png"));
+        BufferedImage changed = image(BufferedImage.TYPE_INT_RGB, 200, 300, 0x336699);
+        paint(changed, 0, 0, 200, 100, 0xFFFFFF);
+        write(changed, candidate.resolve("login/form.png"));
+
+        write(home, baseline.resolve("removed.png"));
+
+        BatchVisualDiff.Summary summary = new BatchVisualDiff(baseline, candidate, output).run();
+        Assert.assertEquals(summary.count(BatchVisualDiff.Status.IDENTICAL), 1);
+        Assert.assertEquals(summary.count(BatchVisualDiff.Status.DIFFERENT), 1);
+        Assert.assertEquals(summary.count(BatchVisualDiff.Status.MISSING), 1);
+        Assert.assertFalse(summary.isPassed());
+
+        BatchVisualDiff.Entry different = summary.getEntries().get(0);
+        Assert.assertEquals(different.getName(), "login/form.png", "Verify the most changed screenshot is listed first.");
+        Assert.assertEquals(different.getSimilarity(), 2.0 / 3, 0.0001);
+        Assert.assertTrue(Files.exists(output.resolve(different.getMask())));
+        Assert.assertTrue(Files.exists(output.resolve(different.getMaskThumbnail())));
+
+        String html = new String(Files.readAllBytes(summary.getReport()), StandardCharsets.UTF_8);
+        Assert.assertTrue(html.contains("login/form.png") && html.contains(different.getMaskThumbnail()));
+    }
+
+    @Test
+    public void screenshotsWithTheSameFileNameKeepSeparateMasks() throws IOException, TemplateException {
+        BufferedImage home = image(BufferedImage.TYPE_INT_RGB, 200, 300, 0x336699);
+        BufferedImage changed = image(BufferedImage.TYPE_INT_RGB, 200, 300, 0x336699);
+        paint(changed, 0, 0, 200, 100, 0xFFFFFF);
+        for (String name : new String[]{"login/form.png", "login_form.png"}) {
+            write(home, baseline.resolve(name));
+            write(changed, candidate.resolve(name));
+        }
+
+        BatchVisualDiff.Summary summary = new BatchVisualDiff(baseline, candidate, output).run();
+        Assert.assertEquals(summary.count(BatchVisualDiff.Status.DIFFERENT), 2);
+        Assert.assertNotEquals(summary.getEntries().get(0).getMask(), summary.getEntries().get(1).getMask());
+        Assert.assertNotEquals(summary.getEntries().get(0).getBaselineThumbnail(), summary.getEntries().get(1).getBaselineThumbnail());
+    }
+
+    @Test
+    public void nothingToCompareFails() throws IOException, TemplateException {
+        write(image(BufferedImage.TYPE_INT_RGB, 20, 20, 0x336699), baseline.resolve("objects/ab/ab12.png"));
+
+        BatchVisualDiff.Summary summary = new BatchVisualDiff(baseline, candidate, output).run();
+        Assert.assertTrue(summary.getEntries().isEmpty());
+        Assert.assertFalse(summary.isPassed(), "Verify runs saved without named links don't pass without comparing anything.");
+    }
+
+    private static void write(BufferedImage image, Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        ImageIO.write(image, "png", file.toFile());
+    }
+}
@@ -0,0 +1,88 @@
+package com.bottlerocket.visual;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ImageDiff} with the per-pixel getRGB loop WebDriverWrapper.imageSimilarity used before it, on phone and tablet sized
+ * screenshots that differ in a small block. Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageDiffBenchmark {
+
+    @Param({"1080x2400", "2048x2732"})
+    public String size;
+
+    private BufferedImage one;
+    private BufferedImage two;
+
+    @Setup
+    public void createImages() {
+        int width = Integer.parseInt(size.split("x")[0]);
+        int height = Integer.parseInt(size.split("x")[1]);
+        //screenshots read by ImageIO are usually 3 byte BGR
+        one = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                one.setRGB(x, y, random.nextInt());
+            }
+        }
+
+        two = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        two.setData(one.getData());
+        ImageDiffTest.paint(two, width / 2, height / 2, 50, 50, 0xFFFFFF);
+    }
+
+    @Benchmark
+    public float legacyGetRgbLoop() {
+        int minWidth = Math.min(one.getWidth(), two.getWidth());
+        int minHeight = Math.min(one.getHeight(), two.getHeight());
+
+        int samePixelCount = 0;
+        int differentPixelCount = 0;
+        for (int x = 0; x < minWidth; x++) {
+            for (int y = 0; y < minHeight; y++) {
+                if (one.getRGB(x, y) == two.getRGB(x, y)) {
+                    samePixelCount++;
+                } else {
+                    differentPixelCount++;
+                }
+            }
+        }
+        return (float) samePixelCount / (samePixelCount + differentPixelCount);
+    }
+
+    @Benchmark
+    public double imageDiff() {
+        return new ImageDiff().compare(one, two).getSimilarity();
+    }
+
+    @Benchmark
+    public double imageDiffWithTolerance() {
+        return new ImageDiff().channelTolerance(4).compare(one, two).getSimilarity();
+    }
+
+    @Benchmark
+    public boolean imageDiffIdentical() {
+        return new ImageDiff().stopAfter(1).compare(one, two).isIdentical();
+    }
+}
@@ -0,0 +1,65 @@
+package com.bottlerocket.visual;
+
+import org.openqa.selenium.Rectangle;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.awt.image.BufferedImage;
+
+public class ImageDiffTest {
+
+    @Test
+    public void similarityIsTheShareOfMatchingPixels() {
+        BufferedImage one = image(BufferedImage.TYPE_INT_RGB, 100, 100, 0x336699);
+        BufferedImage two = image(BufferedImage.TYPE_3BYTE_BGR, 100, 100, 0x336699);
+        paint(two, 0, 0, 10, 10, 0xFFFFFF);
+
+        DiffResult result = new ImageDiff().compare(one, two);
+        Assert.assertEquals(result.getDifferentPixels(), 100);
+        Assert.assertEquals(result.getSimilarity(), 0.99, 0.0001);
+        Assert.assertFalse(result.isIdentical());
+    }
+
+    @Test
+    public void toleranceAndIgnoreRegionsHideDifferences() {
+        BufferedImage one = image(BufferedImage.TYPE_INT_ARGB, 200, 150, 0xFF336699);
+        BufferedImage two = image(BufferedImage.TYPE_INT_ARGB, 200, 150, 0xFF34679A);
+        paint(two, 50, 50, 20, 20, 0xFF000000);
+
+        DiffResult result = new ImageDiff().channelTolerance(2).ignore(new Rectangle(50, 50, 20, 20)).withMask().compare(one, two);
+        Assert.assertEquals(result.getDifferentPixels(), 0);
+        Assert.assertEquals(result.getIgnoredPixels(), 400);
+        Assert.assertEquals(result.getMask().getRGB(55, 55), 0x80808080);
+    }
+
+    @Test
+    public void stopAfterEndsTheComparisonEarly() {
+        BufferedImage one = image(BufferedImage.TYPE_INT_RGB, 100, 2000, 0);
+        BufferedImage two = image(BufferedImage.TYPE_INT_RGB, 100, 2000, 0xFFFFFF);
+
+        DiffResult result = new ImageDiff().stopAfter(1).compare(one, two);
+        Assert.assertTrue(result.isStoppedEarly());
+        Assert.assertTrue(result.getComparedPixels() < 100L * 2000);
+    }
+
+    @Test
+    public void pixelsOutsideTheOverlapCountAsDifferent() {
+        DiffResult result = new ImageDiff().compare(image(BufferedImage.TYPE_INT_RGB, 100, 100, 0), image(BufferedImage.TYPE_INT_RGB, 100, 50, 0));
+        Assert.assertFalse(result.isSameSize());
+        Assert.assertEquals(result.getSimilarity(), 0.5, 0.0001);
+    }
+
+    static BufferedImage image(int type, int width, int height, int argb) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        paint(image, 0, 0, width, height, argb);
+        return image;
+    }
+
+    static void paint(BufferedImage image, int x, int y, int width, int height, int argb) {
+        for (int row = y; row < y + height; row++) {
+            for (int column = x; column < x + width; column++) {
+                image.setRGB(column, row, argb);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.bottlerocket.webdriverwrapper;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class CommandTracerTest {
+
+    @Test
+    public void commandNamesHideSessionAndElementIds() {
+        Assert.assertEquals(CommandTracer.commandName(HttpMethod.POST, "/session"), "POST /session");
+        Assert.assertEquals(CommandTracer.commandName(HttpMethod.DELETE, "/session/1f2e"), "DELETE /session/{id}");
+        Assert.assertEquals(CommandTracer.commandName(HttpMethod.POST, "/wd/hub/session/1f2e/element"), "POST /element");
+        Assert.assertEquals(CommandTracer.commandName(HttpMethod.GET, "/session/1f2e/element/abc-123/text"), "GET /element/{id}/text");
+        Assert.assertEquals(CommandTracer.commandName(HttpMethod.GET, "/session/1f2e/element/active"), "GET /element/active");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void chromeTraceHasAThreadNameAndOneCompleteEventPerCommand() {
+        CommandTracer.TraceEvent event = new CommandTracer.TraceEvent("POST /element", 1000, 250, Thread.currentThread(),
+                Collections.singletonMap("locator", "id: login"));
+        Map<String, Object> trace = new Json().toType(CommandTracer.toChromeTrace(List.of(event, event)), Json.MAP_TYPE);
+
+        List<Map<String, Object>> events = (List<Map<String, Object>>) trace.get("traceEvents");
+        Assert.assertEquals(events.size(), 3);
+        Assert.assertEquals(events.get(0).get("ph"), "M");
+        Assert.assertEquals(events.get(1).get("ph"), "X");
+        Assert.assertEquals(((Number) events.get(1).get("dur")).longValue(), 250);
+        Assert.assertEquals(((Map<String, Object>) events.get(1).get("args")).get("locator"), "id: login");
+    }
+}
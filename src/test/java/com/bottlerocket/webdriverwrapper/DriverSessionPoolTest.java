@@ -0,0 +1,148 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.errorhandling.WebDriverWrapperException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DriverSessionPoolTest {
+    private final List<FakeDriver> drivers = new CopyOnWriteArrayList<>();
+    private DriverSessionPool pool;
+
+    /**
+     * A driver that answers the health check until it is marked as crashed, and records being quit.
+     */
+    static class FakeDriver extends RemoteWebDriver {
+        volatile boolean crashed;
+        volatile boolean quit;
+
+        @Override
+        public String getWindowHandle() {
+            if (crashed) {
+                throw new WebDriverException("The browser crashed");
+            }
+            return "main";
+        }
+
+        @Override
+        public void quit() {
+            quit = true;
+        }
+    }
+
+    private DriverSessionPool startPool(int size) {
+        pool = new DriverSessionPool(null, size, Duration.ofHours(1), Duration.ofSeconds(10), SessionResetPolicy.NONE, config -> {
+            FakeDriver driver = new FakeDriver();
+            drivers.add(driver);
+            WebDriverWrapperGeneric driverWrapper = new WebDriverWrapperGeneric();
+            driverWrapper.setDriver(driver);
+            return driverWrapper;
+        });
+        pool.start();
+        return pool;
+    }
+
+    @AfterMethod
+    public void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void leasesShareTheSessionsUnderContention() throws Exception {
+        startPool(2);
+        AtomicInteger leasedNow = new AtomicInteger();
+        AtomicInteger maxLeased = new AtomicInteger();
+
+        ExecutorService tests = Executors.newFixedThreadPool(8);
+        List<Future<?>> results = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(tests.submit(() -> {
+                for (int lease = 0; lease < 20; lease++) {
+                    WebDriverWrapper driverWrapper = pool.lease();
+                    maxLeased.accumulateAndGet(leasedNow.incrementAndGet(), Math::max);
+                    Thread.yield();
+                    leasedNow.decrementAndGet();
+                    pool.release(driverWrapper);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        tests.shutdown();
+
+        Assert.assertTrue(maxLeased.get() <= 2, "Verify a session is never leased to two tests at once, " + maxLeased.get() + " were leased.");
+        Assert.assertEquals(drivers.size(), 2, "Verify released sessions are reused instead of starting new ones.");
+        Assert.assertEquals(pool.getLeaseCount(), 160);
+        Assert.assertEquals(pool.getReusedLeaseCount(), 158);
+        Assert.assertEquals(pool.getEvictionCount(), 0);
+        Assert.assertEquals(pool.getIdleCount(), 2);
+    }
+
+    @Test
+    public void unhealthySessionsAreReplaced() throws WebDriverWrapperException {
+        startPool(1);
+        WebDriverWrapper first = pool.lease();
+        FakeDriver crashed = drivers.get(0);
+        crashed.crashed = true;
+        pool.release(first);
+
+        WebDriverWrapper second = pool.lease();
+
+        Assert.assertNotSame(second, first, "Verify the crashed session isn't leased again.");
+        Assert.assertTrue(crashed.quit, "Verify the crashed session is quit.");
+        Assert.assertEquals(drivers.size(), 2);
+        Assert.assertEquals(pool.getEvictionCount(), 1);
+        pool.release(second);
+    }
+
+    @Test
+    public void idleCheckReplacesCrashedSessions() throws WebDriverWrapperException {
+        startPool(2);
+        WebDriverWrapper leased = pool.lease();
+        pool.release(pool.lease());
+        pool.release(leased);
+        FakeDriver crashed = drivers.get(0);
+        crashed.crashed = true;
+
+        Assert.assertEquals(pool.checkIdleSessions(), 1);
+
+        Assert.assertTrue(crashed.quit, "Verify the crashed session is quit without being leased.");
+        Assert.assertEquals(pool.getEvictionCount(), 1);
+        WebDriverWrapper first = pool.lease();
+        WebDriverWrapper second = pool.lease();
+        Assert.assertEquals(drivers.size(), 3, "Verify a replacement session was started.");
+        Assert.assertFalse(first.getDriver() == crashed || second.getDriver() == crashed, "Verify the crashed session is never leased.");
+        Assert.assertEquals(pool.checkIdleSessions(), 0, "Verify leased sessions are left alone.");
+        pool.release(first);
+        pool.release(second);
+    }
+
+    @Test
+    public void closeQuitsIdleAndLeasedSessions() throws WebDriverWrapperException {
+        startPool(2);
+        pool.lease();
+        pool.release(pool.lease());
+
+        pool.close();
+
+        Assert.assertEquals(drivers.size(), 2);
+        Assert.assertTrue(drivers.stream().allMatch(driver -> driver.quit), "Verify every session is quit, leased or not.");
+        Assert.assertEquals(pool.getIdleCount() + pool.getLeasedCount(), 0);
+        Assert.expectThrows(WebDriverWrapperException.class, () -> pool.lease());
+    }
+}
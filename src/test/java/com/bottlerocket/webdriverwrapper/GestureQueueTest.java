@@ -0,0 +1,34 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.utils.SwipeProperties;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.json.Json;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class GestureQueueTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void gesturesAreBatchedIntoOneAlignedPayload() {
+        GestureQueue queue = new GestureQueue(null)
+                .swipe(500, 1500, 500, 500)
+                .multiSwipe(List.of(new SwipeProperties(400, 800, 100, 800), new SwipeProperties(600, 800, 900, 800)))
+                .pause(200)
+                .tap(new Point(100, 200));
+
+        Assert.assertEquals(queue.getGestureCount(), 4);
+
+        Map<String, Object> payload = new Json().toType(queue.toJson(), Json.MAP_TYPE);
+        List<Map<String, Object>> actions = (List<Map<String, Object>>) payload.get("actions");
+        Assert.assertEquals(actions.size(), 2, "Verify one sequence per finger.");
+
+        List<Object> first = (List<Object>) actions.get(0).get("actions");
+        List<Object> second = (List<Object>) actions.get(1).get("actions");
+        Assert.assertEquals(first.size(), 5 + 5 + 1 + 4);
+        Assert.assertEquals(second.size(), first.size(), "Verify the second finger is padded to the same number of ticks.");
+    }
+}
@@ -0,0 +1,33 @@
+package com.bottlerocket.webdriverwrapper;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverEveryValueOnce() {
+        for (long micros = 0; micros < 1 << 20; micros++) {
+            int index = LatencyHistogram.bucketIndex(micros);
+            Assert.assertTrue(micros <= LatencyHistogram.bucketUpperBound(index));
+            if (index > 0) {
+                Assert.assertTrue(micros > LatencyHistogram.bucketUpperBound(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        Assert.assertEquals(histogram.getCount(), 1000);
+        Assert.assertEquals(histogram.getMax(), 1_000_000);
+        Assert.assertEquals(histogram.getPercentile(50), 500_000, 500_000 * 0.125);
+        Assert.assertEquals(histogram.getPercentile(95), 950_000, 950_000 * 0.125);
+        Assert.assertEquals(histogram.getPercentile(100), 1_000_000, "Verify the top percentile is capped at the real maximum.");
+        Assert.assertEquals(new LatencyHistogram().getPercentile(99), 0);
+    }
+}
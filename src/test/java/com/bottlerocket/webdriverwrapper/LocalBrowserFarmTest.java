@@ -0,0 +1,118 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.config.AutomationConfigProperties;
+import org.apache.commons.io.FileUtils;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.remote.CapabilityType;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class LocalBrowserFarmTest {
+    private final List<DriverSessionPoolTest.FakeDriver> drivers = new CopyOnWriteArrayList<>();
+    private Path tempDir;
+    private AutomationConfigProperties config;
+    private LocalBrowserFarm farm;
+
+    @BeforeMethod
+    public void createConfig() throws IOException {
+        tempDir = Files.createTempDirectory("browser-farm-test");
+        Path configFile = Files.writeString(tempDir.resolve("appconfig.properties"), "PROJECT_NAME=browserFarmTest\n");
+        config = new AutomationConfigProperties(new DesiredCapabilities(), configFile.toString());
+        config.platformName = "Web";
+        config.browserName = "chrome";
+        config.browserFarmSize = 2;
+        config.browserFarmHealthCheckIntervalSeconds = 1;
+        config.sessionReset = "none";
+    }
+
+    @AfterMethod
+    public void closeFarm() {
+        if (farm != null) {
+            farm.close();
+        }
+        FileUtils.deleteQuietly(tempDir.toFile());
+    }
+
+    private LocalBrowserFarm startFarm() {
+        farm = new LocalBrowserFarm(config, sessionConfig -> {
+            DriverSessionPoolTest.FakeDriver driver = new DriverSessionPoolTest.FakeDriver();
+            drivers.add(driver);
+            WebDriverWrapperGeneric driverWrapper = new WebDriverWrapperGeneric();
+            driverWrapper.setDriver(driver);
+            return driverWrapper;
+        });
+        farm.start();
+        return farm;
+    }
+
+    @Test
+    public void crashedIdleBrowsersAreReplacedInTheBackground() throws Exception {
+        startFarm();
+        WebDriverWrapper leased = farm.lease();
+        farm.release(farm.lease());
+        farm.release(leased);
+        DriverSessionPoolTest.FakeDriver crashed = drivers.get(0);
+        crashed.crashed = true;
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (farm.getPool().getEvictionCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        Assert.assertEquals(farm.getPool().getEvictionCount(), 1, "Verify the health check replaced the crashed browser without a lease.");
+        Assert.assertTrue(crashed.quit);
+        Assert.assertEquals(farm.getPool().getLeaseCount(), 2);
+        WebDriverWrapper first = farm.lease();
+        WebDriverWrapper second = farm.lease();
+        Assert.assertFalse(first.getDriver() == crashed || second.getDriver() == crashed, "Verify the crashed browser is never leased.");
+        farm.release(first);
+        farm.release(second);
+    }
+
+    @Test
+    public void farmArgumentsAreAddedAfterTheConfigCapabilities() {
+        config.capabilities.setCapability(CapabilityType.ACCEPT_INSECURE_CERTS, true);
+        farm = new LocalBrowserFarm(config, sessionConfig -> {
+            throw new IllegalStateException("The farm isn't started");
+        });
+
+        Capabilities options = farm.options(tempDir);
+
+        @SuppressWarnings("unchecked")
+        List<String> args = (List<String>) ((Map<String, Object>) options.asMap().get(ChromeOptions.CAPABILITY)).get("args");
+        Assert.assertTrue(args.contains("--headless"), "Verify the browser is headless, args were " + args);
+        Assert.assertTrue(args.contains("--user-data-dir=" + tempDir), "Verify the browser has its own profile, args were " + args);
+        Assert.assertEquals(options.getCapability(CapabilityType.ACCEPT_INSECURE_CERTS), true);
+    }
+
+    @Test
+    public void startProcessFindsTheProcessThatStarted() {
+        Process[] started = new Process[1];
+        Optional<ProcessHandle> process;
+        try {
+            process = LocalBrowserFarm.startProcess(() -> started[0] = new ProcessBuilder("sleep", "30").start());
+        } catch (IOException e) {
+            throw new SkipException("No sleep command to start on this machine", e);
+        }
+
+        try {
+            Assert.assertTrue(process.isPresent(), "Verify the started process is found.");
+            Assert.assertEquals(process.get().pid(), started[0].pid());
+        } finally {
+            started[0].destroy();
+        }
+    }
+}
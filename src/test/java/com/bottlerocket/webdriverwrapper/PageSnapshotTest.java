@@ -0,0 +1,62 @@
+package com.bottlerocket.webdriverwrapper;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.InvalidArgumentException;
+import org.openqa.selenium.Rectangle;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PageSnapshotTest {
+    private static final String ANDROID_SOURCE =
+            "<hierarchy>" +
+            "<android.widget.FrameLayout resource-id=\"com.example:id/root\" bounds=\"[0,0][1080,1920]\" displayed=\"true\">" +
+            "<android.widget.TextView resource-id=\"com.example:id/title\" text=\"Settings\" bounds=\"[0,0][1080,200]\" displayed=\"true\"/>" +
+            "<android.widget.Button resource-id=\"com.example:id/save\" content-desc=\"Save\" text=\"Save changes\" bounds=\"[0,1800][540,1920]\" displayed=\"true\"/>" +
+            "<android.widget.Button resource-id=\"com.example:id/cancel\" text=\"Cancel\" bounds=\"[540,1800][1080,1920]\" displayed=\"false\"/>" +
+            "</android.widget.FrameLayout>" +
+            "</hierarchy>";
+
+    @Test
+    public void answersLocatorsFromTheIndex() {
+        PageSnapshot snapshot = new PageSnapshot(ANDROID_SOURCE);
+
+        Assert.assertTrue(snapshot.isParsed());
+        Assert.assertEquals(snapshot.getText(By.id("com.example:id/title")), "Settings");
+        Assert.assertEquals(snapshot.getText(By.id("title")), "Settings", "Verify ids without the package prefix are matched.");
+        Assert.assertEquals(snapshot.count(By.className("android.widget.Button")), 2);
+        Assert.assertEquals(snapshot.find(By.xpath("//*[@text='Cancel']")).getTagName(), "android.widget.Button");
+        Assert.assertFalse(snapshot.exists(By.id("missing")));
+        Assert.assertEquals(snapshot.findByTextContaining("Save").size(), 1);
+        Assert.assertEquals(snapshot.findByAttribute("content-desc", "Save").get(0).getAttribute("resource-id"), "com.example:id/save");
+    }
+
+    @Test
+    public void readsStateFromAttributes() {
+        PageSnapshot snapshot = new PageSnapshot(ANDROID_SOURCE);
+
+        SnapshotElement save = snapshot.find(By.id("save"));
+        Assert.assertTrue(save.isDisplayed());
+        Assert.assertEquals(save.getRect(), new Rectangle(0, 1800, 120, 540));
+        Assert.assertFalse(snapshot.getState(By.id("cancel")).isDisplayed());
+        Assert.assertEquals(snapshot.findAll(By.className("android.widget.FrameLayout")).get(0).getChildren().size(), 3);
+    }
+
+    @Test
+    public void unparseableSourceCannotResolve() {
+        PageSnapshot snapshot = new PageSnapshot("<html><body><br></body></html>");
+
+        Assert.assertFalse(snapshot.isParsed());
+        Assert.assertFalse(snapshot.canResolve(By.id("title")));
+        Assert.assertNull(snapshot.getState(By.id("title")));
+        Assert.expectThrows(InvalidArgumentException.class, () -> snapshot.find(By.id("title")));
+    }
+
+    @Test
+    public void webSourceIsNotParsed() {
+        PageSnapshot snapshot = new PageSnapshot("<html><body><h1 id=\"title\">Settings</h1></body></html>", null, false);
+
+        Assert.assertFalse(snapshot.isParsed(), "Verify even well-formed HTML is left to the driver.");
+        Assert.assertFalse(snapshot.canResolve(By.id("title")));
+        Assert.expectThrows(InvalidArgumentException.class, () -> snapshot.findAll(By.id("title")));
+    }
+}
@@ -0,0 +1,40 @@
+package com.bottlerocket.webdriverwrapper;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static com.bottlerocket.webdriverwrapper.ScreenshotWriterTest.png;
+
+public class ScreenshotProfileTest {
+
+    @Test
+    public void losslessKeepsTheCapturedBytes() throws IOException {
+        byte[] png = png(300, 200, 0x336699);
+        Assert.assertSame(ScreenshotProfile.LOSSLESS.encode(png, null), png);
+        Assert.assertEquals(ScreenshotProfile.LOSSLESS.fileName("login.jpg"), "login.jpg");
+    }
+
+    @Test
+    public void lossyProfilesScaleConvertAndRenameScreenshots() throws IOException {
+        ScreenshotProfile profile = new ScreenshotProfile(ScreenshotProfile.Format.JPEG, 0.7f, 100, true);
+        BufferedImage encoded = ImageIO.read(new ByteArrayInputStream(profile.encode(png(300, 200, 0x336699), null)));
+
+        Assert.assertEquals(encoded.getWidth(), 100);
+        Assert.assertEquals(encoded.getHeight(), 67, "Verify the aspect ratio is kept.");
+        Assert.assertEquals(encoded.getType(), BufferedImage.TYPE_BYTE_GRAY);
+        Assert.assertEquals(profile.fileName("login.png"), "login.jpg");
+    }
+
+    @Test
+    public void unknownFormatsAreNotParsed() {
+        Assert.assertEquals(ScreenshotProfile.parseFormat(" jpg "), ScreenshotProfile.Format.JPEG);
+        Assert.assertEquals(ScreenshotProfile.parseFormat("WebP"), ScreenshotProfile.Format.WEBP);
+        Assert.assertNull(ScreenshotProfile.parseFormat("gif"));
+        Assert.assertNull(ScreenshotProfile.parseFormat(""));
+    }
+}
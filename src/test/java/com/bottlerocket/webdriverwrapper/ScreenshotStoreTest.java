@@ -0,0 +1,123 @@
+package com.bottlerocket.webdriverwrapper;
+
+import org.apache.commons.io.FileUtils;
+import org.openqa.selenium.Rectangle;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.bottlerocket.webdriverwrapper.ScreenshotWriterTest.png;
+
+public class ScreenshotStoreTest {
+    private Path directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("screenshot-store-test");
+    }
+
+    @AfterMethod
+    public void deleteDirectory() {
+        FileUtils.deleteQuietly(directory.toFile());
+    }
+
+    @Test
+    public void duplicateScreenshotsAreWrittenOnce() throws IOException {
+        ScreenshotStore store = new ScreenshotStore(directory);
+        ScreenshotWriter writer = new ScreenshotWriter(4, 1);
+        byte[] idle = png(40, 30, 0x336699);
+
+        String first = store.store(writer, idle, null, directory.resolve("step1.png")).getRelativePath();
+        ScreenshotStore.Stored second = store.store(writer, idle, null, directory.resolve("step2.png"));
+        String other = store.store(writer, png(40, 30, 0xFFFFFF), null, null).getRelativePath();
+        String cropped = store.store(writer, idle, new Rectangle(0, 0, 10, 10), null).getRelativePath();
+
+        Assert.assertEquals(second.getWritten().join(), directory.resolve("step2.png"), "Verify the future completes with the named link.");
+        writer.close();
+
+        Assert.assertEquals(second.getRelativePath(), first);
+        Assert.assertNotEquals(other, first);
+        Assert.assertNotEquals(cropped, first, "Verify a crop of the same frame is stored separately.");
+        Assert.assertEquals(writer.getWrittenCount(), 3);
+        Assert.assertEquals(store.getDeduplicated(), 1);
+        Assert.assertEquals(store.getDedupeRatio(), 0.25, 0.0001);
+        Assert.assertEquals(Files.readAllBytes(directory.resolve("step2.png")), idle);
+        Assert.assertEquals(Files.readAllBytes(directory.resolve("step1.png")), idle);
+    }
+
+    @Test
+    public void lossyScreenshotsAreStoredWithTheirFormatsExtension() throws IOException {
+        ScreenshotStore store = new ScreenshotStore(directory);
+        ScreenshotWriter writer = new ScreenshotWriter(4, 1);
+        ScreenshotProfile jpeg = new ScreenshotProfile(ScreenshotProfile.Format.JPEG, 0.7f, 0, false);
+
+        ScreenshotStore.Stored stored = store.store(writer, png(40, 30, 0x336699), null, jpeg, null);
+        Path written = stored.getWritten().join();
+        writer.close();
+
+        Assert.assertTrue(stored.getRelativePath().endsWith(".jpg"), stored.getRelativePath());
+        Assert.assertEquals(written, directory.resolve(stored.getRelativePath()), "Verify the future completes with the file that was written.");
+        Assert.assertTrue(Files.exists(written));
+    }
+
+    @Test
+    public void reusedNameLinksTheLatestCapture() throws IOException {
+        ScreenshotStore store = new ScreenshotStore(directory);
+        HeldScreenshotWriter writer = new HeldScreenshotWriter();
+        byte[] idle = png(40, 30, 0x336699);
+        byte[] changed = png(40, 30, 0xFFFFFF);
+
+        String idleObject = store.store(writer, idle, null, null).getRelativePath();
+        writer.release();
+        store.store(writer, changed, null, directory.resolve("current.png"));
+        store.store(writer, idle, null, directory.resolve("current.png"));
+        writer.release();
+        writer.close();
+
+        Path current = directory.resolve("current.png");
+        Assert.assertEquals(Files.readAllBytes(current), idle, "Verify the duplicate captured last wins over the new frame still being written.");
+
+        ScreenshotWriter plain = new ScreenshotWriter(4, 1);
+        plain.write(changed, current, null);
+        plain.close();
+        Assert.assertEquals(Files.readAllBytes(directory.resolve(idleObject)), idle, "Verify writing the name does not write through to the stored file.");
+    }
+
+    /**
+     * Holds every write until it is released, so a screenshot can still be pending when the next one is stored
+     */
+    private static class HeldScreenshotWriter extends ScreenshotWriter {
+        private final List<Runnable> held = new ArrayList<>();
+
+        HeldScreenshotWriter() {
+            super(4, 1);
+        }
+
+        @Override
+        public synchronized CompletableFuture<Path> write(byte[] png, Path target, Rectangle crop, ScreenshotProfile profile) {
+            CompletableFuture<Path> written = new CompletableFuture<>();
+            held.add(() -> super.write(png, target, crop, profile).whenComplete((path, error) -> {
+                if (error != null) {
+                    written.completeExceptionally(error);
+                } else {
+                    written.complete(path);
+                }
+            }));
+            return written;
+        }
+
+        synchronized void release() {
+            held.forEach(Runnable::run);
+            held.clear();
+            flush();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.bottlerocket.webdriverwrapper;
+
+import org.apache.commons.io.FileUtils;
+import org.openqa.selenium.Rectangle;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+public class ScreenshotWriterTest {
+    private Path directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("screenshot-writer-test");
+    }
+
+    @AfterMethod
+    public void deleteDirectory() {
+        FileUtils.deleteQuietly(directory.toFile());
+    }
+
+    @Test
+    public void closeWritesEverythingQueued() throws IOException {
+        byte[] png = png(40, 30, 0x336699);
+
+        ScreenshotWriter writer = new ScreenshotWriter(1, 1);
+        for (int i = 0; i < 5; i++) {
+            writer.write(png, directory.resolve("full" + i + ".png"), null);
+        }
+        writer.write(png, directory.resolve("cropped.png"), new Rectangle(30, 20, 20, 20));
+        writer.close();
+
+        Assert.assertEquals(writer.getWrittenCount(), 6);
+        Assert.assertEquals(writer.getPendingCount(), 0);
+        Assert.assertEquals(Files.readAllBytes(directory.resolve("full4.png")), png);
+
+        BufferedImage cropped = ImageIO.read(directory.resolve("cropped.png").toFile());
+        Assert.assertEquals(cropped.getWidth(), 10, "Verify the crop is clipped to the image.");
+        Assert.assertEquals(cropped.getHeight(), 10);
+    }
+
+    @Test
+    public void lastScreenshotQueuedForATargetWins() throws IOException {
+        byte[] first = png(400, 300, 0x336699);
+        byte[] last = png(10, 10, 0xFFFFFF);
+
+        ScreenshotWriter writer = new ScreenshotWriter(8, 4);
+        for (int i = 0; i < 20; i++) {
+            writer.write(first, directory.resolve("failure.png"), null);
+            writer.write(last, directory.resolve("failure.png"), null);
+        }
+        writer.close();
+
+        Assert.assertEquals(Files.readAllBytes(directory.resolve("failure.png")), last);
+        try (Stream<Path> files = Files.list(directory)) {
+            Assert.assertEquals(files.count(), 1, "Verify no temporary files are left behind.");
+        }
+    }
+
+    /**
+     * @return a PNG of one solid color, shared with the other screenshot tests
+     */
+    static byte[] png(int width, int height, int rgb) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,40 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.webdriverwrapper.uiElementLocator.LocatorUtils;
+import com.bottlerocket.webdriverwrapper.uiElementLocator.TestPlatform;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+public class SessionContextTest {
+
+    @Test
+    public void boundContextsAreIsolatedPerThread() {
+        CompletableFuture<TestPlatform> android = CompletableFuture.supplyAsync(() -> SessionContext.callWith(new SessionContext(), () -> {
+            LocatorUtils.setTestPlatformForCurrentTestRun(TestPlatform.ANDROID);
+            return LocatorUtils.getTestPlatformForCurrentTestRun();
+        }));
+        CompletableFuture<TestPlatform> ios = CompletableFuture.supplyAsync(() -> SessionContext.callWith(new SessionContext(), () -> {
+            LocatorUtils.setTestPlatformForCurrentTestRun(TestPlatform.IOS);
+            return LocatorUtils.getTestPlatformForCurrentTestRun();
+        }));
+
+        Assert.assertEquals(android.join(), TestPlatform.ANDROID);
+        Assert.assertEquals(ios.join(), TestPlatform.IOS);
+        Assert.assertFalse(SessionContext.isBound(), "Verify callWith restores the unbound state.");
+    }
+
+    @Test
+    public void unboundThreadsShareTheGlobalContext() {
+        SessionContext.unbind();
+        Assert.assertSame(SessionContext.current(), SessionContext.global());
+
+        SessionContext bound = SessionContext.bindNew();
+        try {
+            Assert.assertSame(SessionContext.current(), bound);
+        } finally {
+            SessionContext.unbind();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.bottlerocket.webdriverwrapper;
+
+import com.bottlerocket.config.AutomationConfigProperties;
+import org.apache.commons.io.FileUtils;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public class StartupProfilerTest {
+
+    @Test
+    public void phasesAreReportedInTheOrderTheyFirstRan() {
+        StartupProfiler profiler = new StartupProfiler();
+        profiler.record("config: load files", 2_000);
+        try (StartupProfiler.Phase phase = profiler.start("session: create driver")) {
+            profiler.record("driver: resolve binary", 500);
+        }
+        profiler.record("config: load files", 4_000);
+
+        Map<String, LatencyHistogram> phases = profiler.getPhases();
+        Assert.assertEquals(List.copyOf(phases.keySet()), List.of("config: load files", "driver: resolve binary", "session: create driver"));
+        Assert.assertEquals(phases.get("config: load files").getCount(), 2);
+        Assert.assertEquals(phases.get("config: load files").getTotal(), 6_000);
+        Assert.assertEquals(phases.get("session: create driver").getCount(), 1, "Verify a phase is recorded when it is closed.");
+
+        String table = profiler.toTable();
+        Assert.assertTrue(table.startsWith("Phase"), table);
+        Assert.assertTrue(table.contains("config: load files"), table);
+        Assert.assertTrue(table.contains("6.0"), "Verify the total is shown in milliseconds. " + table);
+    }
+
+    @Test
+    public void benchmarkCountsFailedSessionsInItsOwnProfiler() throws IOException {
+        Path tempDir = Files.createTempDirectory("startup-profiler-test");
+        try {
+            Path configFile = Files.writeString(tempDir.resolve("appconfig.properties"), "PROJECT_NAME=startupProfilerTest\n");
+            AutomationConfigProperties config = new AutomationConfigProperties(new DesiredCapabilities(), configFile.toString());
+            //the framework can't create a wrapper for this platform, so every session fails to start
+            config.platformName = "Windows";
+            long globalFailures = globalCount("benchmark: failed");
+
+            StartupProfiler results = StartupProfiler.benchmark(config, 3);
+
+            Assert.assertEquals(results.getPhases().get("benchmark: failed").getCount(), 3);
+            Assert.assertNull(results.getPhases().get("benchmark: create session"));
+            Assert.assertEquals(globalCount("benchmark: failed"), globalFailures, "Verify the benchmark doesn't record into the global profiler.");
+            Assert.assertSame(StartupProfiler.current(), StartupProfiler.getGlobal(), "Verify the benchmark profiler is unbound when it ends.");
+        } finally {
+            FileUtils.deleteQuietly(tempDir.toFile());
+        }
+    }
+
+    private static long globalCount(String phase) {
+        LatencyHistogram histogram = StartupProfiler.getGlobal().getPhases().get(phase);
+        return histogram == null ? 0 : histogram.getCount();
+    }
+}
@@ -0,0 +1,88 @@
+package com.bottlerocket.webdriverwrapper;
+
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.support.ui.Sleeper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.CompletableFuture;
+
+public class WaitEngineTest {
+
+    /**
+     * A clock that only moves when the sleeper is called, so waits run instantly and deterministically.
+     */
+    private static class FakeClock extends Clock implements Sleeper {
+        private Instant now = Instant.EPOCH;
+
+        @Override
+        public void sleep(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+
+    @Test
+    public void fixedEngineTimesOutAtDeadline() {
+        FakeClock clock = new FakeClock();
+        FixedIntervalWaitEngine engine = new FixedIntervalWaitEngine(Duration.ofMillis(500), clock, clock);
+
+        Assert.expectThrows(TimeoutException.class, () -> engine.until(null, driver -> false, Duration.ofSeconds(2)));
+
+        WaitStatistics statistics = engine.getLastWaitStatistics();
+        Assert.assertEquals(statistics.getPolls(), 5, "Verify polls at 0, 500, 1000, 1500 and 2000 ms.");
+        Assert.assertEquals(statistics.getElapsed(), Duration.ofSeconds(2), "Verify the wait never runs past the deadline.");
+        Assert.assertTrue(statistics.isTimedOut());
+    }
+
+    @Test
+    public void adaptiveEnginePollsFastThenBacksOff() {
+        FakeClock clock = new FakeClock();
+        AdaptiveWaitEngine engine = new AdaptiveWaitEngine(Duration.ofMillis(50), Duration.ofMillis(500), Duration.ofMillis(1000), clock, clock);
+
+        Assert.assertEquals(engine.nextPollInterval(1, Duration.ofMillis(100)), Duration.ofMillis(50));
+        Assert.assertEquals(engine.nextPollInterval(3, Duration.ofMillis(450)), Duration.ofMillis(50), "Verify slow polls don't stretch the fast phase past its period.");
+        Assert.assertEquals(engine.backoffInterval(Duration.ofMillis(500)), 100);
+        Assert.assertEquals(engine.backoffInterval(Duration.ofMillis(600)), 150);
+        Assert.assertEquals(engine.backoffInterval(Duration.ofSeconds(20)), 1000, "Verify the backoff is capped at the max interval.");
+
+        int[] polls = {0};
+        Boolean result = engine.until(null, driver -> ++polls[0] == 3, Duration.ofSeconds(5));
+        Assert.assertTrue(result);
+        Assert.assertEquals(engine.getLastWaitStatistics().getElapsed(), Duration.ofMillis(100), "Verify a quick condition is caught during the fast phase.");
+        Assert.assertEquals(engine.getTotalWaits(), 1);
+        Assert.assertEquals(engine.getTotalPolls(), 3);
+    }
+
+    @Test
+    public void lastWaitStatisticsArePerThread() throws Exception {
+        FakeClock clock = new FakeClock();
+        FixedIntervalWaitEngine engine = new FixedIntervalWaitEngine(Duration.ofMillis(500), clock, clock);
+
+        engine.until(null, driver -> true, Duration.ofSeconds(2));
+        CompletableFuture.runAsync(() -> Assert.expectThrows(TimeoutException.class,
+                () -> engine.until(null, driver -> false, Duration.ofSeconds(1)))).get();
+
+        Assert.assertEquals(engine.getLastWaitStatistics().getPolls(), 1, "Verify another thread's wait doesn't replace this thread's statistics.");
+        Assert.assertFalse(engine.getLastWaitStatistics().isTimedOut());
+        Assert.assertEquals(engine.getTotalWaits(), 2);
+    }
+}